@@ -18,19 +18,22 @@
 
 package aggregation;
 
+import peersim.cdsim.*;
 import peersim.config.*;
 import peersim.core.*;
 
 /**
  * This class implements the average aggregation functions through an
  * epidemic protocol based on averaging the values stored at two neighbor
- * nodes.
+ * nodes. Since an exchange involves only two nodes, it can also be run
+ * in parallel by {@link peersim.cdsim.PairwiseNextCycle}.
  *
  * @author Alberto Montresor
  * @version $Revision$
  */
 public class AverageFunction 
 extends AbstractFunction 
+implements PairwiseProtocol
 {
 
 //--------------------------------------------------------------------------
@@ -56,6 +59,44 @@ public AverageFunction(String prefix)
  * variance reduction step.
  */
 public void nextCycle( Node node, int pid )
+{
+	Node peer = selectPeer(node, pid);
+	if (peer != null)
+		exchange(node, peer, pid, 0);
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Selects the same neighbor as {@link #nextCycle}, if any.
+ */
+public void selectExchanges( Node node, int pid, Schedule schedule )
+{
+	Node peer = selectPeer(node, pid);
+	if (peer != null)
+		schedule.add(node, peer, 0);
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Performs a variance reduction step with the given neighbor.
+ */
+public void exchange( Node node, Node peer, int pid, int tag )
+{
+	AverageFunction neighbor = (AverageFunction) peer.getProtocol(pid);
+	double mean = (this.value + neighbor.value) / 2;
+	this.value = mean;
+	neighbor.value = mean;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Choses a random neighbor, returning null if there is none or it
+ * has failed.
+ */
+private Node selectPeer( Node node, int pid )
 {
 	Linkable linkable = 
 		(Linkable) node.getProtocol( FastConfig.getLinkable(pid) );
@@ -65,13 +106,10 @@ public void nextCycle( Node node, int pid )
 				CommonState.r.nextInt(linkable.degree()));
 		
 		// XXX quick and dirty handling of failures
-		if (peer.getFailState()!=Fallible.OK) return;
-		
-		AverageFunction neighbor = (AverageFunction) peer.getProtocol(pid);
-		double mean = (this.value + neighbor.value) / 2;
-		this.value = mean;
-		neighbor.value = mean;
+		if (peer.getFailState()!=Fallible.OK) return null;
+		return peer;
 	}
+	return null;
 }
 
 //--------------------------------------------------------------------------
@@ -24,13 +24,16 @@ import peersim.cdsim.*;
 
 
 /**
- * 
+ * Runs several concurrent instances of the average aggregation protocol,
+ * each with its own value and its own peer at each cycle. Since an
+ * exchange involves only two nodes, this protocol can also be run in
+ * parallel by {@link PairwiseNextCycle}.
  *
  * @author Alberto Montresor
  * @version $Revision$
  */
 public class AverageMultipleAP
-implements MultipleValues, CDProtocol
+implements MultipleValues, PairwiseProtocol
 {
 
 //--------------------------------------------------------------------------
@@ -65,6 +68,11 @@ protected double asymProb;
  * Identifier of the linkable protocol. 
  */
 protected int lid;	
+
+/**
+ * True if all the values are exchanged with the same peer.
+ */
+protected boolean vector;
 	
 }
 	
@@ -99,6 +107,15 @@ private final static String PAR_SYM_FAILUREPROB = "failure.symmetric";
  */
 private final static String PAR_ASYM_FAILUREPROB = "failure.asymmetric";
 
+/**
+ * If this parameter is present, a node selects a single peer in each
+ * cycle and exchanges all its values with it, instead of selecting a
+ * peer for each value. The instances are then no longer independent, but
+ * an exchange averages whole arrays of values, which is much faster when
+ * there are many instances.
+ */
+private final static String PAR_VECTOR = "vector";
+
 
 //--------------------------------------------------------------------------
 // Static fields
@@ -138,6 +155,7 @@ public AverageMultipleAP(String prefix)
 	p = new ProtocolData();
 	p.symProb = Configuration.getDouble(prefix + "." + PAR_SYM_FAILUREPROB, 0.0);
 	p.asymProb = Configuration.getDouble(prefix + "." + PAR_ASYM_FAILUREPROB, 0.0);
+	p.vector = Configuration.contains(prefix + "." + PAR_VECTOR);
 	p.lid = FastConfig.getLinkable(CDState.getPid());
 	
 	// Instance fields
@@ -195,6 +213,16 @@ public void setValue(int pos, double value)
 
 //--------------------------------------------------------------------------
 
+//Comment inherited from interface
+public double[] getValues()
+{
+	if (isNew)
+		throw new UnsupportedOperationException();
+	return values;
+}
+
+//--------------------------------------------------------------------------
+
 //Comment inherited from interface
 public int size()
 {
@@ -236,6 +264,39 @@ protected boolean canDeliverResponse(Node node)
 
 // Comment inherited from interface
 public void nextCycle(Node node, int pid)
+{
+	if (!wakeUp())
+		return;
+
+	if (p.vector) {
+		Node receiver = selectNeighbor(node, pid);
+		if (receiver != null && canDeliverRequest(receiver)) { 
+			AverageMultipleAP preceiver = 
+				(AverageMultipleAP) receiver.getProtocol(pid);
+			preceiver.deliverRequest(node, receiver, values);
+		}
+		return;
+	}
+
+	/* Select the neighbor and verify that communication is possible */
+	for (int i=0; i < values.length; i++) {
+		Node receiver = selectNeighbor(node, pid);
+		if (receiver != null && canDeliverRequest(receiver)) { 
+			/* Send request */
+			AverageMultipleAP preceiver = 
+				(AverageMultipleAP) receiver.getProtocol(pid);
+			preceiver.deliverRequest(node, receiver, values[i], i);
+		}
+	}
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Updates the status of the node at the beginning of a cycle.
+ * @return false if the node does not take part in the aggregation
+ */
+private boolean wakeUp()
 {
 	if (CDState.getCycle() != last+1) {
 		// We just woke up
@@ -246,23 +307,56 @@ public void nextCycle(Node node, int pid)
 	/* Nodes that have been created during the current epoch do not
 	 * partecipate in the aggregation protocol
 	 */
-	if (isNew)
-		return;
+	return !isNew;
+}
 
-	/* Select the neighbor and verify that communication is possible */
-	for (int i=0; i < values.length; i++) {
+//--------------------------------------------------------------------------
+
+/**
+ * Selects the exchanges as {@link #nextCycle} does, one for each value
+ * (or a single one in vector mode). Whether the receiver takes part in
+ * the exchange and whether the response will be delivered are decided
+ * here, drawing the same random numbers as {@link #nextCycle}; the tag
+ * is twice the index of the value, plus one if the response is delivered.
+ */
+public void selectExchanges(Node node, int pid, Schedule schedule)
+{
+	if (!wakeUp())
+		return;
+	for (int i=0; i < (p.vector ? 1 : values.length); i++) {
 		Node receiver = selectNeighbor(node, pid);
 		if (receiver != null && canDeliverRequest(receiver)) { 
-			/* Send request */
-			AverageMultipleAP preceiver = 
-				(AverageMultipleAP) receiver.getProtocol(pid);
-			preceiver.deliverRequest(node, receiver, values[i], i);
+			// a new receiver ignores the request, as in deliverRequest()
+			if (((AverageMultipleAP) receiver.getProtocol(pid)).isNew)
+				continue;
+			schedule.add(node, receiver,
+					2*i + (canDeliverResponse(node) ? 1 : 0));
 		}
 	}
 }
 
 //--------------------------------------------------------------------------
 
+// Comment inherited from interface
+public void exchange(Node node, Node peer, int pid, int tag)
+{
+	AverageMultipleAP preceiver = (AverageMultipleAP) peer.getProtocol(pid);
+	if (p.vector) {
+		if ((tag & 1) != 0)
+			average(values, preceiver.values);
+		else
+			averageInto(preceiver.values, values);
+		return;
+	}
+	final int index = tag >> 1;
+	double lvalue = preceiver.values[index];
+	preceiver.values[index] = (lvalue + values[index])/2;
+	if ((tag & 1) != 0)
+		deliverResponse(node, peer, lvalue, index);
+}
+
+//--------------------------------------------------------------------------
+
 /**
  * Simulates the sending of a message to initiate an exchange with a peer
  * node. This method is invoked by the initiator of an exchange on the
@@ -316,6 +410,60 @@ public void deliverResponse(Node initiator, Node receiver, double rvalue, int in
 
 //--------------------------------------------------------------------------
 
+/**
+ * Simulates the sending of a message carrying all the values of the
+ * initiator, in vector mode. The receiver averages all its values with
+ * the ones received; if the response is not lost, the initiator does the
+ * same, so both end up with the averages.
+ * 
+ * @param initiator the node that initiated the exchange
+ * @param receiver the node that received the exchange invitation
+ * @param rvalues the values of the initiator
+ */
+public void deliverRequest(Node initiator, Node receiver, double[] rvalues)
+{
+	/* Nodes that have been created during the current epoch do not
+	 * partecipate in the aggregation protocol
+	 */
+	if (isNew)
+		return;
+
+	if (canDeliverResponse(initiator))
+		average(rvalues, values);
+	else
+		averageInto(values, rvalues);
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Sets both arrays to their element-wise average. The loop is simple
+ * enough to be vectorized by the JIT compiler.
+ */
+protected static void average(double[] a, double[] b)
+{
+	final int len = a.length;
+	for (int i=0; i < len; i++) {
+		final double mean = (a[i] + b[i])/2;
+		a[i] = mean;
+		b[i] = mean;
+	}
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Sets the first array to the element-wise average of the two arrays.
+ */
+protected static void averageInto(double[] dest, double[] src)
+{
+	final int len = dest.length;
+	for (int i=0; i < len; i++)
+		dest[i] = (dest[i] + src[i])/2;
+}
+
+//--------------------------------------------------------------------------
+
 /**
  * Selects a random neighbor amongs those stored in the Linkable protocol
  * used by this protocol.
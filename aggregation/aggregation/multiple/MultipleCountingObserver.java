@@ -145,13 +145,11 @@ public boolean execute()
 		upnodes++;
 		MultipleValues protocol = (MultipleValues) node.getProtocol(pid);
 		if (!protocol.isNew()) {
+			final double[] values = protocol.getValues();
 			double sum = 0;
-			int count = 0;
-			for (int j=0; j < protocol.size(); j++) {
-				sum += protocol.getValue(j);
-				count++;
-			}
-			stats.add(sum/count);
+			for (int j=0; j < values.length; j++)
+				sum += values[j];
+			stats.add(sum/values.length);
 		}
 
 	}
@@ -39,6 +39,13 @@ public double getValue(int i);
  */
 public void setValue(int i, double value);
 
+/**
+ * Returns all the values, in an array of length {@link #size} that must
+ * not be modified. It is faster than calling {@link #getValue} for each
+ * value.
+ */
+public double[] getValues();
+
 /** 
  * Returns the number of values stored in this array.
  */
@@ -0,0 +1,378 @@
+/*
+ * Copyright (c) 2003 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+package aggregation.secure;
+
+import peersim.cdsim.*;
+import peersim.core.*;
+import peersim.config.*;
+import java.util.*;
+
+/**
+ * A compact version of {@link ProofBlacklist}, meant for large networks.
+ * Membership is tested on a {@link BloomFilter} of node identifiers, so
+ * {@link #contains} costs a few bit probes and the memory used by each
+ * node does not depend on the number of objects stored in a hash map.
+ * Notifications still to be forwarded are kept in a ring buffer of
+ * primitive identifiers and time-to-live counters, which grows up to
+ * the configured size; when it is full, the oldest notification is
+ * dropped. Dropped notifications are no longer forwarded, but the
+ * corresponding nodes remain in the filter.
+ * <p>
+ * As a consequence, an honest node may be considered blacklisted with
+ * a probability given by parameter {@value #PAR_FP}, as long as the
+ * number of nodes blacklisted by a node does not exceed
+ * {@value #PAR_SIZE}. The iterator returns only the nodes whose
+ * notification is still in the ring buffer.
+ */
+public class BloomBlacklist 
+implements CDProtocol, Blacklist
+{
+
+//--------------------------------------------------------------------------
+// Constants
+//--------------------------------------------------------------------------
+
+/**
+ * String name of the parameter used to select the linkable protocol 
+ * used to obtain information about neighbors.
+ * @config
+ */
+public static final String PAR_CONN = "linkable";
+
+/**
+ * String name of the parameter that determines the maximum life of
+ * a blacklist notification in the system.
+ * @config
+ */
+public static final String PAR_MAXTTL = "ttl";
+
+/**
+ * String name of the parameter that determines the expected number of
+ * nodes in a blacklist, and the maximum number of notifications
+ * stored by a node.
+ * @config
+ */
+public static final String PAR_SIZE = "size";
+
+/**
+ * String name of the parameter that determines the maximum number
+ * of blacklist notification that can be forwarded per cycle.
+ * Defaults to {@value #PAR_SIZE}.
+ * @config
+ */
+public static final String PAR_FORWARDED = "forwarded";
+
+/**
+ * String name of the parameter that determines the false positive rate
+ * of the filter, when it contains {@value #PAR_SIZE} nodes. Defaults
+ * to 0.001.
+ * @config
+ */
+public static final String PAR_FP = "fp";
+
+/** Initial capacity of the ring buffer */
+private static final int INITIAL = 8;
+
+//--------------------------------------------------------------------------
+// Static fields
+//--------------------------------------------------------------------------
+
+/** Maximum ttl */
+private static byte maxttl;
+
+/** Maximum forwarded */
+private static int maxforwarded;
+
+/** Size */
+private static int size;  
+
+/** Positions of the notifications to forward */
+private static int[] forward;
+
+/** 
+ * The nodes that have been blacklisted by a proof, indexed by their
+ * identifier. Used to resolve the identifiers returned by the iterator.
+ */
+private static Map<Long,Node> blacklisted;
+
+/** Singleton blacklist iterator */
+private static BlacklistIterator iterator;
+
+//--------------------------------------------------------------------------
+// Fields
+//--------------------------------------------------------------------------
+
+/** Identifiers of the blacklisted nodes */
+private BloomFilter filter;
+
+/** Ring buffer of notifications: node identifiers */
+private long[] ids;
+
+/** Ring buffer of notifications: residual ttls */
+private byte[] ttls;
+
+/** Position of the oldest notification */
+private int head;
+
+/** Number of notifications */
+private int count;
+
+//--------------------------------------------------------------------------
+// Constructor
+//--------------------------------------------------------------------------
+
+/**
+ * Construct a new blacklist instance by reading configuration parameters
+ * and creating appropriate data structures.
+ */
+public BloomBlacklist(String prefix)
+{
+	/* Read parameters */
+	int ttl = Configuration.getInt(prefix+"."+PAR_MAXTTL);
+	if (ttl < 1 || ttl > Byte.MAX_VALUE)
+		throw new IllegalParameterException(prefix+"."+PAR_MAXTTL,
+			"must be between 1 and " + Byte.MAX_VALUE);
+	maxttl = (byte) ttl;
+	size = Configuration.getInt(prefix+"."+PAR_SIZE);
+	if (size < 1)
+		throw new IllegalParameterException(prefix+"."+PAR_SIZE,
+			"must be positive");
+	maxforwarded = Configuration.getInt(prefix+"."+PAR_FORWARDED, size);
+	double fp = Configuration.getDouble(prefix+"."+PAR_FP, 0.001);
+	if (!(fp > 0 && fp < 1))
+		throw new IllegalParameterException(prefix+"."+PAR_FP,
+			"must be in the range (0,1)");
+	forward = new int[size];
+	blacklisted = new HashMap<Long,Node>();
+	iterator = new BlacklistIterator();
+
+	filter = new BloomFilter(size, fp);
+	ids = new long[Math.min(INITIAL, size)];
+	ttls = new byte[ids.length];
+}
+
+//--------------------------------------------------------------------------
+
+//Comment inherited from interface
+public Object clone()
+{
+	BloomBlacklist bl = null;
+	try { bl=(BloomBlacklist) super.clone(); }
+	catch( CloneNotSupportedException e ) {} // never happens
+	bl.filter = (BloomFilter) filter.clone();
+	bl.ids = new long[Math.min(INITIAL, size)];
+	bl.ttls = new byte[bl.ids.length];
+	bl.head = 0;
+	bl.count = 0;
+	return bl;
+}
+
+//--------------------------------------------------------------------------
+// Methods
+//--------------------------------------------------------------------------
+
+// Comment inherited from interface
+public void add(int blid, Node src, Node node1, Node node2)
+{
+	if (isMalicious(node1)) {
+		add(node1);
+	} else if (isMalicious(node2)) {
+		add(node2);
+	} else 
+	  System.err.print("+");
+}
+
+//--------------------------------------------------------------------------
+
+/** Returns true if the node contains a malicious protocol */
+private boolean isMalicious(Node node)
+{
+	for (int i=0; i < node.protocolSize(); i++) {
+		if (node.getProtocol(i) instanceof MaliciousProtocol) {
+			return true;
+		}
+	}
+	return false;
+}
+
+//--------------------------------------------------------------------------
+
+// Comment inherited from interface
+public void nextCycle(Node node, int pid)
+{
+	if (count == 0)
+		return;
+	int linkableID = FastConfig.getLinkable(pid);
+	Linkable linkable = (Linkable) node.getProtocol( linkableID );
+	if (linkable.degree() == 0)
+	  return;
+
+	int n = 0;
+	for (int i=0; i < count; i++) {
+		int k = (head + i) % ids.length;
+		if (ttls[k] > 0)
+			forward[n++] = k;
+	}
+	int toremove = n - maxforwarded;
+	for (int i=0; i < toremove; i++) {
+		int k = CommonState.r.nextInt(n);
+		forward[k] = forward[n-1];
+		n--;
+	}
+
+	for (int i=0; i < n; i++) {
+		int k = forward[i];
+		ttls[k]--;
+		int rindex = CommonState.r.nextInt(linkable.degree());
+		Node rnode = linkable.getNeighbor(rindex);
+		BloomBlacklist rblacklist = (BloomBlacklist) rnode.getProtocol(pid);
+		rblacklist.add(ids[k]);
+	}
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Add a node to the blacklist, after a proof of its misbehavior.
+ * @param node the node to be added
+ */
+private void add(Node node)
+{
+	Long id = Long.valueOf(node.getID());
+	if (!blacklisted.containsKey(id))
+		blacklisted.put(id, node);
+	add(node.getID());
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Add the specified identifier to the blacklist, and schedule it for
+ * forwarding if it was not already present.
+ * @param id the identifier of the node to be added
+ */
+private void add(long id)
+{
+	if (!filter.add(id))
+		return;
+	if (count == ids.length) {
+		if (ids.length < size) {
+			grow();
+		} else {
+			head = (head + 1) % ids.length;
+			count--;
+		}
+	}
+	int k = (head + count) % ids.length;
+	ids[k] = id;
+	ttls[k] = (byte) (maxttl - 1);
+	count++;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Doubles the capacity of the ring buffer, up to the maximum size,
+ * moving the oldest notification at position 0.
+ */
+private void grow()
+{
+	int capacity = Math.min(ids.length * 2, size);
+	long[] nids = new long[capacity];
+	byte[] nttls = new byte[capacity];
+	for (int i=0; i < count; i++) {
+		int k = (head + i) % ids.length;
+		nids[i] = ids[k];
+		nttls[i] = ttls[k];
+	}
+	ids = nids;
+	ttls = nttls;
+	head = 0;
+}
+
+//--------------------------------------------------------------------------
+
+//Comment inherited from interface
+public boolean contains(Node node)
+{
+	return filter.contains(node.getID());
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Returns the number of nodes that have been added to this blacklist.
+ * Nodes that were false positives of the filter when they were added
+ * are not counted.
+ */
+public int size()
+{
+	return filter.size();
+}
+
+//--------------------------------------------------------------------------
+
+//Comment inherited from interface
+public Iterator iterator()
+{
+	iterator.reset(this);
+	return iterator;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Optimized iterator, created as a singleton object, to be used to
+ * iterate over the notifications stored in a blacklist.
+ */
+static class BlacklistIterator implements Iterator<Node> {
+
+	int index;
+	BloomBlacklist bl;
+
+	public void reset(BloomBlacklist bl)
+	{
+		this.bl = bl;
+		index = 0;
+	}
+
+	// Comment inherited from interface
+	public void remove()
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	// Comment inherited from interface
+	public boolean hasNext()
+	{
+		return index < bl.count;
+	}
+
+	// Comment inherited from interface
+	public Node next()
+	{
+		if (index >= bl.count)
+			throw new NoSuchElementException();
+		int k = (bl.head + index++) % bl.ids.length;
+		return blacklisted.get(Long.valueOf(bl.ids[k]));
+	}
+}
+
+//--------------------------------------------------------------------------
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2003 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+package aggregation.secure;
+
+/**
+ * A Bloom filter over 64-bit node identifiers. The filter is dimensioned
+ * from the expected number of insertions and the target false positive
+ * rate; when more elements than expected are inserted, the false
+ * positive rate grows accordingly. Elements cannot be removed.
+ * <p>
+ * The bit positions are obtained by double hashing a mixed version of
+ * the identifier, so a single multiplication is needed for each of
+ * them.
+ */
+public class BloomFilter
+implements Cloneable
+{
+
+//--------------------------------------------------------------------------
+// Fields
+//--------------------------------------------------------------------------
+
+/** The bit array */
+private long[] bits;
+
+/** Number of bits, a multiple of 64 */
+private final int m;
+
+/** Number of hash functions */
+private final int k;
+
+/** Number of elements inserted so far */
+private int count;
+
+//--------------------------------------------------------------------------
+// Constructor
+//--------------------------------------------------------------------------
+
+/**
+ * Creates a filter able to hold <code>n</code> elements with a false
+ * positive rate of at most <code>p</code>.
+ * @param n the expected number of insertions; must be positive
+ * @param p the target false positive rate, in the range (0,1)
+ */
+public BloomFilter(int n, double p)
+{
+	if (n <= 0)
+		throw new IllegalArgumentException("Invalid size: " + n);
+	if (!(p > 0 && p < 1))
+		throw new IllegalArgumentException("Invalid false positive rate: " + p);
+	double ln2 = Math.log(2);
+	long bitCount = (long) Math.ceil(-n * Math.log(p) / (ln2 * ln2));
+	int words = (int) Math.max(1, (bitCount + 63) >>> 6);
+	bits = new long[words];
+	m = words << 6;
+	k = (int) Math.max(1, Math.round((double) m / n * ln2));
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Returns an empty filter with the same dimensions of this one.
+ */
+public Object clone()
+{
+	BloomFilter f = null;
+	try { f = (BloomFilter) super.clone(); }
+	catch( CloneNotSupportedException e ) {} // never happens
+	f.bits = new long[bits.length];
+	f.count = 0;
+	return f;
+}
+
+//--------------------------------------------------------------------------
+// Methods
+//--------------------------------------------------------------------------
+
+/**
+ * Inserts the specified identifier.
+ * @return false if the identifier was (possibly) already contained
+ */
+public boolean add(long id)
+{
+	long h = mix(id);
+	int h1 = (int) h;
+	int h2 = (int) (h >>> 32) | 1;
+	boolean added = false;
+	for (int i = 0; i < k; i++) {
+		int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % m;
+		long mask = 1L << bit;
+		if ((bits[bit >>> 6] & mask) == 0) {
+			bits[bit >>> 6] |= mask;
+			added = true;
+		}
+	}
+	if (added)
+		count++;
+	return added;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Returns true if the specified identifier has been inserted, or if it
+ * is a false positive.
+ */
+public boolean contains(long id)
+{
+	long h = mix(id);
+	int h1 = (int) h;
+	int h2 = (int) (h >>> 32) | 1;
+	for (int i = 0; i < k; i++) {
+		int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % m;
+		if ((bits[bit >>> 6] & (1L << bit)) == 0)
+			return false;
+	}
+	return true;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Removes all the elements.
+ */
+public void clear()
+{
+	for (int i = 0; i < bits.length; i++)
+		bits[i] = 0;
+	count = 0;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Returns the number of distinct elements inserted so far. Elements
+ * whose insertion collided with a false positive are not counted.
+ */
+public int size()
+{
+	return count;
+}
+
+//--------------------------------------------------------------------------
+
+/** Returns the number of bits of the filter */
+public int bits()
+{
+	return m;
+}
+
+//--------------------------------------------------------------------------
+
+/** Returns the number of hash functions used by the filter */
+public int hashes()
+{
+	return k;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Scrambles the identifier, since node identifiers are usually
+ * consecutive integers (finalizer of the SplitMix64 generator).
+ */
+private static long mix(long z)
+{
+	z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+	z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+	return z ^ (z >>> 31);
+}
+
+//--------------------------------------------------------------------------
+
+}
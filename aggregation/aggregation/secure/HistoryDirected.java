@@ -79,8 +79,8 @@ int spos;
 // Table of generated exchanges
 //--------------------------------------------------------------------------
 
-/** Nodes with which this node has started exchanges */
-Node[] dnodes;
+/** Identifiers of the nodes with which this node has started exchanges */
+long[] dids;
 
 /** Cycles at which the exchanges have occurred */  
 int[] dcycles;
@@ -91,6 +91,9 @@ double[] dvalues;
 /** Position at which to insert the next received exchange */
 int dpos;
 
+/** Number of exchanges in the table */
+int dlen;
+
 
 //--------------------------------------------------------------------------
 // Static variables
@@ -113,17 +116,18 @@ static Node[] nodes = new Node[2];
  */
 public HistoryDirected(String prefix)
 {
-	int size = Configuration.getInt(prefix + "." + PAR_RSIZE, 50);
+	int size = Configuration.getInt(prefix + "." + PAR_SIZE, 50);
 	int rsize = Configuration.getInt(prefix + "." + PAR_RSIZE, size);
 	int isize = Configuration.getInt(prefix + "." + PAR_ISIZE, size);
 	snodes = new Node[rsize];
 	svalues = new double[rsize];
 	scycles = new int[rsize];
-	dnodes = new Node[isize];
+	dids = new long[isize];
 	dvalues = new double[isize];
 	dcycles = new int[isize];
 	spos = 0;
 	dpos = 0;
+	dlen = 0;
 }
 
 //--------------------------------------------------------------------------
@@ -140,11 +144,12 @@ public Object clone()
 	h.snodes = new Node[snodes.length];
 	h.svalues = new double[snodes.length];
 	h.scycles = new int[snodes.length];
-	h.dnodes = new Node[dnodes.length];
-	h.dvalues = new double[dnodes.length];
-	h.dcycles = new int[dnodes.length];
+	h.dids = new long[dids.length];
+	h.dvalues = new double[dids.length];
+	h.dcycles = new int[dids.length];
 	h.spos = 0;
 	h.dpos = 0;
+	h.dlen = 0;
 	return h;
 }
 
@@ -167,10 +172,12 @@ public void addReceived(Node source, double value, int cycle)
 //Comment inherited from interface
 public void addInitiated(Node destination, double value, int cycle)
 {
-	dnodes[dpos] = destination;
+	dids[dpos] = destination.getID();
 	dcycles[dpos] = cycle;
 	dvalues[dpos] = (double) value;
-	dpos = (dpos + 1) % dnodes.length;
+	dpos = (dpos + 1) % dids.length;
+	if (dlen < dids.length)
+		dlen++;
 }
 
 //--------------------------------------------------------------------------
@@ -184,10 +191,9 @@ public Node[] checkRandomNode(Node rnode, int hid)
 	int k = CommonState.r.nextInt(slen);
 	Node randomNode = snodes[k];
 	HistoryDirected history = (HistoryDirected) randomNode.getProtocol(hid);
-	int dlen = (history.dnodes[history.dpos] == null) ? 
-	  history.dpos : history.dnodes.length;
-	for (int i=0; i < dlen; i++) {
-		if (history.dnodes[i] == rnode && 
+	long rid = rnode.getID();
+	for (int i=0; i < history.dlen; i++) {
+		if (history.dids[i] == rid && 
 		    history.dvalues[i] == svalues[k] &&
 		    history.dcycles[i] == scycles[k]) {
 			return null;
@@ -208,10 +214,8 @@ public void reset()
 		snodes[i] = null;
 	}
 	spos = 0;
-	for (int i=0; i < dnodes.length; i++) {
-		dnodes[i] = null;
-	}
 	dpos = 0;
+	dlen = 0;
 }
 
 //--------------------------------------------------------------------------
@@ -80,8 +80,8 @@ int spos;
 // Table of generated exchanges
 //--------------------------------------------------------------------------
 
-/** Nodes with which this node has started exchanges */
-Node[] dnodes;
+/** Identifiers of the nodes with which this node has started exchanges */
+long[] dids;
 
 /** Cycles at which the exchanges have occurred */  
 int[] dcycles;
@@ -92,6 +92,9 @@ double[] dvalues;
 /** Position at which to insert the next received exchange */
 int dpos;
 
+/** Number of exchanges in the table */
+int dlen;
+
 
 //--------------------------------------------------------------------------
 // Static variables
@@ -114,17 +117,18 @@ static Node[] nodes = new Node[2];
  */
 public HistoryUndirected(String prefix)
 {
-	int size = Configuration.getInt(prefix + "." + PAR_RSIZE, 50);
+	int size = Configuration.getInt(prefix + "." + PAR_SIZE, 50);
 	int rsize = Configuration.getInt(prefix + "." + PAR_RSIZE, size);
 	int isize = Configuration.getInt(prefix + "." + PAR_ISIZE, size);
 	snodes = new Node[rsize];
 	svalues = new double[rsize];
 	scycles = new int[rsize];
-	dnodes = new Node[isize];
+	dids = new long[isize];
 	dvalues = new double[isize];
 	dcycles = new int[isize];
 	spos = 0;
 	dpos = 0;
+	dlen = 0;
 }
 
 //--------------------------------------------------------------------------
@@ -135,17 +139,18 @@ public HistoryUndirected(String prefix)
  */
 public Object clone()
 {
-	HistoryDirected h = null;
-	try { h =(HistoryDirected) super.clone(); }
+	HistoryUndirected h = null;
+	try { h=(HistoryUndirected) super.clone(); }
 	catch( CloneNotSupportedException e ) {} // never happens
 	h.snodes = new Node[snodes.length];
 	h.svalues = new double[snodes.length];
 	h.scycles = new int[snodes.length];
-	h.dnodes = new Node[dnodes.length];
-	h.dvalues = new double[dnodes.length];
-	h.dcycles = new int[dnodes.length];
+	h.dids = new long[dids.length];
+	h.dvalues = new double[dids.length];
+	h.dcycles = new int[dids.length];
 	h.spos = 0;
 	h.dpos = 0;
+	h.dlen = 0;
 	return h;
 }
 
@@ -168,10 +173,12 @@ public void addReceived(Node source, double value, int cycle)
 //Comment inherited from interface
 public void addInitiated(Node destination, double value, int cycle)
 {
-	dnodes[dpos] = destination;
+	dids[dpos] = destination.getID();
 	dcycles[dpos] = cycle;
 	dvalues[dpos] = (double) value;
-	dpos = (dpos + 1) % dnodes.length;
+	dpos = (dpos + 1) % dids.length;
+	if (dlen < dids.length)
+		dlen++;
 }
 
 //--------------------------------------------------------------------------
@@ -179,7 +186,7 @@ public void addInitiated(Node destination, double value, int cycle)
 // Comment inherited from interface
 public Node[] checkRandomNode(Node rnode, int hid)
 {
-	int slen, dlen;
+	int slen;
 	slen = (snodes[spos] == null ? spos : snodes.length);
 	if (slen == 0)
 		return null;
@@ -193,9 +200,9 @@ public Node[] checkRandomNode(Node rnode, int hid)
 	Node random2 = history1.snodes[k];
 	HistoryUndirected history2 = (HistoryUndirected) random2.getProtocol(hid);
     
-	dlen = (history2.dnodes[history2.dpos] == null ? history2.dpos : history2.dnodes.length);
-	for (int i=0; i < dlen; i++) {
-		if (history2.dnodes[i] == random1 && 
+	long rid = random1.getID();
+	for (int i=0; i < history2.dlen; i++) {
+		if (history2.dids[i] == rid && 
 		    history2.dvalues[i] == history1.svalues[k] &&
 		    history2.dcycles[i] == history1.scycles[k]) {
 			return null;
@@ -216,10 +223,8 @@ public void reset()
 		snodes[i] = null;
 	}
 	spos = 0;
-	for (int i=0; i < dnodes.length; i++) {
-		dnodes[i] = null;
-	}
 	dpos = 0;
+	dlen = 0;
 }
 
 //--------------------------------------------------------------------------
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.bench;
+
+import java.util.*;
+import peersim.*;
+import peersim.config.*;
+import peersim.core.*;
+
+/**
+ * Utilities shared by the benchmarks to set up the simulator.
+ */
+class Benchmarks
+{
+
+/** to prevent construction */
+private Benchmarks() {}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Replaces the configuration of the simulator and resets its static
+ * state, as done before each experiment.
+ * @param props the configuration, as a sequence of names each followed
+ *   by its value
+ */
+static void configure(String... props)
+{
+	Properties p = new Properties();
+	p.setProperty("random.seed", "1234567890");
+	for (int i = 0; i < props.length; i += 2)
+		p.setProperty(props[i], props[i + 1]);
+	Configuration.reset();
+	Configuration.setConfig(p);
+	Simulator.reset();
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Creates the network and runs the initializers, as done by the
+ * simulation engines.
+ */
+static void init()
+{
+	Network.reset();
+	Object[] inits = Configuration.getInstanceArray("init");
+	for (int i = 0; i < inits.length; ++i)
+		((Control) inits[i]).execute();
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Returns the configuration of a network of the given size, running the
+ * given protocol on a random graph. The protocol is named
+ * <code>prot</code> and the graph is wired on protocol <code>lnk</code>.
+ * @param protocol either <code>aggregation</code> or
+ *   <code>newscast</code>
+ */
+static String[] network(String protocol, int size)
+{
+	if (protocol.equals("aggregation"))
+		return new String[] {
+			"network.size", "" + size,
+			"protocol.lnk", "peersim.core.IdleProtocol",
+			"protocol.prot", "example.aggregation.AverageFunction",
+			"protocol.prot.linkable", "lnk",
+			"init.rnd", "peersim.dynamics.WireKOut",
+			"init.rnd.protocol", "lnk",
+			"init.rnd.k", "20",
+			"init.vals", "peersim.vector.LinearDistribution",
+			"init.vals.protocol", "prot",
+			"init.vals.max", "100",
+			"init.vals.min", "1" };
+	if (protocol.equals("newscast"))
+		return new String[] {
+			"network.size", "" + size,
+			"protocol.lnk", "example.newscast.SimpleNewscast",
+			"protocol.lnk.cache", "20",
+			"protocol.prot", "example.aggregation.AverageFunction",
+			"protocol.prot.linkable", "lnk",
+			"init.rnd", "peersim.dynamics.WireKOut",
+			"init.rnd.protocol", "lnk",
+			"init.rnd.k", "20",
+			"init.vals", "peersim.vector.LinearDistribution",
+			"init.vals.protocol", "prot",
+			"init.vals.max", "100",
+			"init.vals.min", "1" };
+	throw new IllegalArgumentException("Unknown protocol " + protocol);
+}
+
+}
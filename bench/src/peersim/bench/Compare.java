@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.bench;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Compares two result files written by JMH in JSON format, typically the
+ * baseline and the results of the current code. For each benchmark found
+ * in both files, it prints the baseline score, the current score and the
+ * relative change; a change is a regression if the score got worse (lower
+ * for throughput, higher for the other modes) by more than the given
+ * tolerance.
+ * <p>
+ * Usage: <code>Compare baseline current [tolerance]</code>, where the
+ * tolerance defaults to 0.1. The exit status is 1 if a regression has been
+ * found, 2 if the files could not be read.
+ */
+public class Compare
+{
+
+//--------------------------------------------------------------------------
+// Methods
+//--------------------------------------------------------------------------
+
+public static void main(String[] args)
+{
+	if (args.length < 2) {
+		System.err.println("Usage: Compare baseline current [tolerance]");
+		System.exit(2);
+	}
+	final double tolerance = (args.length > 2 ?
+			Double.parseDouble(args[2]) : 0.1);
+	Map<String,Map<String,Object>> base, curr;
+	try {
+		base = load(args[0]);
+		curr = load(args[1]);
+	} catch (IOException e) {
+		System.err.println(e.getMessage());
+		System.exit(2);
+		return;
+	}
+
+	boolean regression = false;
+	for (Map.Entry<String,Map<String,Object>> e : curr.entrySet()) {
+		Map<String,Object> b = base.get(e.getKey());
+		if (b == null) {
+			System.out.println(e.getKey() + ": not in baseline");
+			continue;
+		}
+		final double bs = score(b);
+		final double cs = score(e.getValue());
+		// for throughput higher is better, otherwise lower is better
+		final double change = ("thrpt".equals(e.getValue().get("mode")) ?
+				cs - bs : bs - cs) / bs;
+		final boolean worse = change < -tolerance;
+		regression |= worse;
+		System.out.printf("%s: %.3f %.3f %+.1f%%%s%n", e.getKey(), bs, cs,
+				100 * change, worse ? " REGRESSION" : "");
+	}
+	System.exit(regression ? 1 : 0);
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Reads a JMH result file.
+ * @return the results, indexed by the name of the benchmark followed by
+ *   its parameters and mode
+ */
+@SuppressWarnings("unchecked")
+private static Map<String,Map<String,Object>> load(String file)
+		throws IOException
+{
+	StringBuilder sb = new StringBuilder();
+	Reader in = new InputStreamReader(new FileInputStream(file), "UTF-8");
+	try {
+		char[] buf = new char[8192];
+		int n;
+		while ((n = in.read(buf)) > 0)
+			sb.append(buf, 0, n);
+	} finally {
+		in.close();
+	}
+
+	Map<String,Map<String,Object>> results =
+		new TreeMap<String,Map<String,Object>>();
+	Object json;
+	try {
+		json = new Parser(sb).value();
+	} catch (RuntimeException e) {
+		throw new IOException(file + ": " + e.getMessage());
+	}
+	if (!(json instanceof List))
+		throw new IOException(file + ": not a JMH result file");
+	for (Object o : (List<Object>) json) {
+		Map<String,Object> r = (Map<String,Object>) o;
+		StringBuilder key = new StringBuilder((String) r.get("benchmark"));
+		Map<String,Object> params = (Map<String,Object>) r.get("params");
+		if (params != null) {
+			for (Map.Entry<String,Object> p :
+					new TreeMap<String,Object>(params).entrySet())
+				key.append(" ").append(p.getKey()).append("=")
+						.append(p.getValue());
+		}
+		key.append(" ").append(r.get("mode"));
+		results.put(key.toString(), r);
+	}
+	return results;
+}
+
+//--------------------------------------------------------------------------
+
+/** Returns the primary score of a result */
+@SuppressWarnings("unchecked")
+private static double score(Map<String,Object> result)
+{
+	Map<String,Object> m = (Map<String,Object>) result.get("primaryMetric");
+	Object s = m.get("score");
+	return (s instanceof Double ? (Double) s : Double.NaN);
+}
+
+//--------------------------------------------------------------------------
+// Nested classes
+//--------------------------------------------------------------------------
+
+/**
+ * A minimal JSON parser. Objects are returned as maps, arrays as lists,
+ * numbers as doubles.
+ */
+private static class Parser
+{
+
+private final CharSequence s;
+
+private int pos = 0;
+
+Parser(CharSequence s) { this.s = s; }
+
+Object value()
+{
+	skip();
+	if (pos >= s.length())
+		throw error();
+	final char c = s.charAt(pos);
+	if (c == '{') {
+		Map<String,Object> m = new LinkedHashMap<String,Object>();
+		pos++;
+		if (next() == '}') { pos++; return m; }
+		do {
+			String k = string();
+			expect(':');
+			m.put(k, value());
+		} while (more('}'));
+		return m;
+	}
+	if (c == '[') {
+		List<Object> l = new ArrayList<Object>();
+		pos++;
+		if (next() == ']') { pos++; return l; }
+		do {
+			l.add(value());
+		} while (more(']'));
+		return l;
+	}
+	if (c == '"')
+		return string();
+	if (s.subSequence(pos, Math.min(pos + 4, s.length())).equals("null")) {
+		pos += 4;
+		return null;
+	}
+	if (s.subSequence(pos, Math.min(pos + 4, s.length())).equals("true")) {
+		pos += 4;
+		return Boolean.TRUE;
+	}
+	if (s.subSequence(pos, Math.min(pos + 5, s.length())).equals("false")) {
+		pos += 5;
+		return Boolean.FALSE;
+	}
+	final int start = pos;
+	while (pos < s.length() && "+-.eE0123456789".indexOf(s.charAt(pos)) >= 0)
+		pos++;
+	if (start == pos)
+		throw error();
+	return Double.valueOf(s.subSequence(start, pos).toString());
+}
+
+private String string()
+{
+	expect('"');
+	StringBuilder sb = new StringBuilder();
+	char c;
+	while ((c = s.charAt(pos++)) != '"') {
+		if (c == '\\') {
+			c = s.charAt(pos++);
+			switch (c) {
+			case 'n': c = '\n'; break;
+			case 't': c = '\t'; break;
+			case 'r': c = '\r'; break;
+			case 'b': c = '\b'; break;
+			case 'f': c = '\f'; break;
+			case 'u':
+				c = (char) Integer.parseInt(
+						s.subSequence(pos, pos + 4).toString(), 16);
+				pos += 4;
+				break;
+			}
+		}
+		sb.append(c);
+	}
+	return sb.toString();
+}
+
+/** Consumes a separator; returns false if the closing char is found */
+private boolean more(char close)
+{
+	final char c = next();
+	pos++;
+	if (c == ',')
+		return true;
+	if (c != close)
+		throw error();
+	return false;
+}
+
+private void expect(char c)
+{
+	if (next() != c)
+		throw error();
+	pos++;
+}
+
+private char next()
+{
+	skip();
+	if (pos >= s.length())
+		throw error();
+	return s.charAt(pos);
+}
+
+private void skip()
+{
+	while (pos < s.length() && Character.isWhitespace(s.charAt(pos)))
+		pos++;
+}
+
+private RuntimeException error()
+{
+	return new IllegalArgumentException("JSON syntax error at " + pos);
+}
+
+}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import peersim.config.*;
+
+/**
+ * Lookups in the {@link Configuration}, as done by the components when
+ * they are created.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConfigurationBench
+{
+
+@Setup(Level.Trial)
+public void setup()
+{
+	Benchmarks.configure(Benchmarks.network("newscast", 1000));
+}
+
+//--------------------------------------------------------------------------
+
+/** Reads a defined parameter */
+@Benchmark
+public int getInt()
+{
+	return Configuration.getInt("protocol.lnk.cache");
+}
+
+//--------------------------------------------------------------------------
+
+/** Reads a parameter that is not defined, obtaining the default */
+@Benchmark
+public int getIntDefault()
+{
+	return Configuration.getInt("protocol.lnk.missing", 0);
+}
+
+//--------------------------------------------------------------------------
+
+/** Reads a protocol identifier */
+@Benchmark
+public int getPid()
+{
+	return Configuration.getPid("init.rnd.protocol");
+}
+
+//--------------------------------------------------------------------------
+
+/** Reads the name of a protocol */
+@Benchmark
+public String lookupPid()
+{
+	return Configuration.lookupPid(1);
+}
+
+//--------------------------------------------------------------------------
+
+/** Reads the names of the initializers */
+@Benchmark
+public String[] getNames()
+{
+	return Configuration.getNames("init");
+}
+
+}
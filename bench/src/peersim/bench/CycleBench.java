@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import peersim.cdsim.*;
+
+/**
+ * A cycle of a cycle driven simulation, as run by {@link FullNextCycle},
+ * with averaging over a static random graph or over newscast.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CycleBench
+{
+
+/** The protocols: aggregation or newscast */
+@Param({"aggregation", "newscast"})
+public String protocol;
+
+/** The size of the network */
+@Param({"10000"})
+public int size;
+
+private FullNextCycle cycle;
+
+private int count;
+
+//--------------------------------------------------------------------------
+
+@Setup(Level.Trial)
+public void setup()
+{
+	Benchmarks.configure(Benchmarks.network(protocol, size));
+	Benchmarks.init();
+	cycle = new FullNextCycle(" ");
+	count = 0;
+}
+
+//--------------------------------------------------------------------------
+
+@Benchmark
+public boolean nextCycle()
+{
+	CDState.setCycle(count++);
+	return cycle.execute();
+}
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import peersim.config.*;
+import peersim.core.*;
+import peersim.graph.*;
+
+/**
+ * Traversal of the overlay network through {@link OverlayGraph} and
+ * {@link GraphAlgorithms}, as done by the graph observers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GraphBench
+{
+
+/** The size of the network */
+@Param({"10000"})
+public int size;
+
+private Graph g;
+
+private final GraphAlgorithms ga = new GraphAlgorithms();
+
+private int next = 0;
+
+//--------------------------------------------------------------------------
+
+@Setup(Level.Trial)
+public void setup()
+{
+	Benchmarks.configure(Benchmarks.network("aggregation", size));
+	Benchmarks.init();
+	g = new OverlayGraph(Configuration.lookupPid("lnk"));
+}
+
+//--------------------------------------------------------------------------
+
+/** Visits the neighbours of all nodes */
+@Benchmark
+public void neighbours(Blackhole bh)
+{
+	for (int i = 0; i < g.size(); ++i) {
+		for (Integer j : g.getNeighbours(i))
+			bh.consume(j);
+	}
+}
+
+//--------------------------------------------------------------------------
+
+/** Breadth first search from a node */
+@Benchmark
+public int[] dist()
+{
+	ga.dist(g, next++ % g.size());
+	return ga.d;
+}
+
+//--------------------------------------------------------------------------
+
+/** Search for the weakly connected clusters */
+@Benchmark
+public Object weaklyConnectedClusters()
+{
+	return ga.weaklyConnectedClusters(g);
+}
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import peersim.core.*;
+
+/**
+ * Creation of the network by {@link Network#reset}, that is, cloning the
+ * prototype node and its protocols.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NetworkBench
+{
+
+/** The protocols: aggregation or newscast */
+@Param({"aggregation", "newscast"})
+public String protocol;
+
+/** The size of the network */
+@Param({"1000", "100000"})
+public int size;
+
+//--------------------------------------------------------------------------
+
+@Setup(Level.Trial)
+public void setup()
+{
+	Benchmarks.configure(Benchmarks.network(protocol, size));
+}
+
+//--------------------------------------------------------------------------
+
+@Benchmark
+public int reset()
+{
+	Network.reset();
+	return Network.size();
+}
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import peersim.config.*;
+import peersim.core.*;
+import peersim.edsim.*;
+
+/**
+ * Event queue operations under the hold model: the queue contains a fixed
+ * number of events, and each operation removes the first event and adds a
+ * new one, scheduled after a random delay. This is what the queue of an
+ * event driven simulation does in steady state.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PriorityQBench
+{
+
+/** Number of precomputed delays; must be a power of 2 */
+private static final int DELAYS = 1 << 16;
+
+/** The class of the queue */
+@Param({"peersim.edsim.Heap"})
+public String queue;
+
+/** The number of events in the queue */
+@Param({"1000", "100000"})
+public int size;
+
+/** The distribution of delays: uniform or exponential */
+@Param({"uniform", "exponential"})
+public String delay;
+
+private PriorityQ q;
+
+/** The precomputed delays, with average 1000 */
+private final long[] delays = new long[DELAYS];
+
+private int next = 0;
+
+//--------------------------------------------------------------------------
+
+@Setup(Level.Trial)
+public void setup()
+{
+	Benchmarks.configure("queue", queue);
+	q = (PriorityQ) Configuration.getInstance("queue");
+	for (int i = 0; i < DELAYS; ++i) {
+		if (delay.equals("uniform"))
+			delays[i] = CommonState.r.nextInt(2000);
+		else
+			delays[i] = (long) (-1000 * Math.log(1 - CommonState.r.nextDouble()));
+	}
+	for (int i = 0; i < size; ++i)
+		q.add(delays[i & (DELAYS - 1)], null, null, (byte) 0);
+}
+
+//--------------------------------------------------------------------------
+
+@Benchmark
+public long hold()
+{
+	final long time = q.removeFirst().time;
+	q.add(time + delays[next++ & (DELAYS - 1)], null, null, (byte) 0);
+	return time;
+}
+
+}
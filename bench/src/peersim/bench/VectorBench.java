@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import peersim.core.*;
+import peersim.vector.*;
+
+/**
+ * Reflective access to the values held by the protocols through
+ * {@link Getter} and {@link Setter}, as done by the vector controls.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VectorBench
+{
+
+/** The size of the network */
+@Param({"10000"})
+public int size;
+
+private Getter getter;
+
+private Setter setter;
+
+//--------------------------------------------------------------------------
+
+@Setup(Level.Trial)
+public void setup()
+{
+	String[] net = Benchmarks.network("aggregation", size);
+	String[] props = new String[net.length + 2];
+	System.arraycopy(net, 0, props, 0, net.length);
+	props[net.length] = "vector.protocol";
+	props[net.length + 1] = "prot";
+	Benchmarks.configure(props);
+	Benchmarks.init();
+	getter = new Getter("vector", "protocol", "getter");
+	setter = new Setter("vector", "protocol", "setter");
+}
+
+//--------------------------------------------------------------------------
+
+/** Reads the values of all nodes */
+@Benchmark
+public double get()
+{
+	double sum = 0;
+	for (int i = 0; i < Network.size(); ++i)
+		sum += getter.getDouble(i);
+	return sum;
+}
+
+//--------------------------------------------------------------------------
+
+/** Writes the values of all nodes */
+@Benchmark
+public void set()
+{
+	for (int i = 0; i < Network.size(); ++i)
+		setter.set(i, (double) i);
+}
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.extras.am.epidemic;
+
+import peersim.core.*;
+
+/**
+ * A gossip protocol whose messages can be reused. Instead of returning a
+ * new message for each exchange, it fills a message allocated once by
+ * {@link #newMessage}. {@link CDEpidemicManager} uses these methods in
+ * place of the ones of {@link EpidemicProtocol}; a message is passed to
+ * {@link #merge} before being filled again, so it must not be stored.
+ * 
+ * @version $Revision$
+ */
+public interface BufferedEpidemicProtocol extends EpidemicProtocol
+{
+
+/**
+ * Returns a new message, that will be filled by
+ * {@link #prepareRequest(Node, Node, Message)} and
+ * {@link #prepareResponse(Node, Node, Message, Message)}.
+ */
+public Message newMessage();
+
+/**
+ * Fills the given message with an active-thread initiated request for the
+ * specified node.
+ * 
+ * @param lnode
+ * 					the local node on which this method is invoked
+ * @param rnode
+ *          the remote node for which the request is generated
+ * @param buffer
+ *          the message to fill
+ * @return false if no request has to be sent
+ */
+public boolean prepareRequest(Node lnode, Node rnode, Message buffer);
+
+/**
+ * Fills the given message with a passive-thread response for the specified
+ * node, in response to the specified request.
+ * 
+ * @param lnode
+ * 					the local node on which this method is invoked
+ * @param rnode
+ *          the remote node for which the response is generated
+ * @param request
+ *          the request message
+ * @param buffer
+ *          the message to fill
+ * @return false if no response has to be sent
+ */
+public boolean prepareResponse(Node lnode, Node rnode, Message request,
+		Message buffer);
+
+}
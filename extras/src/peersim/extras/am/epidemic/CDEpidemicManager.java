@@ -21,9 +21,27 @@ package peersim.extras.am.epidemic;
 import peersim.cdsim.*;
 import peersim.config.*;
 import peersim.core.*;
+import peersim.util.PairRounds;
 
 /**
- * 
+ * Runs the exchanges of the {@link EpidemicProtocol}s in the cycle driven
+ * simulator. In each exchange, the initiator selects a peer and sends it a
+ * request; the peer merges the request and sends back a response, that is
+ * merged by the initiator. Whether the messages are lost is decided before
+ * they are prepared, so lost messages are not built at all. If the
+ * protocol is a {@link BufferedEpidemicProtocol}, the messages are filled
+ * in buffers owned by this manager instead of being allocated.
+ * <p>
+ * In batch mode, the exchanges of a whole cycle are run when the manager
+ * is invoked on the first node of the cycle. First each node that is up
+ * selects its peers (in the order of the network), and loss is decided
+ * for all the exchanges; then the exchanges are run, in rounds of pairs
+ * that have no node in common (see {@link PairRounds}). Since the pairs
+ * are selected before any exchange takes place, the result is not the
+ * same as in the normal mode; but it does not depend on the number of
+ * threads running the rounds, provided that the protocols touch only the
+ * state of the two nodes of an exchange and draw no random numbers outside
+ * {@link EpidemicProtocol#selectPeer}.
  * 
  * @author Alberto Montresor
  * @version $Revision$
@@ -47,6 +65,21 @@ private static final String PAR_PROT = "protocol";
  */
 private static final String PAR_LOSS = "loss";
 
+/**
+ * If set, the exchanges of a cycle are run in a batch, as described
+ * above. Not set by default.
+ * @config
+ */
+private static final String PAR_BATCH = "batch";
+
+/**
+ * The number of threads running the exchanges in batch mode. If larger
+ * than 1, batch mode is used even if {@value #PAR_BATCH} is not set.
+ * Defaults to 1.
+ * @config
+ */
+private static final String PAR_THREADS = "threads";
+
 
 // ---------------------------------------------------------------------
 // Fields
@@ -60,6 +93,49 @@ private final float loss;
 /** True if loss probability is zero */
 private final boolean reliable;
 
+/** True if the exchanges are run in batch mode */
+private final boolean batch;
+
+/** Number of threads running the exchanges in batch mode */
+private final int threads;
+
+/** 
+ * The messages of the buffered protocols, by thread; the request and the
+ * response of protocol i are at 2i and 2i+1.
+ */
+private final ThreadLocal<Message[]> buffers = new ThreadLocal<Message[]>() {
+	protected Message[] initialValue()
+	{
+		return new Message[2 * pid.length];
+	}
+};
+
+/** The cycle of the last batch */
+private int batchCycle = -1;
+
+/** The exchanges of the current batch, between node indexes */
+private final PairRounds pairs = new PairRounds();
+
+/** For each exchange of the batch, the initiator */
+private Node[] lnodes = new Node[0];
+
+/** For each exchange of the batch, the selected peer */
+private Node[] rnodes = new Node[0];
+
+/** For each exchange of the batch, the index of the protocol in pid */
+private int[] layers = new int[0];
+
+/** For each exchange of the batch, whether the response is lost */
+private boolean[] lost = new boolean[0];
+
+/** Runs the exchanges of the batch */
+private final PairRounds.Task task = new PairRounds.Task() {
+	public void run(int pair)
+	{
+		exchange(layers[pair], lnodes[pair], rnodes[pair], lost[pair]);
+	}
+};
+
 // ---------------------------------------------------------------------
 // Initialization
 // ---------------------------------------------------------------------
@@ -80,6 +156,11 @@ public CDEpidemicManager(String prefix)
 	// Read other parameters
 	loss = (float) Configuration.getDouble(prefix + "." + PAR_LOSS, 0);
 	reliable = (loss == 0.0);
+	threads = Configuration.getInt(prefix + "." + PAR_THREADS, 1);
+	if (threads < 1)
+		throw new IllegalParameterException(prefix + "." + PAR_THREADS,
+				"must be at least 1");
+	batch = Configuration.contains(prefix + "." + PAR_BATCH) || threads > 1;
 }
 
 /**
@@ -102,45 +183,109 @@ public Object clone()
  */
 public void nextCycle(Node lnode, int protocolID)
 {
+	if (batch) {
+		if (CDState.getCycle() != batchCycle)
+			runBatch();
+		return;
+	}
 	for (int i=0; i < pid.length; i++) {
 		// Select peer; exit if not found
 		EpidemicProtocol lpeer = (EpidemicProtocol) lnode.getProtocol(pid[i]);
 		Node rnode = lpeer.selectPeer(lnode);
 		if (rnode == null ) 
 			continue;
-		EpidemicProtocol rpeer = (EpidemicProtocol) rnode.getProtocol(pid[i]);
-	
-		// Prepare request (in any case, even if the dest is crashed or the
-		// message is lost)
-		Message request = lpeer.prepareRequest(lnode, rnode);
-	  if (request == null)
-			continue;
 	
-		// If node is crashed, stop
+		// If node is crashed or the request is lost, stop
 		if (!rnode.isUp())
 			continue;
-		
-		// If message is lost, stop
 		if (!reliable && CommonState.r.nextFloat() < loss) 
 			continue;
-	
-		// Prepare reply (in any case, even if the dest is crashed or the
-		// message is lost)
-		Message response = rpeer.prepareResponse(rnode, lnode, request);
-
-		// Merge the request to the remote node
-		rpeer.merge(rnode, lnode, request);
 		
-		if (response == null)
+		exchange(i, lnode, rnode,
+				!reliable && CommonState.r.nextFloat() < loss);
+	}
+}
+
+// ---------------------------------------------------------------------
+
+/**
+ * Runs all the exchanges of the current cycle.
+ */
+private void runBatch()
+{
+	batchCycle = CDState.getCycle();
+	final Node current = CommonState.getNode();
+	pairs.clear();
+	for (int j=0; j < Network.size(); j++) {
+		Node lnode = Network.get(j);
+		if (!lnode.isUp())
 			continue;
+		CommonState.setNode(lnode);
+		for (int i=0; i < pid.length; i++) {
+			EpidemicProtocol lpeer = (EpidemicProtocol) lnode.getProtocol(pid[i]);
+			Node rnode = lpeer.selectPeer(lnode);
+			if (rnode == null || !rnode.isUp()) 
+				continue;
+			if (!reliable && CommonState.r.nextFloat() < loss) 
+				continue;
+			int k = pairs.add(lnode.getIndex(), rnode.getIndex());
+			if (k == lnodes.length) {
+				int len = Math.max(16, 2 * k);
+				lnodes = java.util.Arrays.copyOf(lnodes, len);
+				rnodes = java.util.Arrays.copyOf(rnodes, len);
+				layers = java.util.Arrays.copyOf(layers, len);
+				lost = java.util.Arrays.copyOf(lost, len);
+			}
+			lnodes[k] = lnode;
+			rnodes[k] = rnode;
+			layers[k] = i;
+			lost[k] = !reliable && CommonState.r.nextFloat() < loss;
+		}
+	}
+	CommonState.setNode(current);
+	pairs.run(task, threads);
+}
+
+// ---------------------------------------------------------------------
+
+/**
+ * Runs an exchange whose request is delivered.
+ * @param i the index of the protocol in pid
+ * @param lost true if the response is lost, and then not prepared
+ */
+private void exchange(int i, Node lnode, Node rnode, boolean lost)
+{
+	EpidemicProtocol lpeer = (EpidemicProtocol) lnode.getProtocol(pid[i]);
+	EpidemicProtocol rpeer = (EpidemicProtocol) rnode.getProtocol(pid[i]);
+	Message request;
+	Message response = null;
+	if (lpeer instanceof BufferedEpidemicProtocol) {
+		Message[] buf = buffers.get();
+		if (buf[2*i] == null) {
+			buf[2*i] = ((BufferedEpidemicProtocol) lpeer).newMessage();
+			buf[2*i+1] = ((BufferedEpidemicProtocol) lpeer).newMessage();
+		}
+		request = buf[2*i];
+		if (!((BufferedEpidemicProtocol) lpeer).prepareRequest(lnode, rnode,
+				request))
+			return;
+		if (!lost && ((BufferedEpidemicProtocol) rpeer).prepareResponse(
+				rnode, lnode, request, buf[2*i+1]))
+			response = buf[2*i+1];
+	} else {
+		request = lpeer.prepareRequest(lnode, rnode);
+		if (request == null)
+			return;
+		if (!lost)
+			response = rpeer.prepareResponse(rnode, lnode, request);
+	}
+
+	// Merge the request to the remote node
+	rpeer.merge(rnode, lnode, request);
 	
-		// If message is lost, stop
-		if (!reliable && CommonState.r.nextFloat() < loss)
-			continue;
-		
-		// Merge the response to the local node
+	// Merge the response to the local node
+	if (response != null)
 		lpeer.merge(lnode, rnode, response);
-	}
 }
 // ---------------------------------------------------------------------
 }
@@ -24,7 +24,7 @@ import peersim.core.*;
 import peersim.extras.am.epidemic.*;
 
 
-public class EpidemicRumor implements EpidemicProtocol, Infectable
+public class EpidemicRumor implements BufferedEpidemicProtocol, Infectable
 {
 
 //---------------------------------------------------------------------
@@ -125,6 +125,26 @@ public Message prepareResponse(Node lnode, Node rnode, Message request)
 	}
 }
 
+public Message newMessage()
+{
+	return new InfectionMessage(false);
+}
+
+public boolean prepareRequest(Node lnode, Node rnode, Message buffer)
+{
+	if (infected && !pushpull)
+		return false;
+	((InfectionMessage) buffer).setStatus(infected);
+	return true;
+}
+
+public boolean prepareResponse(Node lnode, Node rnode, Message request,
+		Message buffer)
+{
+	((InfectionMessage) buffer).setStatus(infected);
+	return true;
+}
+
 public void merge(Node lnode, Node rnode, Message message)
 {
 	InfectionMessage msg = (InfectionMessage) message;
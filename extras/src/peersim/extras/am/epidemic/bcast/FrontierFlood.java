@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.extras.am.epidemic.bcast;
+
+import peersim.config.*;
+import peersim.core.*;
+
+/**
+ * The same flooding as {@link CDFlood}, where the work done in a cycle is
+ * proportional to the number of nodes that are spreading the infection,
+ * instead of the size of the network.
+ * <p>
+ * The status of all the nodes is kept in two {@link NodeBitSet}s shared
+ * by the instances of this protocol: the infected nodes, and the
+ * <em>frontier</em>, that is the infected nodes that have not yet
+ * contacted their neighbours. This protocol is not a {@link
+ * peersim.cdsim.CDProtocol}: its cycles are run by {@link FrontierFloodCycle},
+ * which must be scheduled once per cycle. As with {@link CDFlood} when
+ * the network is not shuffled, a node infected in a cycle by a node with a
+ * smaller ID spreads the infection in the same cycle. The number of
+ * infected nodes is available at any time without scanning the network;
+ * nodes are removed from the sets when they are removed from the network,
+ * and dead neighbours are not infected, so the count is the same that a
+ * scan of the network would give.
+ */
+public class FrontierFlood implements Protocol, Infectable, Cleanable
+{
+
+private static final String PAR_LINKABLE = "linkable";
+
+private static class ProtocolData
+{
+
+  /** Protocol id */
+  final int pid;  
+  
+  /** Linkable id */
+  final int lid;
+
+  /** The infected nodes */
+  final NodeBitSet infected = new NodeBitSet();
+
+  /** The infected nodes that have not contacted their neighbours yet */
+  final NodeBitSet frontier = new NodeBitSet();
+
+  ProtocolData(String prefix) 
+  {
+  	pid = CommonState.getPid();
+  	lid = Configuration.getPid(prefix + "." + PAR_LINKABLE);
+  }
+
+}
+
+/** The node hosting this protocol */
+final Node node;
+
+/** */
+final ProtocolData p;
+
+public FrontierFlood(String prefix)
+{
+	p = new ProtocolData(prefix);
+	node = CommonState.getNode();
+}
+
+private FrontierFlood(ProtocolData p)
+{
+	this.p = p;
+	node = CommonState.getNode();
+}
+
+public Object clone()
+{
+	return new FrontierFlood(p);
+}
+
+/**
+ * Runs a cycle: each node in the frontier that is up infects its
+ * neighbours and leaves the frontier.
+ */
+public void nextCycle()
+{
+	for (int id = p.frontier.nextSetBit(0); id >= 0;
+			id = p.frontier.nextSetBit(id + 1)) {
+		Node n = p.frontier.get(id);
+		if (!n.isUp())
+			continue;
+		Linkable l = (Linkable) n.getProtocol(p.lid);
+		for (int i=0; i < l.degree(); i++) {
+			Node peer = l.getNeighbor(i);
+			if (peer.getFailState() != Fallible.DEAD && p.infected.add(peer))
+				p.frontier.add(peer);
+		}
+		p.frontier.remove(n);
+	}
+}
+
+public void setInfected(boolean infected)
+{
+	if (infected) {
+		if (p.infected.add(node))
+			p.frontier.add(node);
+	} else {
+		p.infected.remove(node);
+		p.frontier.remove(node);
+	}
+}
+
+/** Removes this node from the infected nodes and the frontier */
+public void onKill()
+{
+	p.infected.remove(node);
+	p.frontier.remove(node);
+}
+
+public boolean isInfected()
+{
+	return p.infected.contains(node);
+}
+
+/** Returns the number of infected nodes */
+public int getInfectedCount()
+{
+	return p.infected.size();
+}
+
+/** Returns the number of infected nodes that are still spreading */
+public int getFrontierCount()
+{
+	return p.frontier.size();
+}
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.extras.am.epidemic.bcast;
+
+import peersim.config.*;
+import peersim.core.*;
+
+/**
+ * Runs a cycle of {@link FrontierFlood}.
+ */
+public class FrontierFloodCycle implements Control
+{
+
+private static final String PAR_PROTOCOL = "protocol";
+
+private final int pid;
+
+public FrontierFloodCycle(String prefix)
+{
+	pid = Configuration.getPid(prefix + "." + PAR_PROTOCOL); 
+}
+
+public boolean execute()
+{
+	if (Network.size() > 0)
+		((FrontierFlood) Network.get(0).getProtocol(pid)).nextCycle();
+	return false;
+}
+
+}
@@ -35,4 +35,9 @@ public boolean getStatus()
 	return status;
 }
 
+public void setStatus(boolean status)
+{
+	this.status = status;
+}
+
 }
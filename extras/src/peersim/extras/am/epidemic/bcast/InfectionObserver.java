@@ -41,11 +41,15 @@ public boolean execute()
 {
 	int count = 0;
 	int size = Network.size();
-	for (int i=0; i < size; i++) {
-		Infectable in = (Infectable) Network.get(i).getProtocol(pid);
-		if (in.isInfected())
-			count++;
-		
+	if (size > 0 && Network.get(0).getProtocol(pid) instanceof FrontierFlood) {
+		// the count is kept up to date by the protocol
+		count = ((FrontierFlood) Network.get(0).getProtocol(pid)).getInfectedCount();
+	} else {
+		for (int i=0; i < size; i++) {
+			Infectable in = (Infectable) Network.get(i).getProtocol(pid);
+			if (in.isInfected())
+				count++;
+		}
 	}
 	System.out.println(prefix + ": " + count); 
 	return false;
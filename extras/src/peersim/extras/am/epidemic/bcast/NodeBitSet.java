@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.extras.am.epidemic.bcast;
+
+import peersim.core.*;
+
+/**
+ * A set of nodes stored as a bit set indexed by node ID, that keeps its
+ * size up to date and remembers the nodes it contains. Node IDs are used
+ * instead of indexes because they do not change when the network is
+ * shuffled or when nodes are removed; they are assumed to be small
+ * non-negative integers, as the ones generated by {@link GeneralNode}.
+ */
+public class NodeBitSet
+{
+
+/** The bits, 64 per word */
+private long[] words = new long[1];
+
+/** The nodes in the set, indexed by ID */
+private Node[] nodes = new Node[64];
+
+/** Number of nodes in the set */
+private int size = 0;
+
+/**
+ * Adds a node to the set.
+ * @return true if the node was not in the set
+ */
+public boolean add(Node node)
+{
+	int id = id(node);
+	if (id >= nodes.length) {
+		int len = Math.max(id + 1, 2 * nodes.length);
+		Node[] n = new Node[(len + 63) & ~63];
+		System.arraycopy(nodes, 0, n, 0, nodes.length);
+		nodes = n;
+		long[] w = new long[n.length >> 6];
+		System.arraycopy(words, 0, w, 0, words.length);
+		words = w;
+	}
+	long bit = 1L << id;
+	if ((words[id >> 6] & bit) != 0)
+		return false;
+	words[id >> 6] |= bit;
+	nodes[id] = node;
+	size++;
+	return true;
+}
+
+/**
+ * Removes a node from the set.
+ * @return true if the node was in the set
+ */
+public boolean remove(Node node)
+{
+	int id = id(node);
+	if (!contains(id))
+		return false;
+	words[id >> 6] &= ~(1L << id);
+	nodes[id] = null;
+	size--;
+	return true;
+}
+
+/** Returns true if the node is in the set */
+public boolean contains(Node node)
+{
+	return contains(id(node));
+}
+
+/** Returns true if the node with the given ID is in the set */
+public boolean contains(int id)
+{
+	return id < nodes.length && (words[id >> 6] & (1L << id)) != 0;
+}
+
+/** Returns the node with the given ID, or null if it is not in the set */
+public Node get(int id)
+{
+	return (id < nodes.length ? nodes[id] : null);
+}
+
+/** Returns the number of nodes in the set */
+public int size()
+{
+	return size;
+}
+
+/**
+ * Returns the smallest ID in the set that is not smaller than the given
+ * one, or -1 if there is none. Empty words are skipped in one step.
+ */
+public int nextSetBit(int from)
+{
+	int w = from >> 6;
+	if (w >= words.length)
+		return -1;
+	long bits = words[w] & (-1L << from);
+	while (bits == 0) {
+		if (++w == words.length)
+			return -1;
+		bits = words[w];
+	}
+	return (w << 6) + Long.numberOfTrailingZeros(bits);
+}
+
+/** Removes all the nodes */
+public void clear()
+{
+	java.util.Arrays.fill(words, 0);
+	java.util.Arrays.fill(nodes, null);
+	size = 0;
+}
+
+private static int id(Node node)
+{
+	long id = node.getID();
+	if (id < 0 || id > Integer.MAX_VALUE - 64)
+		throw new IllegalArgumentException("Node ID out of range: " + id);
+	return (int) id;
+}
+
+}
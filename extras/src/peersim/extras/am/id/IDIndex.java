@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+package peersim.extras.am.id;
+
+import java.util.*;
+import peersim.core.*;
+
+/**
+ * A sorted index of the nodes of the network, based on the identifiers
+ * maintained by a protocol implementing {@link IDHolder}. Identifiers are
+ * read once, when a node enters the index, and stored in a primitive array
+ * parallel to the array of nodes, so that successor queries are binary
+ * searches that do not access the protocols. Nodes with the same
+ * identifier are sorted by their order of insertion, which for
+ * {@link #build} is their index in the network; this is the same order
+ * obtained by sorting the nodes with an {@link IDNodeComparator}.
+ * <p>
+ * The index is not updated automatically when an identifier changes or a
+ * node leaves the network; {@link #add} and {@link #remove} can be used to
+ * keep it up to date under churn, at the cost of shifting the entries that
+ * follow the affected position.
+ *
+ * @version $Revision$
+ */
+public class IDIndex
+{
+
+// ---------------------------------------------------------------------
+// Variables
+// ---------------------------------------------------------------------
+/** IDHolder protocol identifier */
+private final int pid;
+
+/** Sorted identifiers */
+private long[] ids;
+
+/** Nodes, in the order of their identifiers */
+private Node[] nodes;
+
+/** Number of indexed nodes */
+private int size;
+
+// ---------------------------------------------------------------------
+// Initialization
+// ---------------------------------------------------------------------
+/**
+ * Creates an empty index, based on the identifiers maintained by the
+ * specified protocol.
+ */
+public IDIndex(int pid)
+{
+	this.pid = pid;
+	ids = new long[16];
+	nodes = new Node[16];
+}
+
+// ---------------------------------------------------------------------
+// Methods
+// ---------------------------------------------------------------------
+/**
+ * Rebuilds the index from the nodes currently in the network. The
+ * identifiers are sorted in parallel.
+ */
+public void build()
+{
+	int n = Network.size();
+	if (ids.length < n) {
+		ids = new long[n];
+		nodes = new Node[n];
+	} else if (size > n) {
+		Arrays.fill(nodes, n, size, null);
+	}
+	size = 0;
+	for (int i = 0; i < n; i++) {
+		ids[i] = IDUtil.getID(Network.get(i), pid);
+	}
+	Arrays.parallelSort(ids, 0, n);
+	size = n;
+	// Nodes with the same identifier fill their run in network order;
+	// fill[p] counts the nodes already placed in the run starting at p
+	int[] fill = new int[n];
+	for (int i = 0; i < n; i++) {
+		Node node = Network.get(i);
+		int pos = lowerBound(IDUtil.getID(node, pid));
+		nodes[pos + fill[pos]++] = node;
+	}
+}
+
+/**
+ * Returns the number of indexed nodes.
+ */
+public int size()
+{
+	return size;
+}
+
+/**
+ * Returns the identifier at the specified position.
+ */
+public long getID(int pos)
+{
+	return ids[pos];
+}
+
+/**
+ * Returns the node at the specified position.
+ */
+public Node getNode(int pos)
+{
+	return nodes[pos];
+}
+
+/**
+ * Returns the position of the first node whose identifier is larger than
+ * or equal to <code>key</code>, or 0 if there is no such node (that is,
+ * the successor of the key in the ring). If several nodes have
+ * identifier <code>key</code>, any of them may be returned, as with
+ * {@link Arrays#binarySearch(long[], long)}. Returns -1 if the index is
+ * empty.
+ */
+public int successor(long key)
+{
+	if (size == 0)
+		return -1;
+	int pos = Arrays.binarySearch(ids, 0, size, key);
+	if (pos < 0) {
+		pos = -(pos + 1);
+		if (pos == size)
+			pos = 0;
+	}
+	return pos;
+}
+
+/**
+ * Returns the position of the specified node, or -1 if it is not
+ * indexed. The identifier of the node must not have changed since it has
+ * been added.
+ */
+public int indexOf(Node node)
+{
+	long id = IDUtil.getID(node, pid);
+	for (int pos = lowerBound(id); pos < size && ids[pos] == id; pos++) {
+		if (nodes[pos] == node)
+			return pos;
+	}
+	return -1;
+}
+
+/**
+ * Adds a node to the index, after the nodes with the same identifier.
+ * @return the position of the node
+ */
+public int add(Node node)
+{
+	long id = IDUtil.getID(node, pid);
+	if (size == ids.length) {
+		ids = Arrays.copyOf(ids, size * 2);
+		nodes = Arrays.copyOf(nodes, size * 2);
+	}
+	int pos = lowerBound(id);
+	while (pos < size && ids[pos] == id)
+		pos++;
+	System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+	System.arraycopy(nodes, pos, nodes, pos + 1, size - pos);
+	ids[pos] = id;
+	nodes[pos] = node;
+	size++;
+	return pos;
+}
+
+/**
+ * Removes a node from the index. The identifier of the node must not have
+ * changed since it has been added.
+ * @return true if the node was indexed
+ */
+public boolean remove(Node node)
+{
+	int pos = indexOf(node);
+	if (pos < 0)
+		return false;
+	size--;
+	System.arraycopy(ids, pos + 1, ids, pos, size - pos);
+	System.arraycopy(nodes, pos + 1, nodes, pos, size - pos);
+	nodes[size] = null;
+	return true;
+}
+
+/**
+ * Returns the first position whose identifier is larger than or equal to
+ * <code>key</code>, or {@link #size()} if there is none.
+ */
+private int lowerBound(long key)
+{
+	int low = 0;
+	int high = size;
+	while (low < high) {
+		int mid = (low + high) >>> 1;
+		if (ids[mid] < key)
+			low = mid + 1;
+		else
+			high = mid;
+	}
+	return low;
+}
+}
@@ -18,7 +18,7 @@
 
 package peersim.extras.am.id;
 
-import java.util.*;
+import java.util.concurrent.*;
 import peersim.config.*;
 import peersim.core.*;
 
@@ -57,6 +57,16 @@ private final static String PAR_SUCCESSORS = "successors";
  */
 private final static String PAR_NOFINGERS = "nofingers";
 
+/**
+ * String name of the parameter used to specify the number of threads that
+ * compute the fingers. Defaults to the number of available processors.
+ * The topology does not depend on this value.
+ */
+private final static String PAR_THREADS = "threads";
+
+/** Number of nodes whose fingers are computed before they are added */
+private final static int BLOCK = 4096;
+
 // ---------------------------------------------------------------------
 // Configuration Variables
 // ---------------------------------------------------------------------
@@ -71,14 +81,17 @@ private final int successors;
 
 private final boolean nofingers;
 
+/** Number of threads computing the fingers */
+private final int threads;
+
 // ---------------------------------------------------------------------
 // Variables
 // ---------------------------------------------------------------------
-/** Freezed set of nodes */
-private Node[] nodes;
+/** Nodes sorted by identifier */
+private final IDIndex index;
 
-/** Comparator for node ordering */
-private Comparator idc;
+/** Fingers of a block of nodes, -1 for the missing ones */
+private int[] fingers;
 
 // ---------------------------------------------------------------------
 // Initialization
@@ -92,13 +105,12 @@ public WireChordTopology(String prefix)
 	lid = Configuration.getPid(prefix + "." + PAR_LINKABLE);
 	successors = Configuration.getInt(prefix + "." + PAR_SUCCESSORS);
 	nofingers = Configuration.contains(prefix + "." + PAR_NOFINGERS);
-	idc = new IDNodeComparator(pid);
-	// Copy node array
-	int size = Network.size();
-	nodes = new Node[size];
-	for (int i = 0; i < size; i++) {
-		nodes[i] = Network.get(i);
-	}
+	threads = Configuration.getInt(prefix + "." + PAR_THREADS, 
+			Runtime.getRuntime().availableProcessors());
+	if (threads < 1)
+		throw new IllegalParameterException(prefix + "." + PAR_THREADS,
+				"must be at least 1");
+	index = new IDIndex(pid);
 }
 
 // ---------------------------------------------------------------------
@@ -112,40 +124,71 @@ public boolean execute()
 }
 
 /**
- * Builds a chord topology.
+ * Builds a chord topology. The fingers of a block of nodes are computed in
+ * parallel, since they depend only on the index; they are then added to the
+ * linkables by the calling thread, in the same order as a sequential
+ * computation.
  */
 private void buildChordTopology()
 {
-	Arrays.sort(nodes, idc);
-
-	int size = nodes.length;
-	int[] array = new int[ID.BITS];
-	for (int i = 0; i < size; i++) {
-		Linkable link = (Linkable) nodes[i].getProtocol(lid);
-		long lid = getID(i);
-		// Extract fingers
-		if (!nofingers) {
-			for (int j = 0; j < ID.BITS; j++) {
-				long key = (lid + (1L << j)) % ID.SIZE;
-				((IDHolder) Network.prototype.getProtocol(pid)).setID(key);
-				int pos = Arrays.binarySearch(nodes, Network.prototype, idc);
-				if (pos < 0) {
-					pos = -(pos + 1);
-					if (pos == size)
-						pos = 0;
+	index.build();
+	int size = index.size();
+	if (size == 0)
+		return;
+	ForkJoinPool pool = null;
+	if (!nofingers) {
+		if (fingers == null)
+			fingers = new int[BLOCK * ID.BITS];
+		if (threads > 1)
+			pool = new ForkJoinPool(threads);
+	}
+	try {
+		for (int from = 0; from < size; from += BLOCK) {
+			int to = Math.min(from + BLOCK, size);
+			if (!nofingers) {
+				if (pool != null)
+					pool.invoke(new FingerTask(from, from, to));
+				else
+					computeFingers(from, from, to);
+			}
+			for (int i = from; i < to; i++) {
+				Linkable link = (Linkable) index.getNode(i).getProtocol(lid);
+				// Add fingers
+				if (!nofingers) {
+					int base = (i - from) * ID.BITS;
+					for (int j = 0; j < ID.BITS; j++) {
+						if (fingers[base + j] >= 0)
+							link.addNeighbor(index.getNode(fingers[base + j]));
+					}
 				}
-				long rid = getID(pos);
-				long dist = dist(lid, rid);
-				//System.out.println(lid + " " + rid + " " + dist + " " + ID.log2(dist) + " " + j);
-				if (j == ID.log2(dist)) {
-					array[j]++;
-					link.addNeighbor(nodes[pos]);
+				// Extract leafs
+				for (int j = 1; j <= successors; j++) {
+					link.addNeighbor(index.getNode((i + j) % size));
 				}
 			}
 		}
-		// Extract leafs
-		for (int j = 1; j <= successors; j++) {
-			link.addNeighbor(nodes[(i + j) % nodes.length]);
+	} finally {
+		if (pool != null)
+			pool.shutdown();
+	}
+}
+
+/**
+ * Computes the fingers of the nodes at positions <code>from</code> to
+ * <code>to</code> (excluded) of the index. The j-th finger of a node is the
+ * successor of its identifier plus 2^j, if its distance from the node is
+ * between 2^j and 2^(j+1).
+ */
+private void computeFingers(int block, int from, int to)
+{
+	for (int i = from; i < to; i++) {
+		long lid = index.getID(i);
+		int base = (i - block) * ID.BITS;
+		for (int j = 0; j < ID.BITS; j++) {
+			long key = (lid + (1L << j)) % ID.SIZE;
+			int pos = index.successor(key);
+			long dist = dist(lid, index.getID(pos));
+			fingers[base + j] = (j == ID.log2(dist) ? pos : -1);
 		}
 	}
 }
@@ -155,8 +198,33 @@ private long dist(long a, long b)
 	return (b - a + ID.SIZE) % ID.SIZE;
 }
 
-private long getID(int pos)
+/**
+ * Computes the fingers of a range of nodes, splitting it in halves.
+ */
+private class FingerTask extends RecursiveAction
+{
+
+private static final long serialVersionUID = 1L;
+
+private final int block, from, to;
+
+FingerTask(int block, int from, int to)
 {
-	return ((IDHolder) nodes[pos].getProtocol(pid)).getID();
+	this.block = block;
+	this.from = from;
+	this.to = to;
 }
+
+protected void compute()
+{
+	if (to - from <= 256) {
+		computeFingers(block, from, to);
+	} else {
+		int mid = (from + to) >>> 1;
+		invokeAll(new FingerTask(block, from, mid), 
+				new FingerTask(block, mid, to));
+	}
+}
+}
+
 }
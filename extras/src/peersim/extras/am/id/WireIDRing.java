@@ -18,7 +18,6 @@
 
 package peersim.extras.am.id;
 
-import java.util.*;
 import peersim.config.*;
 import peersim.core.*;
 
@@ -67,11 +66,8 @@ private final int degree;
 // ---------------------------------------------------------------------
 // Variables
 // ---------------------------------------------------------------------
-/** Freezed set of nodes */
-private Node[] nodes;
-
-/** Comparator for node ordering */
-private Comparator idc;
+/** Nodes sorted by identifier */
+private final IDIndex index;
 
 // ---------------------------------------------------------------------
 // Initialization
@@ -84,7 +80,7 @@ public WireIDRing(String prefix)
 	pid = Configuration.getPid(prefix + "." + PAR_PROTOCOL);
 	lid = Configuration.getPid(prefix + "." + PAR_LINKABLE);
 	degree = Configuration.getInt(prefix + "." + PAR_SUCCESSORS);
-	idc = new IDNodeComparator(pid);
+	index = new IDIndex(pid);
 }
 
 // ---------------------------------------------------------------------
@@ -93,13 +89,7 @@ public WireIDRing(String prefix)
 // Comment inherited from interface
 public boolean execute()
 {
-	// Copy node array
-	int size = Network.size();
-	nodes = new Node[size];
-	for (int i = 0; i < size; i++) {
-		nodes[i] = Network.get(i);
-	}
-	Arrays.sort(nodes, idc);
+	index.build();
 	buildChordTopology();
 	return false;
 }
@@ -109,18 +99,18 @@ public boolean execute()
  */
 private void buildChordTopology()
 {
-	int size = nodes.length;
+	int size = index.size();
 	for (int i = 0; i < size; i++) {
-		Linkable link = (Linkable) nodes[i].getProtocol(lid);
+		Linkable link = (Linkable) index.getNode(i).getProtocol(lid);
 		// Extract leafs
 		for (int j = 1; j <= degree; j++) {
-			link.addNeighbor(nodes[(i - j + nodes.length) % nodes.length]);
+			link.addNeighbor(index.getNode((i - j + size) % size));
 			// System.out.println(getID(i) + " > " +
-			// getID((i-j+nodes.length)%nodes.length));
+			// getID((i-j+size)%size));
 		}
 		for (int j = 1; j <= degree; j++) {
-			link.addNeighbor(nodes[(i + j) % nodes.length]);
-			// System.out.println(getID(i) + " < " + getID((i+j)%nodes.length));
+			link.addNeighbor(index.getNode((i + j) % size));
+			// System.out.println(getID(i) + " < " + getID((i+j)%size));
 		}
 		link.pack();
 	}
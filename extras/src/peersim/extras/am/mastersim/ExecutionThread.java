@@ -25,189 +25,223 @@ import peersim.*;
 import peersim.core.*;
 import peersim.rangesim.*;
 
-
+/**
+ * An execution slot of a host. It repeatedly takes an experiment from the
+ * job queue and runs it on its host, until all the experiments have been
+ * completed or abandoned. Failed experiments are put back in the queue,
+ * after waiting for a time that grows with the number of consecutive
+ * failures of the host; an experiment that fails {@value #MAX_FAILURES}
+ * times is abandoned. A slot that finds the queue empty waits while
+ * other slots are still running or retrying experiments, so that a failed
+ * experiment can be picked up by a different host.
+ */
 class ExecutionThread extends Thread implements ProcessHandler
 {
 
+/** Number of failures after which an experiment is abandoned */
+static final int MAX_FAILURES = 10;
+
 /** Random number generator to create seeds */
 private static final Random r = new Random();
 
-/** The */
-private File jobdir;
-
-/** The config file representing the job to be executed */
-private File job;
+/** The queue of the experiments to be executed */
+private final JobQueue queue;
 
-/** The mechanism for transferring files */
-private FileTransfer ft;
+/** The host of this slot */
+private final HostDescriptor desc;
 
-/** Available hosts */
-private Heap hosts;
+/** The mechanism for executing the experiments */
+private final JobExecutor executor;
 
 /** The jar files that represents the classpath */
-private File[] jarfiles;
+private final File[] jarfiles;
 
 /** Output directory */
-private File resdir;
+private final File resdir;
 
-/** Id of this thread; needed for logging */
-private int id;
+/** The maximum amount of memory of the JVMs */
+private final String memory;
 
 /** The external process being executed; null otherwise */
-private Process p;
+private volatile Process p;
 
-private Set done;
+/** True if the thread has been stopped */
+private volatile boolean stopped = false;
 
 /** If true, used the RandomSimulator instead of the RangeSimulator */
-private boolean random;
+private final boolean random;
 
 /**
- * 
+ * Creates an execution slot. 
+ * @param queue the shared job queue
+ * @param desc the host executing the experiments
+ * @param executor the mechanism for executing the experiments
+ * @param jarfiles the jar files that represents the classpath
+ * @param resdir the directory where the logs of the experiments are
+ *   written
+ * @param memory the maximum amount of memory of the JVMs
+ * @param random if true, uses the random simulator
  */
-public ExecutionThread(File jobdir, File job, FileTransfer ft,
-		Heap hosts, File[] jarfiles, Set done, File resdir, int id, boolean random)
+public ExecutionThread(JobQueue queue, HostDescriptor desc, 
+		JobExecutor executor, File[] jarfiles, File resdir, String memory,
+		boolean random)
 {
-	this.jobdir = jobdir;
-	this.job = job;
-	this.ft = ft;
-	this.hosts = hosts;
+	this.queue = queue;
+	this.desc = desc;
+	this.executor = executor;
 	this.jarfiles = jarfiles;
-	this.done = done;
 	this.resdir = resdir;
-	this.id = id;
+	this.memory = memory;
 	this.random = random;
 }
 
 public void run()
 {
-	boolean completed = false;
-	while (!completed) {
-		HostDescriptor desc = (HostDescriptor) hosts.removeFirst();
-		
-		
-		// Array list containing the command parameter
-		ArrayList<String> list = new ArrayList<String>(20);
-	
-		// Remote execute a JVM
-		list.add("ssh");
-		list.add("-o");
-		list.add("NumberOfPasswordPrompts=0");
-		list.add(desc.getHostname());
-//		list.add("nice");
-		list.add(desc.getCommand());
-		
-		// Transfer jar files and config files to the destination
-		// and add them to the classpath
-		list.add("-cp");
-		StringBuilder build = new StringBuilder();
-	
-		
-		String[] remotejars = new String[jarfiles.length];
-		for (int i=0; i < jarfiles.length; i++) {
-			if (i!=0) build.append(":");
-			build.append(ft.transfer(done, desc.getHostname(), desc.getDomain(), jarfiles[i]));
+	Job job;
+	while (!stopped && (job = queue.take()) != null) {
+		if (execute(job)) {
+			desc.setCounter(0);
+			queue.done(job);
+		} else if (stopped) {
+			queue.done(job);
+		} else if (++job.failures >= MAX_FAILURES) {
+			System.err.println("Experiment " + job.id + " of " + 
+				job.config.getName() + " abandoned after " + job.failures +
+				" failures");
+			queue.done(job);
+		} else {
+			// back off before the job becomes visible to the other slots,
+			// so that they do not retry it at once on a failing host
+			desc.setCounter(desc.getCounter()+1);
+			try {
+				Thread.sleep(desc.getCounter()*1000);
+			} catch (InterruptedException e) {
+			}
+			queue.retry(job);
 		}
-		list.add(build.toString());
+	}
+}
+
+/**
+ * Executes the specified experiment.
+ * @return true if the experiment was completed
+ */
+private boolean execute(Job job)
+{
+	// Array list containing the command parameter
+	ArrayList<String> list = new ArrayList<String>(20);
+	list.add(desc.getCommand());
+
+	// Transfer jar files and config files to the destination
+	// and add them to the classpath
+	list.add("-cp");
+	StringBuilder build = new StringBuilder();
+	for (int i=0; i < jarfiles.length; i++) {
+		String jar = executor.transfer(desc, jarfiles[i]);
+		if (jar == null)
+			return false;
+		// the command runs on the remote (Unix) host
+		if (i!=0) build.append(":");
+		build.append(jar);
+	}
+	list.add(build.toString());
+
+	// The class to be run in the forked JVM
+	if (random)
+		list.add("peersim.extras.am.randomsim.RandomSimulator");
+	else 
+		list.add("peersim.rangesim.RangeSimulator");
 	
-		// The class to be run in the forked JVM
-		if (random)
-			list.add("peersim.extras.am.randomsim.RandomSimulator");
-		else 
-			list.add("peersim.rangesim.RangeSimulator");
-		
-		// Transfer config file and add the remote string to the
-		// local file
-		list.add(ft.transfer(done, desc.getHostname(), desc.getDomain(), job));
-		
-		// Since multiple experiments are managed here, the value
-		// of standard variable for multiple experiments is changed to 1
-		list.add(Simulator.PAR_EXPS+"=1");
-		//list.add(RandomSimulator.PAR_REXPERIMENTS+"=1");
+	// Transfer config file and add the remote string to the
+	// local file
+	String config = executor.transfer(desc, job.config);
+	if (config == null)
+		return false;
+	list.add(config);
 	
-		// Add the seed
+	// Since multiple experiments are managed here, the value
+	// of standard variable for multiple experiments is changed to 1
+	list.add(Simulator.PAR_EXPS+"=1");
+
+	// Add the seed
+	synchronized (r) {
 		list.add(CommonState.PAR_SEED+"="+r.nextLong());
-		
-		// Max memory for the simulator
-		list.add(RangeSimulator.PAR_JVM+"=-Xmx"+desc.getMemory());
-		
-		// Prepare the argument array for process forking
-		String[] newargs = list.toArray(new String[list.size()]);
-		//System.out.println(list);
-		
-		StringBuffer s = new StringBuffer();
-		for (int i=0; i < list.size(); i++) {
-			s.append(newargs[i]);
-			s.append(" ");
-		}
-		System.out.println(s);
+	}
+	
+	// Max memory for the simulator
+	list.add(RangeSimulator.PAR_JVM+"=-Xmx"+memory);
 	
-		// Execute a new JVM
+	StringBuffer s = new StringBuffer(desc.getHostname());
+	s.append(": ");
+	for (int i=0; i < list.size(); i++) {
+		s.append(list.get(i));
+		s.append(" ");
+	}
+	System.out.println(s);
+
+	// Execute a new JVM
+	synchronized (this) {
+		if (stopped)
+			return false;
 		try {
-			ProcessBuilder pb = new ProcessBuilder(list.toArray(newargs));
-			pb.redirectErrorStream(true);
-			p = pb.start();
+			p = executor.start(desc, list);
 		} catch (IOException e1) {
-			System.err.println("Unable to launch a Java virtual machine");
-			completed = false;
+			System.err.println("Unable to launch a Java virtual machine on " +
+				desc.getHostname());
+			return false;
 		}
+	}
+
+	String jobname = job.config.getName();
+	String baseconfig = jobname.substring(0, jobname.lastIndexOf("."));
+	File outname = new File(resdir, 
+			baseconfig + "." + String.format("%03d", job.id) + ".log");
+	System.out.println(outname);
 	
-		String jobname = job.getName();
-		String baseconfig = jobname.substring(0, jobname.lastIndexOf("."));
-		String outname =
-			resdir + "/" + baseconfig + "." + String.format("%03d", id) + ".log";
-		System.out.println(outname);
-		
-		// Open a file for writing the log
-		PrintStream ps = null;
-		try {
-			ps = new PrintStream(new BufferedOutputStream(
-					new FileOutputStream(outname)));
-		} catch (IOException e) {
-			System.err.println("Unable to open log file");
-			System.exit(1);
-		}
-		ps.println("Executed by " + desc.getHostname());
-		
-		// Read the output from the process and redirect it to System.out
-		// and System.err.
-		BufferedReader toprint = new BufferedReader(
-				new InputStreamReader(p.getInputStream()));
-		String line;
-		int counter = 0;
-		while ((line = getLine(toprint)) != null) {
-			ps.println(line);
-			counter++;
-			if (counter == 5)  {
-				ps.flush();
-				counter = 0;
-			}
-		}
-		try {
-			p.waitFor();
-		} catch (InterruptedException e) { }
-		ps.flush();
+	// Open a file for writing the log
+	PrintStream ps = null;
+	try {
+		ps = new PrintStream(new BufferedOutputStream(
+				new FileOutputStream(outname)));
+	} catch (IOException e) {
+		System.err.println("Unable to open log file");
+		System.exit(1);
+	}
+	ps.println("Executed by " + desc.getHostname());
 	
-		completed = (p.exitValue() == 0); 
-		
-		// The static variable p (used also by ShutdownThread) is back to
-		// null - no process must be killed on shutdown.
-		p = null;
-		
-		if (!completed) {
-			File f = new File(outname);
-			f.delete();
-			desc.setCounter(desc.getCounter()+1);
-			try {
-				Thread.sleep(desc.getCounter()*1000);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-		} else {
-			desc.setCounter(0);
-		}
+	// Read the output from the process and write it to the log
+	BufferedReader toprint = new BufferedReader(
+			new InputStreamReader(p.getInputStream()));
+	String line;
+	while ((line = getLine(toprint)) != null) {
+		ps.println(line);
+	}
+	int exit = -1;
+	try {
+		exit = p.waitFor();
+	} catch (InterruptedException e) { }
+	ps.close();
 
-		hosts.add(desc);
+	// We close all the files and we destroy the process. They are not 
+	// cleaned when the process is closed. See RangeSimulator.
+	try {
+		p.getErrorStream().close();
+		p.getInputStream().close();
+		p.getOutputStream().close();
+	} catch (IOException e) {
+		e.printStackTrace();
+	}
+	p.destroy();
+	
+	// The variable p (used also by ShutdownThread) is back to
+	// null - no process must be killed on shutdown.
+	p = null;
+	
+	if (exit != 0) {
+		outname.delete();
+		return false;
 	}
+	return true;
 }
 
 //--------------------------------------------------------------------
@@ -216,7 +250,6 @@ private static String getLine(BufferedReader toprint)
 {
 	try {
 		String ret = toprint.readLine();
-		//System.out.println(ret);
 		return ret;
 	} catch (IOException e) {
 		e.printStackTrace();
@@ -227,10 +260,105 @@ private static String getLine(BufferedReader toprint)
 //--------------------------------------------------------------------
 
 // Comment inherited from interface
-public void doStop()
+public synchronized void doStop()
+{
+	stopped = true;
+	Process proc = p;
+	if (proc != null) {
+		proc.destroy();
+	}
+	queue.wakeUp();
+}
+
+//--------------------------------------------------------------------
+
+/**
+ * An experiment to be executed.
+ */
+static class Job
+{
+	/** The config file of the experiment */
+	final File config;
+
+	/** The number of the experiment, used to name the log file */
+	final int id;
+
+	/** Number of failed executions; accessed only by the running slot */
+	int failures;
+
+	Job(File config, int id)
+	{
+		this.config = config;
+		this.id = id;
+	}
+}
+
+//--------------------------------------------------------------------
+
+/**
+ * The experiments shared by the slots. Besides the experiments waiting to
+ * be executed, it counts the outstanding ones, that is, those that have
+ * been added and are neither completed nor abandoned; while there are
+ * outstanding experiments, {@link #take} waits for one to be available.
+ */
+static class JobQueue
 {
-	if (p != null) {
-		p.destroy();
+	/** The experiments waiting to be executed */
+	private final LinkedList<Job> jobs = new LinkedList<Job>();
+
+	/** Number of outstanding experiments */
+	private int outstanding = 0;
+
+	/** Adds a new experiment */
+	synchronized void add(Job job)
+	{
+		jobs.add(job);
+		outstanding++;
+		notifyAll();
+	}
+
+	/**
+	 * Returns the next experiment, waiting while the queue is empty and
+	 * some experiment is outstanding.
+	 * @return the experiment, or null if no experiment is outstanding or
+	 *   the calling thread has been woken up by {@link #wakeUp}
+	 */
+	synchronized Job take()
+	{
+		while (jobs.isEmpty()) {
+			if (outstanding == 0)
+				return null;
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				return null;
+			}
+			if (Thread.currentThread() instanceof ExecutionThread &&
+					((ExecutionThread) Thread.currentThread()).stopped)
+				return null;
+		}
+		return jobs.removeFirst();
+	}
+
+	/** Puts back an experiment taken with {@link #take} */
+	synchronized void retry(Job job)
+	{
+		jobs.add(job);
+		notifyAll();
+	}
+
+	/** Records that an experiment has been completed or abandoned */
+	synchronized void done(Job job)
+	{
+		outstanding--;
+		if (outstanding == 0)
+			notifyAll();
+	}
+
+	/** Wakes up the slots waiting for an experiment */
+	synchronized void wakeUp()
+	{
+		notifyAll();
 	}
 }
 
@@ -56,18 +56,53 @@ public String getDomain()
 	return domain;
 }
 
+/**
+ * Returns the amount of memory that can be used by this machine, in bytes.
+ */
+public long getMemoryBytes()
+{
+	return parseMemory(memory);
+}
+
+/**
+ * Parses a line of the host file, with format
+ * <code>hostname memory domain [command]</code>.
+ */
 public HostDescriptor(String linedesc)
 {
-	String[] parts = linedesc.split(" ");
-	if (parts.length != 3 || parts.length != 4) {
-	  hostname = parts[0];
-	  memory = parts[1];
-	  domain = parts[2];
-	  if (parts.length == 4)
-		  command = parts[3];
-	  else 
-		  domain = "java";
-	  counter = 0;
+	String[] parts = linedesc.split("\\s+");
+	if (parts.length != 3 && parts.length != 4) {
+		throw new IllegalArgumentException("Malformed host description: " +
+			linedesc);
+	}
+	hostname = parts[0];
+	memory = parts[1];
+	domain = parts[2];
+	if (parts.length == 4)
+		command = parts[3];
+	else 
+		command = "java";
+	counter = 0;
+}
+
+/**
+ * Parses an amount of memory in the format of the <code>-Xmx</code> option
+ * of the JVM (e.g. <code>512m</code>), returning the number of bytes.
+ */
+public static long parseMemory(String memory)
+{
+	long unit = 1;
+	switch (Character.toLowerCase(memory.charAt(memory.length()-1))) {
+	case 'k': unit = 1L << 10; break;
+	case 'm': unit = 1L << 20; break;
+	case 'g': unit = 1L << 30; break;
+	}
+	String value = (unit == 1 ? memory : memory.substring(0, memory.length()-1));
+	try {
+		return Long.parseLong(value) * unit;
+	} catch (NumberFormatException e) {
+		throw new IllegalArgumentException("Malformed amount of memory: " +
+			memory);
 	}
 }
 
@@ -84,7 +119,7 @@ public int compareTo(HostDescriptor o)
 /**
  * @return Returns the counter.
  */
-public int getCounter()
+public synchronized int getCounter()
 {
 	return counter;
 }
@@ -92,7 +127,7 @@ public int getCounter()
 /**
  * @param counter The counter to set.
  */
-public void setCounter(int counter)
+public synchronized void setCounter(int counter)
 {
 	this.counter = counter;
 }
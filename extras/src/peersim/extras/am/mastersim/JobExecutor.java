@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.extras.am.mastersim;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Executes the JVMs running the experiments of the master simulator on
+ * the hosts. Implementations must be thread-safe, since they are used by
+ * all the execution threads.
+ */
+public interface JobExecutor
+{
+
+/**
+ * Makes the specified file available on the given host.
+ * @param host the host
+ * @param file the local file
+ * @return the path of the file on the host, or null if the file
+ *   could not be made available
+ */
+public String transfer(HostDescriptor host, File file);
+
+/**
+ * Starts the given command on the given host. The standard error of the
+ * process must be redirected to its standard output.
+ * @param host the host
+ * @param cmd the command to be executed, starting with the java command
+ *   of the host
+ * @return the process whose output is the output of the command
+ */
+public Process start(HostDescriptor host, List<String> cmd)
+throws IOException;
+
+}
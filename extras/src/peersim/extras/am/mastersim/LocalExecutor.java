@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.extras.am.mastersim;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Executes the experiments on the local machine. The host names are
+ * ignored, and files are used where they are. This is the default executor
+ * of the master simulator.
+ */
+public class LocalExecutor implements JobExecutor
+{
+
+public LocalExecutor(String prefix)
+{
+}
+
+// Comment inherited from interface
+public String transfer(HostDescriptor host, File file)
+{
+	if (!file.exists()) {
+		throw new IllegalArgumentException("File " + file + " does not exist");
+	}
+	return file.getAbsolutePath();
+}
+
+// Comment inherited from interface
+public Process start(HostDescriptor host, List<String> cmd) throws IOException
+{
+	ProcessBuilder pb = new ProcessBuilder(cmd);
+	pb.redirectErrorStream(true);
+	return pb.start();
+}
+
+}
@@ -19,7 +19,9 @@
 package peersim.extras.am.mastersim;
 
 import java.io.*;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import peersim.*;
 import peersim.config.*;
@@ -29,6 +31,22 @@ import peersim.rangesim.ProcessManager;
  * This class is the main class for the Master Simulator.  
  * This simulator is capable to divide the workload between
  * a specified set of machines.
+ * <p>
+ * The simulator waits for job directories to appear in a source
+ * directory, and executes each of them once, writing the logs in a
+ * directory with the same name in the output directory. A job directory
+ * contains a <code>config</code> file with the parameters of the job, the
+ * configuration files of the simulations (with extension <code>.cfg</code>),
+ * the jar files needed by them (jar files in the source directory are
+ * shared by all jobs), and optionally a <code>hosts</code> file listing
+ * the hosts, one per line, in the format
+ * <code>hostname memory domain [command]</code>.
+ * <p>
+ * The experiments are executed through a {@link JobExecutor}, by default
+ * on the local machine. If no host file is present, the local machine is
+ * used, with one experiment per processor. Each host runs as many
+ * experiments at the same time as fit in its memory, given the
+ * memory required by each experiment.
  *  
  * @author Alberto Montresor
  * @version $Revision$
@@ -42,10 +60,30 @@ public class MasterSimulator
 // --------------------------------------------------------------------------
 
 /**
+ * The {@link FileTransfer} used to copy files to remote hosts. If this
+ * parameter is specified and {@value #PAR_EXECUTOR} is not, experiments
+ * are run through {@link SshExecutor}.
  * @config
  */
 private static final String PAR_FILETRANSFER = "transfer";
 
+/**
+ * The {@link JobExecutor} used to execute the experiments. Defaults to
+ * {@link LocalExecutor}, unless {@value #PAR_FILETRANSFER} is specified.
+ * @config
+ */
+private static final String PAR_EXECUTOR = "executor";
+
+/**
+ * The maximum amount of memory used by each experiment, in the format of
+ * the <code>-Xmx</code> option of the JVM. If not specified, each host
+ * executes one experiment at a time, with all the memory of the host
+ * (except for the local machine without a host file, where
+ * {@value #DEFAULT_MEMORY} is used).
+ * @config
+ */
+private static final String PAR_MEMORY = "memory";
+
 /** 
  * If true, uses the random simulator instead of the range simulator 
  * @config
@@ -71,6 +109,19 @@ private static final ExtensionFilter cfgfilter =
 private static final ExtensionFilter jarfilter = 
 	new ExtensionFilter(".jar");
 
+/** Memory of the experiments on the local machine, if not specified */
+private static final String DEFAULT_MEMORY = "256m";
+
+/** Maximum time between two checks of the source directory, in seconds */
+private static final int POLL = 10;
+
+/** 
+ * Time to wait after a change in the source directory, in milliseconds,
+ * before starting a new job; this is needed to let the job directory
+ * be filled.
+ */
+private static final int SETTLE = 1000;
+
 // --------------------------------------------------------------------------
 // Methods
 // --------------------------------------------------------------------------
@@ -99,16 +150,47 @@ public static void main(String[] args)
 		System.exit(1);
 	}
 
+	// Changes in the source directory are notified by the file system,
+	// if possible; otherwise the directory is polled.
+	WatchService watcher = null;
+	try {
+		watcher = FileSystems.getDefault().newWatchService();
+		srcdir.toPath().register(watcher, 
+				StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY);
+	} catch (IOException e) {
+		System.err.println("Unable to watch " + srcdir + "; polling it");
+		watcher = null;
+	}
+
 	while (true) {
 		String jobname = selectJobDir(srcdir, dstdir);
 		if (jobname != null) 
 			executeJobDir(srcdir, jobname, dstdir);
-		else {
-			try { 
-				Thread.sleep(10000);
-			} catch (InterruptedException e) {
-			}
+		else 
+			waitChanges(watcher);
+	}
+}
+
+/**
+ * Waits until the source directory changes, or at most {@value #POLL}
+ * seconds. After a change, waits until no change happens for
+ * {@value #SETTLE} milliseconds.
+ */
+private static void waitChanges(WatchService watcher)
+{
+	try {
+		if (watcher == null) {
+			Thread.sleep(POLL * 1000);
+			return;
+		}
+		WatchKey key = watcher.poll(POLL, TimeUnit.SECONDS);
+		while (key != null) {
+			key.pollEvents();
+			key.reset();
+			key = watcher.poll(SETTLE, TimeUnit.MILLISECONDS);
 		}
+	} catch (InterruptedException e) {
 	}
 }
 
@@ -156,17 +238,39 @@ private static void executeJobDir(File srcdir, String jobname,
 		return;
 	
 	// Read common configuration parameters
-	FileTransfer ft = (FileTransfer) cc.getInstance(PAR_FILETRANSFER);
+	JobExecutor executor;
+	if (cc.contains(PAR_EXECUTOR))
+		executor = (JobExecutor) cc.getInstance(PAR_EXECUTOR);
+	else if (cc.contains(PAR_FILETRANSFER))
+		executor = new SshExecutor(
+				(FileTransfer) cc.getInstance(PAR_FILETRANSFER));
+	else
+		executor = new LocalExecutor(PAR_EXECUTOR);
 	int random = cc.getInt(PAR_RANDOM, 0);
+	String memory = cc.getString(PAR_MEMORY, null);
 	
 	// Host file: common to all jobs
 	File hostfile = new File(jobsrc, HOSTS);
-	Heap hosts = null;
+	List<HostDescriptor> hosts = null;
 	try {
-		hosts = parseHostFile(hostfile);
+		if (hostfile.exists()) {
+			hosts = parseHostFile(hostfile);
+		} else if (executor instanceof LocalExecutor) {
+			if (memory == null)
+				memory = DEFAULT_MEMORY;
+			long total = HostDescriptor.parseMemory(memory) * 
+				Runtime.getRuntime().availableProcessors();
+			hosts = new ArrayList<HostDescriptor>();
+			hosts.add(new HostDescriptor("localhost " + (total >> 10) + "k " +
+					"localhost"));
+		}
 	} catch (IOException e) {
 		System.err.println("Impossible to execute job " + jobsrc);
 		return;
+	} catch (IllegalArgumentException e) {
+		System.err.println(e.getMessage());
+		System.err.println("Impossible to execute job " + jobsrc);
+		return;
 	}
 	if (hosts == null || hosts.size()==0) {
 		System.out.println("No hosts in " + hostfile);
@@ -180,20 +284,15 @@ private static void executeJobDir(File srcdir, String jobname,
 	System.arraycopy(j1, 0, jarfiles, 0, j1.length);
 	System.arraycopy(j2, 0, jarfiles, j1.length, j2.length);
 	
-	// Domain list
-	Set domains = new HashSet();
-	
-	// Create shutdown thread 
-	// Shutdown-thread management
-	ProcessManager pm = new ProcessManager();
-	Runtime.getRuntime().addShutdownHook(pm);
-	
-	// Start all jobs
+	// Fill the job queue, interleaving the experiments of the
+	// different configuration files
 	File[] jobs = jobsrc.listFiles(cfgfilter);
 	int[] exps = new int[jobs.length];
 	int tot = 0;
 	for (int i = 0; i < jobs.length; i++) {
 		cc = readConfig(jobs[i]);
+		if (cc == null)
+			return;
 		if (random > 0) {
 			exps[i] = random;
 		} else {
@@ -201,19 +300,40 @@ private static void executeJobDir(File srcdir, String jobname,
 		}
   	tot += exps[i];
 	}
+	ExecutionThread.JobQueue queue = new ExecutionThread.JobQueue();
 	while (tot > 0) {
 		for (int i = 0; i < jobs.length; i++) { 
 			if (exps[i] > 0) {
 				exps[i]--;
 				tot--;
-				ExecutionThread t = new ExecutionThread(jobsrc, jobs[i], 
-						ft, hosts, jarfiles, domains, jobdst, tot, random>0);
-				pm.addThread(t);
-				t.start();
+				queue.add(new ExecutionThread.Job(jobs[i], tot));
 			}
 		}
 	}
 	
+	// Create shutdown thread 
+	// Shutdown-thread management
+	ProcessManager pm = new ProcessManager();
+	Runtime.getRuntime().addShutdownHook(pm);
+
+	// Start an execution thread for each experiment that fits in the
+	// memory of each host
+	for (HostDescriptor desc : hosts) {
+		int slots = 1;
+		String mem = desc.getMemory();
+		if (memory != null) {
+			slots = (int) Math.max(1, 
+				desc.getMemoryBytes() / HostDescriptor.parseMemory(memory));
+			mem = memory;
+		}
+		for (int i = 0; i < slots; i++) {
+			ExecutionThread t = new ExecutionThread(queue, desc, executor,
+					jarfiles, jobdst, mem, random > 0);
+			pm.addThread(t);
+			t.start();
+		}
+	}
+	
 	// Wait for all jobs to terminate
 	pm.joinAll();
 	Runtime.getRuntime().removeShutdownHook(pm);
@@ -231,30 +351,23 @@ private static ConfigContainer readConfig(File file)
 }	
 
 /**
- * Read the specified host file and returns an Heap data structure
- * containing them.
+ * Read the specified host file and returns the list of hosts
+ * contained in it.
  * @param file the file to be read
  * @throws IOException
  */
-private static Heap parseHostFile(File file) throws IOException
+private static List<HostDescriptor> parseHostFile(File file) throws IOException
 {
-	Heap hosts = new Heap();
 	List<HostDescriptor> a = new ArrayList<HostDescriptor>();
 	BufferedReader f = new BufferedReader(new FileReader(file));
 	String line;
 	while ((line = f.readLine()) != null) {
 		line = line.trim();
-		if (!line.startsWith("#"))
+		if (line.length() > 0 && !line.startsWith("#"))
 			a.add(new HostDescriptor(line));
 	}
 	f.close();
-
-	int size = a.size();
-	hosts = new Heap(size);
-	for (int i = 0; i < size; i++) {
-		hosts.add(a.get(i));
-	}
-	return hosts;
+	return a;
 }
 
 }
@@ -19,9 +19,17 @@
 package peersim.extras.am.mastersim;
 
 import java.io.*;
+import java.security.*;
 import java.util.*;
+import java.util.concurrent.*;
 
-
+/**
+ * Transfers files using <code>rsync</code> over <code>ssh</code>.
+ * The name of the remote copy of a file is based on the digest of its
+ * content, so identical files (for example, the same jar file in
+ * different jobs) are transferred only once to each domain, while
+ * modified files are always transferred again.
+ */
 public class RsyncFileTransfer implements FileTransfer
 {
 
@@ -51,6 +59,21 @@ private static final String TMP_DEFAULT = ".tmp.";
 /** Temporary directory */
 private final String tmpdir = TMP_DEFAULT;
 
+/** 
+ * Digests of the files, indexed by path; each digest is stored together
+ * with the size and the modification time of the file, in order
+ * to detect changes.
+ */
+private final ConcurrentHashMap<String,String> digests = 
+	new ConcurrentHashMap<String,String>();
+
+/** 
+ * Locks used to transfer each file to each domain at most once, even if
+ * several threads request it at the same time.
+ */
+private final ConcurrentHashMap<String,Object> locks = 
+	new ConcurrentHashMap<String,Object>();
+
 //---------------------------------------------------------------------
 // Initialization
 //---------------------------------------------------------------------
@@ -68,12 +91,32 @@ public String transfer(Set done, String host, String domain, File file)
 		throw new IllegalArgumentException("File " + file + " is a directory");
 	}
 	
-	String tmpfile = createTmpName(domain, file);
-	if (done.contains(tmpfile))
+	String tmpfile = createTmpName(file);
+	if (tmpfile == null)
+		return null;
+	String key = domain + ":" + tmpfile;
+	if (done.contains(key))
 		return tmpfile;
-	else
-		done.add(tmpfile);
-	
+	Object lock = new Object();
+	Object prev = locks.putIfAbsent(key, lock);
+	if (prev != null)
+		lock = prev;
+	synchronized (lock) {
+		if (done.contains(key))
+			return tmpfile;
+		if (!rsync(domain, file, tmpfile))
+			return null;
+		done.add(key);
+	}
+	return tmpfile;
+}
+
+/**
+ * Copies the file to the given remote file.
+ * @return true if the copy was successful
+ */
+private boolean rsync(String domain, File file, String tmpfile)
+{
 	ArrayList<String> list = new ArrayList<String>(20);
 	
 	// Launching mechanism
@@ -97,7 +140,7 @@ public String transfer(Set done, String host, String domain, File file)
 	} catch (IOException e1) {
 		System.err.println("Unable to fork process");
 		System.err.println(e1.getMessage());
-		return null;
+		return false;
 	}
 
 	// Read the output from the process and redirect it to System.out
@@ -119,17 +162,65 @@ public String transfer(Set done, String host, String domain, File file)
 		} catch (InterruptedException e) { }
 	}
 
-	if (ret < 0) {
+	if (ret != 0) {
 		System.err.println("Exit code rsync: " + ret);
-		return null;
+		return false;
 	}
 
-	return tmpfile;
+	return true;
+}
+
+/**
+ * Returns the name of the remote copy of the file, made of the digest of
+ * its content and of its name (needed by the class loaders, that 
+ * recognize jar files by their extension).
+ */
+private String createTmpName(File file)
+{
+	String path = file.getAbsolutePath();
+	String stamp = file.length() + ":" + file.lastModified() + ":";
+	String digest = digests.get(path);
+	if (digest == null || !digest.startsWith(stamp)) {
+		try {
+			digest = stamp + digest(file);
+		} catch (IOException e) {
+			System.err.println("Unable to read " + file);
+			System.err.println(e.getMessage());
+			return null;
+		}
+		digests.put(path, digest);
+	}
+	return tmpdir + digest.substring(stamp.length()) + "." + file.getName();
 }
 
-private String createTmpName(String host, File file)
+/**
+ * Returns the SHA-1 digest of the content of the specified file, in
+ * hexadecimal form.
+ */
+private static String digest(File file) throws IOException
 {
-	return tmpdir + host + file.getAbsolutePath().replace('/','.');
+	MessageDigest md;
+	try {
+		md = MessageDigest.getInstance("SHA-1");
+	} catch (NoSuchAlgorithmException e) {
+		throw new RuntimeException(e);
+	}
+	InputStream in = new FileInputStream(file);
+	try {
+		byte[] buf = new byte[65536];
+		int n;
+		while ((n = in.read(buf)) > 0) {
+			md.update(buf, 0, n);
+		}
+	} finally {
+		in.close();
+	}
+	StringBuffer hex = new StringBuffer();
+	for (byte b : md.digest()) {
+		hex.append(Character.forDigit((b >> 4) & 0xf, 16));
+		hex.append(Character.forDigit(b & 0xf, 16));
+	}
+	return hex.toString();
 }
 
 private static String getLine(BufferedReader toprint)
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.extras.am.mastersim;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Executes the experiments on remote hosts using <code>ssh</code>. Files
+ * are copied to the hosts using a {@link FileTransfer}; each file is
+ * transferred at most once to each domain.
+ */
+public class SshExecutor implements JobExecutor
+{
+
+/** The mechanism for transferring files */
+private final FileTransfer ft;
+
+/** The files already transferred, as required by {@link FileTransfer} */
+private final Set<String> done =
+	Collections.synchronizedSet(new HashSet<String>());
+
+/**
+ * Creates an executor that transfers files with {@link RsyncFileTransfer}.
+ */
+public SshExecutor(String prefix)
+{
+	this(new RsyncFileTransfer(prefix));
+}
+
+/**
+ * Creates an executor that transfers files with the specified mechanism.
+ */
+public SshExecutor(FileTransfer ft)
+{
+	this.ft = ft;
+}
+
+// Comment inherited from interface
+public String transfer(HostDescriptor host, File file)
+{
+	return ft.transfer(done, host.getHostname(), host.getDomain(), file);
+}
+
+// Comment inherited from interface
+public Process start(HostDescriptor host, List<String> cmd) throws IOException
+{
+	ArrayList<String> list = new ArrayList<String>(cmd.size() + 4);
+	list.add("ssh");
+	list.add("-o");
+	list.add("NumberOfPasswordPrompts=0");
+	list.add(host.getHostname());
+	list.addAll(cmd);
+	ProcessBuilder pb = new ProcessBuilder(list);
+	pb.redirectErrorStream(true);
+	return pb.start();
+}
+
+}
@@ -84,6 +84,9 @@ java peersim.rangesim.RangeSimulator config.file jvm.options=-Xmx256m
  * The new JVM inherits the same classpath as the JVM running the
  * RangeSimulator. The {@value #PAR_JVM} parameter can be used to
  * specify additional classpath specification.
+ * <p>
+ * As in {@link RangeSimulator}, parameter {@value #PAR_REUSE} can be used
+ * to run several experiments in the same JVM.
  * 
  * @author Alberto Montresor
  * @version $Revision$
@@ -116,6 +119,14 @@ public static final String PAR_JVM = "jvm.options";
  */
 public static final String PAR_REXPERIMENTS = "simulation.experiments.random";
 
+/**
+ * The maximum number of experiments run by the same JVM; if 0, a JVM
+ * runs any number of experiments. Defaults to 1, that is, a new JVM is
+ * started for each experiment. See {@link SimulatorWorker}.
+ * @config
+ */
+private static final String PAR_REUSE = PAR_RANGE + ".reuse";
+
 // --------------------------------------------------------------------------
 // Static variables
 // --------------------------------------------------------------------------
@@ -138,6 +149,12 @@ private String[] args;
 /** The current process that is executed */
 private Process p;
 
+/** Value of {@value #PAR_REUSE} */
+private int reuse;
+
+/** The JVM running the experiments, if they are run in the same JVM */
+private SimulatorWorker jvm;
+
 
 // --------------------------------------------------------------------------
 // Main
@@ -180,6 +197,11 @@ public RandomSimulator(String[] args)
 	else
 		jvmoptions = opt.split(" ");
 
+	reuse = Configuration.getInt(PAR_REUSE, 1);
+	if (reuse < 0)
+		throw new IllegalParameterException(PAR_REUSE,
+				"should not be negative");
+
 	// Parse range parameters
 	parseRanges();
 
@@ -221,8 +243,13 @@ public void run()
  */
 private void parseRanges()
 {
-	// Get ranges
-	String[] ranges = Configuration.getNames(PAR_RANGE);
+	// Get ranges, skipping the options of the simulator
+	ArrayList<String> tmp = new ArrayList<String>();
+	for (String name : Configuration.getNames(PAR_RANGE)) {
+		if (!name.equals(PAR_REUSE))
+			tmp.add(name);
+	}
+	String[] ranges = tmp.toArray(new String[tmp.size()]);
 	pars = new String[ranges.length];
 	values = new String[ranges.length][];
 	for (int i = 0; i < pars.length; i++) {
@@ -277,6 +304,11 @@ private void doExperiments(String[] args)
 	for (int i=0; i < jvmoptions.length; i++)
 		list.add(jvmoptions[i]);
 	
+	// The JVM reused by the experiments, if any
+	if (reuse != 1)
+		jvm = new SimulatorWorker(list.toArray(new String[list.size()]), reuse);
+	int jvmlen = list.size();
+
 	// The class to be run in the forked JVM
 	list.add("peersim.Simulator");
 	
@@ -331,9 +363,17 @@ private void doExperiments(String[] args)
 
 		System.err.println("Experiment: " + log);
 		
-		executeProcess(list);
+		if (jvm != null) {
+			List<String> sub = list.subList(jvmlen + 1, list.size());
+			if (!jvm.execute(sub.toArray(new String[sub.size()]), System.out))
+				System.err.println("Experiment failed: " + log);
+		} else {
+			executeProcess(list);
+		}
 
 	}
+	if (jvm != null)
+		jvm.close();
 }
 
 //--------------------------------------------------------------------
@@ -443,6 +483,8 @@ public void doStop()
 {
 	if (p != null)
 		p.destroy();
+	if (jvm != null)
+		jvm.doStop();
 }
 
 /**
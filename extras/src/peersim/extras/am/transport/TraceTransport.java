@@ -19,6 +19,8 @@
 package peersim.extras.am.transport;
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
 
 import peersim.config.*;
 import peersim.core.*;
@@ -27,6 +29,25 @@ import peersim.transport.*;
 
 
 /**
+ * A transport layer whose latencies are drawn from measured samples. Each
+ * node is associated with two routers; the latency between two nodes is
+ * drawn uniformly at random among the samples measured between their
+ * routers (trying the other router of each node if no samples are
+ * available for the first pair). Messages whose latency cannot be
+ * determined are dropped.
+ * <p>
+ * The samples of all the pairs of routers are stored in a single
+ * array, indexed by an array of offsets, so that drawing a sample
+ * takes constant time. Two file formats are supported:
+ * <ul>
+ * <li>the original format, written by an <code>ObjectOutputStream</code>:
+ * the number of routers, followed, for each pair of routers
+ * <code>(r,c)</code> with <code>c &lt; r</code> in row order, by the
+ * number of samples and by the samples, all as shorts;</li>
+ * <li>a binary format, produced from the original one by {@link #main},
+ * that is mapped in memory when read from the local file system, so it is
+ * loaded almost instantly and does not use the Java heap.</li>
+ * </ul>
  * This class uses static data structures; in a single configuration
  * file, it can appear at most once.
  *
@@ -60,6 +81,22 @@ private static final String PAR_FILE = "file";
  */
 private static final String PAR_RATIO = "unit";
 
+//---------------------------------------------------------------------
+//Constants
+//---------------------------------------------------------------------
+
+/** Magic number identifying the binary format ("PSTT") */
+private static final int MAGIC = 0x50535454;
+
+/** Version of the binary format */
+private static final int VERSION = 1;
+
+/** 
+ * Size of the header of the binary format: magic number, version,
+ * number of routers, a reserved int and the number of samples (long).
+ */
+private static final int HEADER = 24;
+
 //---------------------------------------------------------------------
 // Static fields
 //---------------------------------------------------------------------
@@ -70,32 +107,27 @@ private static int tid;
 /** Container for PAR_RATIO */
 private static double ratio;
 
-/**
- * True if latency between nodes is considered symmetric. False otherwise.
- */
-private static boolean symm;	
-	
 /**
  * Size of the router network. 
  */
 private static int size;
 
 /**
- * Latency distances between nodes. To save memory, we use integers
- * instead of longs.
+ * Position of the first sample of each pair of routers in
+ * {@link #samples}; the samples of pair <code>p</code> are those between 
+ * <code>offsets[p]</code> (included) and <code>offsets[p+1]</code>
+ * (excluded).
  */
-private static int[][][] array;
+private static IntBuffer offsets;
+
+/** The samples of all the pairs, in file time units */
+private static ShortBuffer samples;
 
 /** 
  * Name of the file containing the measurements. 
  */
 private static String filename;
 
-/** 
- * Prefix for reading parameters 
- */
-private static String prefix;
-
 	
 //---------------------------------------------------------------------
 //Fields
@@ -120,45 +152,175 @@ public TraceTransport(String prefix)
 	ratio = Configuration.getDouble(prefix + "." + PAR_RATIO);
 
 	try {
-		ObjectInputStream in = null;
-		try {
-			in = new ObjectInputStream(
-					new BufferedInputStream(
-							new FileInputStream(filename)));
+		InputStream in;
+		File file = new File(filename);
+		if (file.exists()) {
+			if (isBinary(file)) {
+				System.err.println("TraceTransport: Mapping " + filename + 
+						" from local file system");
+				map(file);
+				return;
+			}
+			in = new FileInputStream(file);
 			System.err.println("TraceTransport: Reading " + filename + " from local file system");
-		} catch (FileNotFoundException e) {
-			in = new ObjectInputStream(
-					new BufferedInputStream(
-							ClassLoader.getSystemResourceAsStream(filename)));
+		} else {
+			in = ClassLoader.getSystemResourceAsStream(filename);
+			if (in == null)
+				throw new IllegalParameterException(prefix + "." + PAR_FILE,
+						"Cannot find " + filename);
 			System.err.println("TraceTransport: Reading " + filename + " through the class loader");
 		}
-	
-		// Read the number of nodes in the file (first four bytes).
-	  int size = in.readShort();
-		System.err.println("TraceTransport: reading " + size + " rows");
-	  
-		// If the file format is not correct, data will be read 
-		// uncorrectly. Probably a good way to spot this is the 
-		// presence of negative delays, or an end of file.
-	
-		// Reading data
-		int count = 0;
-		array = new int[size][][];
-		for (int r=0; r < size; r++) {
-			array[r] = new int[r][];
-			for (int c = 0; c < r; c++) {
-				int len = in.readShort();
-				count++;
-				array[r][c] = new int[len];
-				for (int i=0; i < len; i++) {
-					array[r][c][i] = Math.max(1, (int) ratio*in.readShort());
-				}
-			}
-		}
-		System.err.println("TraceTransport: Read " + count + " entries");
+		in = new BufferedInputStream(in, 1 << 16);
+		in.mark(4);
+		int magic = new DataInputStream(in).readInt();
+		in.reset();
+		if (Integer.reverseBytes(magic) == MAGIC)
+			readBinary(in);
+		else
+			read(new ObjectInputStream(in));
+		in.close();
 	} catch (IOException e) {
 		throw new RuntimeException(e.getMessage());
 	}
+	System.err.println("TraceTransport: Read " + samples.limit() + 
+			" samples");
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Reads the measurements in the original format, storing them in
+ * {@link #offsets} and {@link #samples}.
+ */
+private static void read(ObjectInputStream in) throws IOException
+{
+	// Read the number of nodes in the file (first two bytes).
+	size = in.readShort();
+	System.err.println("TraceTransport: reading " + size + " rows");
+	  
+	// If the file format is not correct, data will be read 
+	// uncorrectly. Probably a good way to spot this is the 
+	// presence of negative delays, or an end of file.
+	int pairs = pairs(size);
+	int[] off = new int[pairs + 1];
+	short[] smp = new short[Math.max(16, pairs)];
+	int count = 0;
+	for (int p = 0; p < pairs; p++) {
+		int len = in.readShort();
+		if (count + len > smp.length) {
+			short[] tmp = new short[Math.max(count + len, smp.length * 2)];
+			System.arraycopy(smp, 0, tmp, 0, count);
+			smp = tmp;
+		}
+		for (int i = 0; i < len; i++) {
+			smp[count++] = in.readShort();
+		}
+		off[p + 1] = count;
+	}
+	offsets = IntBuffer.wrap(off);
+	samples = ShortBuffer.wrap(smp, 0, count).slice();
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns true if the specified file is in the binary format.
+ */
+private static boolean isBinary(File file) throws IOException
+{
+	DataInputStream in = new DataInputStream(new FileInputStream(file));
+	try {
+		return file.length() >= HEADER && 
+				Integer.reverseBytes(in.readInt()) == MAGIC;
+	} finally {
+		in.close();
+	}
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Maps the specified file in the binary format into memory.
+ */
+private static void map(File file) throws IOException
+{
+	FileChannel in = new RandomAccessFile(file, "r").getChannel();
+	try {
+		// the mapping remains valid after the channel is closed
+		setup(in.map(FileChannel.MapMode.READ_ONLY, 0, in.size()));
+	} finally {
+		in.close();
+	}
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Reads the measurements in the binary format from a stream.
+ */
+private static void readBinary(InputStream in) throws IOException
+{
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	byte[] buf = new byte[1 << 16];
+	int n;
+	while ((n = in.read(buf)) > 0) {
+		out.write(buf, 0, n);
+	}
+	byte[] data = out.toByteArray();
+	ByteBuffer bb = ByteBuffer.allocateDirect(data.length);
+	bb.put(data).flip();
+	setup(bb);
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Initializes {@link #offsets} and {@link #samples} from the content of a
+ * file in the binary format.
+ */
+private static void setup(ByteBuffer bb) throws IOException
+{
+	bb.order(ByteOrder.LITTLE_ENDIAN);
+	if (bb.limit() < HEADER || bb.getInt(0) != MAGIC)
+		throw new IOException(filename + " is not a trace file");
+	int version = bb.getInt(4);
+	if (version != VERSION)
+		throw new IOException(filename + 
+				": unsupported trace file version " + version);
+	size = bb.getInt(8);
+	long count = bb.getLong(16);
+	int pairs = pairs(size);
+	long start = HEADER + 4L * (pairs + 1);
+	if (bb.limit() != start + 2 * count)
+		throw new IOException(filename + " is truncated");
+	bb.position(HEADER);
+	bb.limit((int) start);
+	offsets = bb.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+	bb.limit((int) (start + 2 * count));
+	bb.position((int) start);
+	samples = bb.slice().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns the number of pairs of distinct routers.
+ */
+private static int pairs(int size)
+{
+	return (int) ((long) size * (size - 1) / 2);
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns the index of the pair of the specified (distinct) routers.
+ */
+private static int pair(int r1, int r2)
+{
+	int r = Math.max(r1, r2);
+	int c = Math.min(r1, r2);
+	return (int) ((long) r * (r - 1) / 2) + c;
 }
 
 //---------------------------------------------------------------------
@@ -170,10 +332,10 @@ public Object clone()
 {
 	try { 
 		TraceTransport tt = (TraceTransport) super.clone();
-		int r1 = CommonState.r.nextInt(array.length);
+		int r1 = CommonState.r.nextInt(size);
 		int r2 = r1;
 		while (r1 == r2) 
-			r2 = CommonState.r.nextInt(array.length);
+			r2 = CommonState.r.nextInt(size);
 		tt.setRouter(r1, r2);
 		return tt;
 	} catch( CloneNotSupportedException e ) { 
@@ -194,51 +356,41 @@ public void send(Node src, Node dest, Object msg, int pid)
 	long latency = getLatency(src,dest);
 	if (latency > 0) {
 		EDSimulator.add(latency, msg, dest, pid);
-//		System.out.println(latency/1000);
 	} 
-//	else
-//		System.out.println("+");
 }
 
 //---------------------------------------------------------------------
 
 /**
- * 
+ * Returns a latency drawn among the samples of the routers of the two
+ * nodes, or -1 if no samples are available.
  */
 public long getLatency(Node src, Node dest)
 {
 	/* Assuming that the sender corresponds to the source node */
 	TraceTransport sender = (TraceTransport) src.getProtocol(tid);
 	TraceTransport receiver = (TraceTransport) dest.getProtocol(tid);
-	long latency;
-	int r1 = Math.max(sender.router1, receiver.router1);
-	int r2 = Math.min(sender.router1, receiver.router1);
-	if (r1 == r2) {
-		r1 = Math.max(sender.router2, receiver.router2);
-		r2 = Math.min(sender.router2, receiver.router2);
-	}
-	if (r1 == r2 || array[r1][r2].length == 0) {
-		r1 = Math.max(sender.router2, receiver.router1);
-		r2 = Math.min(sender.router2, receiver.router1);
+	int p = -1;
+	if (sender.router1 != receiver.router1)
+		p = pair(sender.router1, receiver.router1);
+	else if (sender.router2 != receiver.router2)
+		p = pair(sender.router2, receiver.router2);
+	if (p < 0 || offsets.get(p) == offsets.get(p + 1)) {
+		p = (sender.router2 == receiver.router1 ? -1 : 
+			pair(sender.router2, receiver.router1));
 	}
-	if (r1 == r2 || array[r1][r2].length == 0) {
-		r1 = Math.max(sender.router1, receiver.router2);
-		r2 = Math.min(sender.router1, receiver.router2);
+	if (p < 0 || offsets.get(p) == offsets.get(p + 1)) {
+		p = (sender.router1 == receiver.router2 ? -1 : 
+			pair(sender.router1, receiver.router2));
 	}
-	
-	
-	// Not nice, just a try
-	
-//	while (r1 == r2 || array[r1][r2].length == 0) {
-//		r1 = (r1+1)%array.length;
-//	}
-	
-	if (r1 == r2 || array[r1][r2].length == 0) {
+	if (p < 0)
 		return -1;
-	} else {
-		int r = CommonState.r.nextInt(array[r1][r2].length);
-		return array[r1][r2][r];
-	}
+	int start = offsets.get(p);
+	int len = offsets.get(p + 1) - start;
+	if (len == 0)
+		return -1;
+	int sample = samples.get(start + CommonState.r.nextInt(len));
+	return Math.max(1, (int) (ratio * sample));
 }
 
 
@@ -253,4 +405,59 @@ public void setRouter(int r1, int r2)
 	this.router2 = r2;
 }
 
+//---------------------------------------------------------------------
+//Conversion
+//---------------------------------------------------------------------
+
+/**
+ * Converts a file in the original format to the binary format.
+ * Usage: <code>TraceTransport infile outfile</code>.
+ */
+public static void main(String[] args) throws IOException
+{
+	if (args.length != 2) {
+		System.err.println("Usage: TraceTransport <infile> <outfile>");
+		System.exit(1);
+	}
+	filename = args[0];
+	ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(
+			new FileInputStream(filename), 1 << 16));
+	read(in);
+	in.close();
+
+	FileChannel out = new FileOutputStream(args[1]).getChannel();
+	try {
+		ByteBuffer header = ByteBuffer.allocate(HEADER).order(
+			ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(0);
+		header.putLong(samples.limit());
+		header.flip();
+		write(out, header);
+		ByteBuffer bb = ByteBuffer.allocate(4 * offsets.limit()).order(
+			ByteOrder.LITTLE_ENDIAN);
+		bb.asIntBuffer().put(offsets);
+		write(out, bb);
+		bb = ByteBuffer.allocate(2 * samples.limit()).order(
+			ByteOrder.LITTLE_ENDIAN);
+		bb.asShortBuffer().put(samples);
+		write(out, bb);
+	} finally {
+		out.close();
+	}
+	System.err.println("TraceTransport: wrote " + size + " routers, " +
+			samples.limit() + " samples");
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Writes the whole content of the buffer to the channel.
+ */
+private static void write(FileChannel out, ByteBuffer bb) throws IOException
+{
+	while (bb.hasRemaining()) {
+		out.write(bb);
+	}
+}
+
 }
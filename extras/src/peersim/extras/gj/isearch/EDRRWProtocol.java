@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.extras.gj.isearch;
+
+import peersim.core.Node;
+
+/**
+ * The event-driven version of {@link RRWProtocol}: queries are random walks
+ * that prefer the neighbours that have not seen them yet.
+ */
+public class EDRRWProtocol extends EDRWProtocol {
+
+    /** Creates a new instance of EDRRWProtocol */
+    public EDRRWProtocol(String prefix) {
+        super(prefix);
+    }
+
+    protected void process(Node node, int pid, QueryMessage mes) {
+        // checks for hits and notifies originator if any:
+        if (this.match(mes.keys))
+            this.notifyOriginator(mes);
+
+        // forwards the message to a random FREE neighbor:
+        Node neighbor = this.selectFreeNeighbor(node, pid, mes);
+        if (neighbor != null)
+            this.forward(node, pid, neighbor, mes);
+    }
+}
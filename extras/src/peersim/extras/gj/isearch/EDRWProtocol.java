@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.extras.gj.isearch;
+
+import peersim.config.Configuration;
+import peersim.config.FastConfig;
+import peersim.core.CommonState;
+import peersim.core.Linkable;
+import peersim.core.Node;
+
+/**
+ * The event-driven version of {@link RWProtocol}: queries are random walks.
+ */
+public class EDRWProtocol extends EDSearchProtocol {
+
+    // ---------------------------------------------------------------------
+    // Parameters
+    // ---------------------------------------------------------------------
+
+    /**
+     * Parameter for the number of walkers at the query initiation. It must be <
+     * then view size. Default is 1.
+     * 
+     * @config
+     */
+    public static final String PAR_WALKERS = "walkers";
+
+    // ---------------------------------------------------------------------
+    // Fields
+    // ---------------------------------------------------------------------
+
+    protected final int walkers;
+
+    /** Creates a new instance of EDRWProtocol */
+    public EDRWProtocol(String prefix) {
+        super(prefix);
+        walkers = Configuration.getInt(prefix + "." + PAR_WALKERS, 1);
+    }
+
+    // "Passive" behaviour implementation: process key similarity and notifies
+    // any match and forwards messages.
+    protected void process(Node node, int pid, QueryMessage mes) {
+        // checks for hits and notifies originator if any:
+        if (this.match(mes.keys))
+            this.notifyOriginator(mes);
+
+        // forwards the message to a random neighbor:
+        Node neighbor = this.getRNDNeighbor(node, pid);
+        if (neighbor != null)
+            this.forward(node, pid, neighbor, mes);
+    }
+
+    // "active" behaviour implementation: makes query
+    protected void start(Node node, int pid, int[] keys) {
+        QueryMessage m = QueryMessage.obtain(node, CommonState.getTime(), keys);
+        // produces the specified number of walkers:
+        Linkable l = (Linkable) node.getProtocol(FastConfig.getLinkable(pid));
+        for (int i = 0; i < this.walkers && i < l.degree(); i++) {
+            this.send(node, pid, l.getNeighbor(i), m);
+        }
+        QueryMessage.release(m);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.extras.gj.isearch;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import peersim.config.Configuration;
+import peersim.core.CommonState;
+import peersim.core.Control;
+import peersim.core.Network;
+
+/**
+ * The version of {@link SearchObserver} for {@link EDSearchProtocol}. It
+ * prints the same statistics, collected from the {@link SeenTable}s of the
+ * nodes; queries that have been forgotten by all the nodes are not reported.
+ * The age of a query is measured in hops, since the time the first node
+ * in the network has seen it.
+ */
+public class EDSearchObserver implements Control {
+
+    // ---------------------------------------------------------------------
+    // Parameters
+    // ---------------------------------------------------------------------
+
+    /**
+     * String name of the parameter used to select the protocol to operate on
+     * 
+     * @config
+     */
+    public static final String PAR_PROT = "protocol";
+
+    /**
+     * String name of the parameter used to set the verbosity level. The default
+     * is 0 (only queries older than the TTL are printed).
+     * 
+     * @config
+     */
+    public static final String PAR_VERBOSITY = "verbosity";
+
+    /**
+     * The time a message takes to make a hop, used to measure the age of the
+     * queries.
+     * Default is 1.
+     * 
+     * @config
+     */
+    public static final String PAR_HOP = "hop";
+
+    // ---------------------------------------------------------------------
+    // Fields
+    // ---------------------------------------------------------------------
+
+    /** The name of this observer in the configuration */
+    protected final String name;
+
+    /** Protocol identifier */
+    protected final int pid;
+
+    protected final int verbosity;
+
+    protected final long hop;
+
+    // ---------------------------------------------------------------------
+    // Initialization
+    // ---------------------------------------------------------------------
+
+    public EDSearchObserver(String name) {
+        this.name = name;
+        pid = Configuration.getPid(name + "." + PAR_PROT);
+        verbosity = Configuration.getInt(name + "." + PAR_VERBOSITY, 0);
+        hop = Configuration.getLong(name + "." + PAR_HOP, 1);
+    }
+
+    // ---------------------------------------------------------------------
+    // Methods
+    // ---------------------------------------------------------------------
+
+    public boolean execute() {
+        final long time = CommonState.getTime();
+        Map<Long, long[]> queries = new TreeMap<Long, long[]>();
+        HashMap<Long, SearchStats> messageStats = new HashMap<Long, SearchStats>();
+        int ttl = 0;
+
+        // first pass: when each query has been started
+        for (int i = 0; i < Network.size(); i++) {
+            EDSearchProtocol prot = (EDSearchProtocol) Network.get(i)
+                    .getProtocol(pid);
+            SeenTable seen = prot.seen;
+            seen.expire(time);
+            ttl = prot.getTtl();
+            for (int j = 0; j < seen.size(); j++) {
+                long[] start = queries.get(seen.getId(j));
+                if (start == null)
+                    queries.put(seen.getId(j), new long[] { seen.getTime(j) });
+                else if (seen.getTime(j) < start[0])
+                    start[0] = seen.getTime(j);
+            }
+        }
+        for (Map.Entry<Long, long[]> e : queries.entrySet()) {
+            int age = (int) ((time - e.getValue()[0]) / hop);
+            messageStats.put(e.getKey(), new SearchStats(e.getKey(), age, ttl));
+        }
+
+        // second pass: copies and hits
+        for (int i = 0; i < Network.size(); i++) {
+            SeenTable seen = ((EDSearchProtocol) Network.get(i).getProtocol(
+                    pid)).seen;
+            for (int j = 0; j < seen.size(); j++) {
+                messageStats.get(seen.getId(j)).update(seen.getCount(j),
+                        seen.isHit(j) ? 1 : 0);
+            }
+        }
+
+        for (Long id : queries.keySet()) {
+            SearchStats stats = messageStats.get(id);
+            if (verbosity == 0 && stats.getAge() < stats.getTtl())
+                continue;
+            System.out.println(name + ": " + time + " " + stats.toString());
+        }
+        return false;
+    }
+}
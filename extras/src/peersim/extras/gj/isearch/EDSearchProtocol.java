@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.extras.gj.isearch;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import peersim.cdsim.CDProtocol;
+import peersim.config.Configuration;
+import peersim.config.FastConfig;
+import peersim.core.Cleanable;
+import peersim.core.CommonState;
+import peersim.core.Linkable;
+import peersim.core.Node;
+import peersim.edsim.EDProtocol;
+import peersim.transport.Transport;
+
+/**
+ * The event-driven version of {@link SearchProtocol}. Queries are
+ * {@link QueryMessage}s sent through the configured transport, and they are
+ * processed as soon as they are delivered. Each node remembers the queries
+ * it has seen in a {@link SeenTable}, whose size is bounded, so that memory
+ * does not grow with the number of queries.
+ * <p>
+ * The queries are started by {@link #nextCycle}, which must be scheduled
+ * with {@link peersim.edsim.CDScheduler}; the cycles of the queries set by
+ * {@link SearchDataInitializer} count the calls to {@link #nextCycle} made
+ * on each node. The neighbours are taken from the linkable protocol, and
+ * the transport from the transport protocol, as configured for
+ * {@link FastConfig}.
+ */
+public abstract class EDSearchProtocol implements EDProtocol<QueryMessage>, CDProtocol,
+        Cleanable, SearchData {
+
+    // ---------------------------------------------------------------------
+    // Parameters
+    // ---------------------------------------------------------------------
+
+    /**
+     * The messages TTL size. Default is 5.
+     * 
+     * @config
+     */
+    public static final String PAR_TTL = "ttl";
+
+    /**
+     * Parameter to choose which key comparation approach is preferred. Default
+     * is OR.
+     * 
+     * @config
+     */
+    public static final String PAR_ANDMATCH = "and_keys";
+
+    /**
+     * The maximum number of queries remembered by a node; when it is reached,
+     * the oldest query is forgotten. Default is 1024.
+     * 
+     * @config
+     */
+    public static final String PAR_SEEN = "seen";
+
+    /**
+     * The time after which a node forgets a query. Default is no limit.
+     * 
+     * @config
+     */
+    public static final String PAR_EXPIRE = "expire";
+
+    // ---------------------------------------------------------------------
+    // Fields
+    // ---------------------------------------------------------------------
+
+    /** The queries seen by this node */
+    public SeenTable seen;
+
+    /** The local node search key storage */
+    protected HashMap<Integer, Integer> keyStorage;
+
+    /** Query distribution data structure; it holds the cycle and a key array. */
+    protected TreeMap<Integer, int[]> queryDistro;
+
+    /** Number of calls to {@link #nextCycle} on this node */
+    protected int cycle;
+
+    /** Counter for the current node extra probing mesages. */
+    protected int extraProbeCounter;
+
+    protected final int ttl;
+
+    protected final boolean andMatch;
+
+    private final int seenSize;
+
+    private final long expire;
+
+    /** Scratch space for {@link #selectFreeNeighbor} */
+    private static int[] perm = new int[16];
+
+    // ---------------------------------------------------------------------
+    // Initialization
+    // ---------------------------------------------------------------------
+
+    public EDSearchProtocol(String prefix) {
+        ttl = Configuration.getInt(prefix + "." + PAR_TTL, 5);
+        andMatch = Configuration.getInt(prefix + "." + PAR_ANDMATCH, 0) == 1;
+        seenSize = Configuration.getInt(prefix + "." + PAR_SEEN, 1024);
+        expire = Configuration.getLong(prefix + "." + PAR_EXPIRE,
+                Long.MAX_VALUE);
+        seen = new SeenTable(seenSize, expire);
+        keyStorage = new HashMap<Integer, Integer>();
+        queryDistro = new TreeMap<Integer, int[]>();
+    }
+
+    public Object clone() {
+        EDSearchProtocol sp = null;
+        try {
+            sp = (EDSearchProtocol) super.clone();
+        } catch (CloneNotSupportedException e) {
+        }
+        sp.seen = new SeenTable(seenSize, expire);
+        sp.keyStorage = new HashMap<Integer, Integer>();
+        sp.queryDistro = new TreeMap<Integer, int[]>();
+        return sp;
+    }
+
+    // ---------------------------------------------------------------------
+    // Methods
+    // ---------------------------------------------------------------------
+
+    // interface EDProtocol:
+    public void processEvent(Node node, int pid, QueryMessage mes) {
+        seen.see(mes.id, CommonState.getTime());
+        process(node, pid, mes);
+        QueryMessage.release(mes);
+    }
+
+    // interface CDProtocol:
+    public void nextCycle(Node node, int pid) {
+        int[] data = pickQueryData();
+        cycle++;
+        if (data != null)
+            start(node, pid, data);
+    }
+
+    /**
+     * It is the equivalent of the passive thread in real setup: it is called
+     * once for each message received. The message is released after this
+     * call, so it must not be stored.
+     * 
+     * @param mes
+     *            The message to process.
+     */
+    protected abstract void process(Node node, int pid, QueryMessage mes);
+
+    /**
+     * It is the equivalent of the active thread in real setup: it is called
+     * when a new query has to be produced.
+     * 
+     * @param keys
+     *            The keys searched for.
+     */
+    protected abstract void start(Node node, int pid, int[] keys);
+
+    /**
+     * Sends a message to a Node. Used by the query originator, that records
+     * that it has seen the query. It takes care to increase the message TTL.
+     * 
+     * @param n
+     *            The node to communicate with.
+     * @param mes
+     *            The message to be sent; it is not modified.
+     */
+    public void send(Node node, int pid, Node n, QueryMessage mes) {
+        seen.mark(mes.id, CommonState.getTime());
+        QueryMessage copy = QueryMessage.obtain(mes);
+        copy.hops++;
+        ((Transport) node.getProtocol(FastConfig.getTransport(pid))).send(
+                node, n, copy, pid);
+    }
+
+    /**
+     * Forwards a message to a node. Used by the nodes along the message path.
+     * It takes care to increase the message TTL and stops forwarding if it is
+     * too high.
+     * 
+     * @param n
+     *            The node to communicate with.
+     * @param mes
+     *            The message to be forwarded; it is not modified.
+     */
+    public void forward(Node node, int pid, Node n, QueryMessage mes) {
+        if (mes.hops < ttl) {
+            QueryMessage copy = QueryMessage.obtain(mes);
+            copy.hops++;
+            ((Transport) node.getProtocol(FastConfig.getTransport(pid))).send(
+                    node, n, copy, pid);
+        }
+    }
+
+    /**
+     * Selects a random node from the linkable protocol of the given node.
+     * 
+     * @return A random picked node, or null if the node has no neighbours.
+     */
+    public Node getRNDNeighbor(Node node, int pid) {
+        Linkable l = (Linkable) node.getProtocol(FastConfig.getLinkable(pid));
+        if (l.degree() == 0)
+            return null;
+        return l.getNeighbor(CommonState.r.nextInt(l.degree()));
+    }
+
+    /**
+     * Selects a node that has not seen the given message, probing the
+     * neighbours in random order. It is used by the restricted protocol
+     * versions. It returns a random node if no free node is available.
+     * 
+     * @param mes
+     *            The message for which the nodes must be "free".
+     * @return A "free" node, or null if the node has no neighbours.
+     */
+    public Node selectFreeNeighbor(Node node, int pid, QueryMessage mes) {
+        Linkable l = (Linkable) node.getProtocol(FastConfig.getLinkable(pid));
+        final int d = l.degree();
+        if (d == 0)
+            return null;
+        // the permutation is drawn lazily, one probe at a time
+        if (perm.length < d)
+            perm = new int[Math.max(d, 2 * perm.length)];
+        for (int i = 0; i < d; i++)
+            perm[i] = i;
+        for (int i = 0; i < d; i++) {
+            final int j = i + CommonState.r.nextInt(d - i);
+            final int k = perm[j];
+            perm[j] = perm[i];
+            perm[i] = k;
+            extraProbeCounter++;
+            Node n = l.getNeighbor(k);
+            if (!((EDSearchProtocol) n.getProtocol(pid)).seen.contains(mes.id))
+                return n;
+        }
+        return l.getNeighbor(perm[0]);
+    }
+
+    /**
+     * Records that the given query matched the keys of this node.
+     */
+    public void notifyOriginator(QueryMessage mes) {
+        seen.hit(mes.id);
+    }
+
+    /**
+     * Performs the actual checks to compare query keys to the protocol own key
+     * storage. It returns if a hit has happended according to the actual
+     * comparison method (AND or OR).
+     * 
+     * @param keys
+     *            The array of keys to be checked, it is extracted from the
+     *            message.
+     * @return If a hit has occurred.
+     */
+    protected boolean match(int[] keys) {
+        int matched = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (this.keyStorage.containsKey(Integer.valueOf(keys[i])))
+                matched++;
+        }
+        return andMatch ? matched == keys.length : matched > 0;
+    }
+
+    /**
+     * Picks the query to be started in the current cycle, if any.
+     * 
+     * @return The set of keys in the query, or null.
+     */
+    protected int[] pickQueryData() {
+        if (queryDistro.isEmpty() || queryDistro.firstKey() != cycle)
+            return null;
+        return queryDistro.remove(cycle);
+    }
+
+    /**
+     * Load the current node query data distribution structure.
+     * 
+     * @param cycle
+     *            The cycle in which perform the query.
+     * @param keys
+     *            The query set.
+     */
+    public void addQueryData(int cycle, int[] keys) {
+        this.queryDistro.put(Integer.valueOf(cycle), keys);
+    }
+
+    /**
+     * Sets the node specific keys collection and their own frequency. Should be
+     * called by the initializer.
+     * 
+     * @param entry
+     *            A mapping from a key to its frequency.
+     */
+    public void addKeyStorage(Map<Integer, Integer> entry) {
+        this.keyStorage.putAll(entry);
+    }
+
+    public int getTtl() {
+        return ttl;
+    }
+
+    public int getExtraProbes() {
+        return extraProbeCounter;
+    }
+
+    // interface Cleanable:
+    public void onKill() {
+        seen.clear();
+        keyStorage.clear();
+        queryDistro.clear();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.extras.gj.isearch;
+
+import java.util.ArrayDeque;
+
+import peersim.core.Node;
+
+/**
+ * A query travelling in the network, used by {@link EDSearchProtocol}. A
+ * query is identified by a number, and each copy of it is a distinct
+ * message. Since a message is dropped as soon as it is processed, messages
+ * are recycled with {@link #obtain} and {@link #release} instead of being
+ * allocated at each hop.
+ */
+public class QueryMessage {
+
+    // ---------------------------------------------------------------------
+    // Fields
+    // ---------------------------------------------------------------------
+
+    /** Source of query identifiers */
+    private static long idGenerator = 0;
+
+    /** Released messages */
+    private static final ArrayDeque<QueryMessage> pool = new ArrayDeque<QueryMessage>();
+
+    /** The query identifier, shared by all its copies */
+    public long id;
+
+    /** Number of hops made by this copy */
+    public int hops;
+
+    /** The time the query has been started */
+    public long start;
+
+    /** The query producer */
+    public Node originator;
+
+    /** The keys searched for; it is shared by all the copies */
+    public int[] keys;
+
+    // ---------------------------------------------------------------------
+    // Initialization
+    // ---------------------------------------------------------------------
+
+    private QueryMessage() {
+    }
+
+    /**
+     * Returns a message for a new query, with a fresh identifier.
+     * 
+     * @param originator
+     *            the query producer
+     * @param start
+     *            the current time
+     * @param keys
+     *            the keys searched for
+     */
+    public static QueryMessage obtain(Node originator, long start, int[] keys) {
+        QueryMessage m = obtain();
+        m.id = ++idGenerator;
+        m.hops = 0;
+        m.start = start;
+        m.originator = originator;
+        m.keys = keys;
+        return m;
+    }
+
+    /**
+     * Returns a copy of the given message.
+     */
+    public static QueryMessage obtain(QueryMessage mes) {
+        QueryMessage m = obtain();
+        m.id = mes.id;
+        m.hops = mes.hops;
+        m.start = mes.start;
+        m.originator = mes.originator;
+        m.keys = mes.keys;
+        return m;
+    }
+
+    private static QueryMessage obtain() {
+        QueryMessage m = pool.poll();
+        return (m == null ? new QueryMessage() : m);
+    }
+
+    /**
+     * Gives the message back to the pool. It must not be used after this
+     * call.
+     */
+    public static void release(QueryMessage mes) {
+        mes.originator = null;
+        mes.keys = null;
+        pool.push(mes);
+    }
+
+    // ---------------------------------------------------------------------
+    // Methods
+    // ---------------------------------------------------------------------
+
+    public String toString() {
+        return "QueryMessage[" + id + "] hops=" + hops;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.extras.gj.isearch;
+
+import java.util.Map;
+
+/**
+ * The data of a search protocol that is set up by
+ * {@link SearchDataInitializer}: the keys held by the node and the queries
+ * it will initiate.
+ */
+public interface SearchData {
+
+    /**
+     * Sets the node specific keys collection and their own frequency.
+     * 
+     * @param entry
+     *            A mapping from a key to its frequency.
+     */
+    public void addKeyStorage(Map<Integer, Integer> entry);
+
+    /**
+     * Schedules a query.
+     * 
+     * @param cycle
+     *            The cycle in which perform the query.
+     * @param keys
+     *            The query set.
+     */
+    public void addQueryData(int cycle, int[] keys);
+
+    /**
+     * Returns the maximum number of hops of a query.
+     */
+    public int getTtl();
+}
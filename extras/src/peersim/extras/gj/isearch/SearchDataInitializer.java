@@ -110,13 +110,13 @@ public class SearchDataInitializer implements Control {
     // ---------------------------------------------------------------------
 
     /**
-     * Fills a {@link SearchProtocol} with the keywords representing the
+     * Fills a {@link SearchData} with the keywords representing the
      * documents it holds. It is called for each node.
      * 
      * @param proto
      *            the protocol instance to initialize
      */
-    private void initializeData(SearchProtocol proto) {
+    private void initializeData(SearchData proto) {
         // create the stored keywords
         // number of keywords held by the node (poisson)
         int storageSize = CommonState.r.nextPoisson(1 + keywords / 1000);
@@ -126,19 +126,19 @@ public class SearchDataInitializer implements Control {
     }
 
     /**
-     * Fills a {@link SearchProtocol} with the queries it will initiate.
+     * Fills a {@link SearchData} with the queries it will initiate.
      * 
      * @param proto
      *            the protocol to initialize
      */
-    private void initializeQueries(SearchProtocol proto) {
+    private void initializeQueries(SearchData proto) {
         int cycle = -1;
         int nqueries = 0;
         while (true) {
 
             cycle += (1 + CommonState.r.nextPoisson(query_interval));
             System.err.println("cycle: " + cycle);
-            if (cycle > (maxCycles - proto.ttl)) {
+            if (cycle > (maxCycles - proto.getTtl())) {
                 System.err
                         .println("Warn: the TTL probably too large for maxCycles...");
                 break;
@@ -199,7 +199,7 @@ public class SearchDataInitializer implements Control {
 
     public boolean execute() {
         for (int i = 0; i < Network.size(); ++i) {
-            SearchProtocol proto = ((SearchProtocol) Network.get(i)
+            SearchData proto = ((SearchData) Network.get(i)
                     .getProtocol(protocolID));
             initializeData(proto);
             if (i < query_nodes)
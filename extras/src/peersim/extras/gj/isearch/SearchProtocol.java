@@ -38,7 +38,8 @@ import peersim.core.Node;
  * 
  * @author Gian Paolo Jesi
  */
-public abstract class SearchProtocol implements CDProtocol, Linkable {
+public abstract class SearchProtocol implements CDProtocol, Linkable,
+        SearchData {
 
     // ---------------------------------------------------------------------
     // Parameters
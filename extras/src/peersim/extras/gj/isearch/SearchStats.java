@@ -41,7 +41,7 @@ public class SearchStats {
     /** Number of extra probes sent on behalf of this query */
     // private int nbExtraProbes;
     /** Sequence number of the message */
-    private int seq;
+    private long seq;
 
     /** Age of this query */
     private int age;
@@ -53,7 +53,7 @@ public class SearchStats {
     // Initialization
     // ---------------------------------------------------------------------
 
-    public SearchStats(int seq, int age, int ttl) {
+    public SearchStats(long seq, int age, int ttl) {
         this.nbSeen = 0;
         this.nbHits = 0;
         this.nbMessages = 0;
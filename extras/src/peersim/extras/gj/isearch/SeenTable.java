@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.extras.gj.isearch;
+
+/**
+ * The queries seen by a node, with bounded memory. For each query, it holds
+ * the number of copies received, the time it was first seen and whether it
+ * matched the keys of the node. Entries are kept in the order they were
+ * inserted, and the oldest entries are evicted when they are older than a
+ * given time, or when the table is full; the cost of all operations is
+ * constant.
+ * 
+ * @see EDSearchProtocol
+ */
+public class SeenTable implements Cloneable {
+
+    // ---------------------------------------------------------------------
+    // Fields
+    // ---------------------------------------------------------------------
+
+    /** Query ids, in a circular buffer ordered by insertion */
+    private long[] ids;
+
+    /** Number of copies received, parallel to ids */
+    private int[] counts;
+
+    /** Time of insertion, parallel to ids */
+    private long[] times;
+
+    /** Whether the query matched, parallel to ids */
+    private boolean[] hits;
+
+    /** Position of the oldest entry */
+    private int head = 0;
+
+    /** Number of entries */
+    private int size = 0;
+
+    /**
+     * Hash index of the entries with linear probing: position in the
+     * circular buffer plus one, 0 if empty.
+     */
+    private int[] index;
+
+    /** Entries older than this are evicted */
+    private final long expire;
+
+    // ---------------------------------------------------------------------
+    // Initialization
+    // ---------------------------------------------------------------------
+
+    /**
+     * Creates an empty table.
+     * 
+     * @param capacity
+     *            the maximum number of entries
+     * @param expire
+     *            the time after which an entry is evicted
+     */
+    public SeenTable(int capacity, long expire) {
+        ids = new long[capacity];
+        counts = new int[capacity];
+        times = new long[capacity];
+        hits = new boolean[capacity];
+        index = new int[Integer.highestOneBit(capacity) << 2];
+        this.expire = expire;
+    }
+
+    public Object clone() {
+        SeenTable t = null;
+        try {
+            t = (SeenTable) super.clone();
+        } catch (CloneNotSupportedException e) {
+        }
+        t.ids = ids.clone();
+        t.counts = counts.clone();
+        t.times = times.clone();
+        t.hits = hits.clone();
+        t.index = index.clone();
+        return t;
+    }
+
+    // ---------------------------------------------------------------------
+    // Methods
+    // ---------------------------------------------------------------------
+
+    /**
+     * Records that a copy of the given query has been received, inserting
+     * it if needed.
+     * 
+     * @param now
+     *            the current time
+     * @return the number of copies received so far
+     */
+    public int see(long id, long now) {
+        int p = find(id);
+        if (p >= 0)
+            return ++counts[p];
+        p = insert(id, now);
+        return counts[p] = 1;
+    }
+
+    /**
+     * Records that the given query is known, inserting it with one copy
+     * if needed.
+     * 
+     * @param now
+     *            the current time
+     */
+    public void mark(long id, long now) {
+        if (find(id) < 0)
+            counts[insert(id, now)] = 1;
+    }
+
+    /**
+     * Records that the given query matched, if it is in the table.
+     */
+    public void hit(long id) {
+        final int p = find(id);
+        if (p >= 0)
+            hits[p] = true;
+    }
+
+    /** Returns true if the given query is in the table */
+    public boolean contains(long id) {
+        return find(id) >= 0;
+    }
+
+    /**
+     * Evicts the entries that are older than the expiration time.
+     * 
+     * @param now
+     *            the current time
+     */
+    public void expire(long now) {
+        while (size > 0 && now - times[head] > expire)
+            evict();
+    }
+
+    /** Removes all entries */
+    public void clear() {
+        while (size > 0)
+            evict();
+    }
+
+    /** Returns the number of entries */
+    public int size() {
+        return size;
+    }
+
+    /** Returns the id of the i-th oldest entry */
+    public long getId(int i) {
+        return ids[(head + i) % ids.length];
+    }
+
+    /** Returns the number of copies of the i-th oldest entry */
+    public int getCount(int i) {
+        return counts[(head + i) % ids.length];
+    }
+
+    /** Returns the time of insertion of the i-th oldest entry */
+    public long getTime(int i) {
+        return times[(head + i) % ids.length];
+    }
+
+    /** Returns whether the i-th oldest entry matched */
+    public boolean isHit(int i) {
+        return hits[(head + i) % ids.length];
+    }
+
+    // ---------------------------------------------------------------------
+
+    /** Returns the first slot of the index for the given id */
+    private int hash(long id) {
+        return ((int) (id ^ (id >>> 32)) * 0x9E3779B9) & (index.length - 1);
+    }
+
+    /** Returns the position of the given id in the buffer, or -1 */
+    private int find(long id) {
+        final int mask = index.length - 1;
+        for (int h = hash(id); index[h] != 0; h = (h + 1) & mask) {
+            if (ids[index[h] - 1] == id)
+                return index[h] - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Appends a new entry, evicting the expired ones and, if the table is
+     * full, the oldest one.
+     * 
+     * @return its position in the buffer
+     */
+    private int insert(long id, long now) {
+        expire(now);
+        if (size == ids.length)
+            evict();
+        final int p = (head + size++) % ids.length;
+        ids[p] = id;
+        times[p] = now;
+        hits[p] = false;
+        final int mask = index.length - 1;
+        int h = hash(id);
+        while (index[h] != 0)
+            h = (h + 1) & mask;
+        index[h] = p + 1;
+        return p;
+    }
+
+    /**
+     * Removes the oldest entry. The following entries of its cluster in the
+     * index are moved back, so that no deleted markers are needed.
+     */
+    private void evict() {
+        final int mask = index.length - 1;
+        int h = hash(ids[head]);
+        while (index[h] != head + 1)
+            h = (h + 1) & mask;
+        for (int j = (h + 1) & mask; index[j] != 0; j = (j + 1) & mask) {
+            final int k = hash(ids[index[j] - 1]);
+            if ((h <= j) ? (h < k && k <= j) : (h < k || k <= j))
+                continue;
+            index[h] = index[j];
+            h = j;
+        }
+        index[h] = 0;
+        head = (head + 1) % ids.length;
+        size--;
+    }
+}
@@ -21,7 +21,7 @@ package example.aggregation;
 import peersim.core.*;
 import peersim.config.FastConfig;
 import peersim.vector.SingleValueHolder;
-import peersim.cdsim.CDProtocol;
+import peersim.cdsim.PairwiseProtocol;
 
 /**
  * This class provides an implementation for the averaging function in the
@@ -32,11 +32,15 @@ import peersim.cdsim.CDProtocol;
  * Note that this class does not override the clone method, because it does
  * not have any state other than what is inherited from
  * {@link SingleValueHolder}.
+ *
+ * Since an exchange involves only two nodes, this protocol can also be run
+ * in parallel by {@link peersim.cdsim.PairwiseNextCycle}.
  * 
  * @author Alberto Montresor
  * @version $Revision$
  */
-public class AverageFunction extends SingleValueHolder implements CDProtocol {
+public class AverageFunction extends SingleValueHolder implements
+        PairwiseProtocol {
     /**
      * Creates a new {@link example.aggregation.AverageFunction} protocol
      * instance.
@@ -58,6 +62,37 @@ public class AverageFunction extends SingleValueHolder implements CDProtocol {
      *            the id of this protocol in the protocol array.
      */
     public void nextCycle(Node node, int protocolID) {
+        Node peer = selectPeer(node, protocolID);
+        if (peer != null)
+            exchange(node, peer, protocolID, 0);
+    }
+
+    /**
+     * Selects the same neighbor as {@link #nextCycle}, if any.
+     */
+    public void selectExchanges(Node node, int protocolID, Schedule schedule) {
+        Node peer = selectPeer(node, protocolID);
+        if (peer != null)
+            schedule.add(node, peer, 0);
+    }
+
+    /**
+     * Performs a variance reduction step with the given neighbor.
+     */
+    public void exchange(Node node, Node peer, int protocolID, int tag) {
+        AverageFunction neighbor = (AverageFunction) peer
+                .getProtocol(protocolID);
+        double mean = (this.value + neighbor.value) / 2;
+        this.value = mean;
+        neighbor.value = mean;
+    }
+
+    /**
+     * Choses a random neighbor from the underlying {@link Linkable}.
+     * 
+     * @return the neighbor, or null if there is none or it is down.
+     */
+    private Node selectPeer(Node node, int protocolID) {
         int linkableID = FastConfig.getLinkable(protocolID);
         Linkable linkable = (Linkable) node.getProtocol(linkableID);
         if (linkable.degree() > 0) {
@@ -66,14 +101,10 @@ public class AverageFunction extends SingleValueHolder implements CDProtocol {
 
             // Failure handling
             if (!peer.isUp())
-                return;
-
-            AverageFunction neighbor = (AverageFunction) peer
-                    .getProtocol(protocolID);
-            double mean = (this.value + neighbor.value) / 2;
-            this.value = mean;
-            neighbor.value = mean;
+                return null;
+            return peer;
         }
+        return null;
     }
 
 }
@@ -18,6 +18,8 @@
 
 package example.hot;
 
+import java.util.Arrays;
+
 import peersim.config.Configuration;
 import peersim.core.Linkable;
 import peersim.core.Network;
@@ -77,64 +79,239 @@ public class WireInetTopology extends WireGraph {
     }
 
     /**
-     * Performs the actual wiring.
+     * Performs the actual wiring. Each node is connected to the node with
+     * the smallest value of <code>hops + alpha * distance</code> among
+     * those that precede it, where <code>hops</code> is the distance in
+     * hops from the root (node 0); ties are broken in favour of the node
+     * with the smallest index. The candidates are kept in a uniform grid
+     * for each hop distance, so only the cells that can contain a better
+     * candidate are visited.
+     * 
      * @param g a {@link peersim.graph.Graph} interface object to work on.
      */
     public void wire(Graph g) {
-        /** Contains the distance in hops from the root node for each node. */
-        int[] hops = new int[Network.size()];
-        // connect all the nodes other than roots
-        for (int i = 1; i < Network.size(); ++i) {
-            Node n = (Node) g.getNode(i);
-
-            // Look for a suitable parent node between those allready part of
-            // the overlay topology: alias FIND THE MINIMUM!
-            // Node candidate = null;
-            int candidate_index = 0;
-            double min = Double.POSITIVE_INFINITY;
-            for (int j = 0; j < i; j++) {
-                Node parent = (Node) g.getNode(j);
-                double jHopDistance = hops[j];
-
-                double value = jHopDistance
-                        + (alpha * distance(n, parent, coordPid));
-                if (value < min) {
-                    // candidate = parent; // best parent node to connect to
-                    min = value;
-                    candidate_index = j;
-                }
-            }
-
-            hops[i] = hops[candidate_index] + 1;
-            g.setEdge(i, candidate_index);
+        int size = Network.size();
+        if (size == 0)
+            return;
+        double[] x = new double[size];
+        double[] y = new double[size];
+        for (int i = 0; i < size; ++i) {
+            InetCoordinates coord = (InetCoordinates) ((Node) g.getNode(i))
+                    .getProtocol(coordPid);
+            x[i] = coord.getX();
+            y[i] = coord.getY();
+            if (x[i] == -1 || y[i] == -1)
+                throw new RuntimeException(
+                        "Found un-initialized coordinate. Use e.g., InetInitializer class in the config file.");
+        }
+        ParentSearch search = new ParentSearch(x, y, alpha);
+        for (int i = 1; i < size; ++i) {
+            g.setEdge(i, search.connect(i));
         }
     }
 
+    // --------------------------------------------------------------------------
+    // Parent search
+    // --------------------------------------------------------------------------
+
     /**
-     * Utility function: returns the Euclidean distance based on the x,y
-     * coordinates of a node. A {@link RuntimeException} is raised if a not
-     * initialized coordinate is found.
-     * 
-     * @param new_node
-     *            the node to insert in the topology.
-     * @param old_node
-     *            a node already part of the topology.
-     * @param coordPid
-     *            identifier index.
-     * @return the distance value.
+     * Finds the parent of each node, given the parents of the nodes that
+     * precede it. The nodes already connected are partitioned by their
+     * distance in hops from the root; since <code>alpha * distance</code>
+     * is not negative, a level whose hop distance exceeds the best value
+     * found so far cannot contain a better parent, and within a level the
+     * grid is visited in rings of cells of increasing distance until the
+     * distance term alone exceeds the best value. As the coordinates of
+     * all nodes are bounded, the number of levels is bounded by
+     * <code>alpha</code> times the diameter of the area, plus one.
      */
-    private static double distance(Node new_node, Node old_node, int coordPid) {
-        double x1 = ((InetCoordinates) new_node.getProtocol(coordPid))
-                .getX();
-        double x2 = ((InetCoordinates) old_node.getProtocol(coordPid))
-                .getX();
-        double y1 = ((InetCoordinates) new_node.getProtocol(coordPid))
-                .getY();
-        double y2 = ((InetCoordinates) old_node.getProtocol(coordPid))
-                .getY();
-        if (x1 == -1 || x2 == -1 || y1 == -1 || y2 == -1)
-            throw new RuntimeException(
-                    "Found un-initialized coordinate. Use e.g., InetInitializer class in the config file.");
-        return Math.sqrt((x1 - x2) * (x1 - x2) + (y1 - y2) * (y1 - y2));
+    private static final class ParentSearch {
+
+        /**
+         * Relative tolerance applied to the lower bound of the distance of
+         * a ring of cells, so that rounding errors cannot prune a node whose
+         * computed value equals the best one.
+         */
+        private static final double SLACK = 1e-9;
+
+        /** Coordinates of the nodes, indexed by node index. */
+        private final double[] x, y;
+
+        /** The alpha parameter. */
+        private final double alpha;
+
+        /** Bounding box of the coordinates. */
+        private final double minX, minY, width, height;
+
+        /** Distance in hops from the root, for each connected node. */
+        private final int[] hops;
+
+        /** Next node in the same grid cell, for each connected node. */
+        private final int[] next;
+
+        /** Connected nodes grouped by distance in hops. */
+        private Level[] levels = new Level[4];
+
+        /** Number of levels in use. */
+        private int nlevels = 0;
+
+        /** Best value and parent found by the current search. */
+        private double best;
+
+        private int bestIndex;
+
+        ParentSearch(double[] x, double[] y, double alpha) {
+            this.x = x;
+            this.y = y;
+            this.alpha = alpha;
+            double x0 = x[0], x1 = x[0], y0 = y[0], y1 = y[0];
+            for (int i = 1; i < x.length; i++) {
+                x0 = Math.min(x0, x[i]);
+                x1 = Math.max(x1, x[i]);
+                y0 = Math.min(y0, y[i]);
+                y1 = Math.max(y1, y[i]);
+            }
+            minX = x0;
+            minY = y0;
+            width = x1 > x0 ? x1 - x0 : 1;
+            height = y1 > y0 ? y1 - y0 : 1;
+            hops = new int[x.length];
+            next = new int[x.length];
+            add(0, 0);
+        }
+
+        /**
+         * Selects the parent of node <code>i</code>, and adds the node to
+         * the candidate parents of the following nodes.
+         * 
+         * @return the index of the parent
+         */
+        int connect(int i) {
+            best = Double.POSITIVE_INFINITY;
+            bestIndex = -1;
+            for (int h = 0; h < nlevels && h <= best; h++) {
+                if (levels[h] != null)
+                    levels[h].search(i);
+            }
+            add(i, hops[bestIndex] + 1);
+            return bestIndex;
+        }
+
+        private void add(int i, int h) {
+            hops[i] = h;
+            if (h >= levels.length) {
+                Level[] tmp = new Level[Math.max(h + 1, levels.length * 2)];
+                System.arraycopy(levels, 0, tmp, 0, levels.length);
+                levels = tmp;
+            }
+            if (levels[h] == null)
+                levels[h] = new Level(h);
+            nlevels = Math.max(nlevels, h + 1);
+            levels[h].add(i);
+        }
+
+        /**
+         * The nodes at the same distance in hops from the root, kept in a
+         * uniform grid over the bounding box whose resolution grows with the
+         * number of nodes.
+         */
+        private final class Level {
+
+            private final int h;
+
+            private int[] members = new int[4];
+
+            private int count = 0;
+
+            /** Number of cells per side. */
+            private int res = 0;
+
+            /** First node of each cell, or -1. */
+            private int[] head;
+
+            Level(int h) {
+                this.h = h;
+            }
+
+            void add(int i) {
+                if (count == members.length) {
+                    int[] tmp = new int[count * 2];
+                    System.arraycopy(members, 0, tmp, 0, count);
+                    members = tmp;
+                }
+                members[count++] = i;
+                if (count > 4 * res * res) {
+                    rebuild();
+                } else {
+                    link(i);
+                }
+            }
+
+            private void rebuild() {
+                res = Math.max(1, (int) Math.sqrt(count));
+                head = new int[res * res];
+                Arrays.fill(head, -1);
+                for (int k = 0; k < count; k++)
+                    link(members[k]);
+            }
+
+            private void link(int i) {
+                int c = cell(y[i], minY, height) * res
+                        + cell(x[i], minX, width);
+                next[i] = head[c];
+                head[c] = i;
+            }
+
+            private int cell(double v, double min, double extent) {
+                int c = (int) ((v - min) / extent * res);
+                return c < 0 ? 0 : (c >= res ? res - 1 : c);
+            }
+
+            /**
+             * Visits the rings of cells around node <code>i</code>, updating
+             * the best parent, until no cell can contain a better one.
+             */
+            void search(int i) {
+                double px = x[i], py = y[i];
+                double cw = width / res, ch = height / res;
+                int cx = cell(px, minX, width), cy = cell(py, minY, height);
+                for (int r = 0; r < res; r++) {
+                    if (r > 0) {
+                        // lower bound of the distance from any cell of the ring
+                        double bound = Math.min(
+                                Math.min(px - (minX + (cx - r + 1) * cw),
+                                        minX + (cx + r) * cw - px),
+                                Math.min(py - (minY + (cy - r + 1) * ch),
+                                        minY + (cy + r) * ch - py));
+                        if (h + alpha * bound * (1 - SLACK) > best)
+                            return;
+                    }
+                    int x0 = cx - r, x1 = cx + r, y0 = cy - r, y1 = cy + r;
+                    for (int gy = Math.max(y0, 0); gy <= Math.min(y1, res - 1); gy++) {
+                        int row = gy * res;
+                        if (gy == y0 || gy == y1) {
+                            for (int gx = Math.max(x0, 0); gx <= Math.min(x1, res - 1); gx++)
+                                visit(head[row + gx], px, py);
+                        } else {
+                            if (x0 >= 0)
+                                visit(head[row + x0], px, py);
+                            if (x1 < res)
+                                visit(head[row + x1], px, py);
+                        }
+                    }
+                }
+            }
+
+            private void visit(int j, double px, double py) {
+                for (; j >= 0; j = next[j]) {
+                    double dx = px - x[j], dy = py - y[j];
+                    double value = h + (alpha * Math.sqrt(dx * dx + dy * dy));
+                    if (value < best || (value == best && j < bestIndex)) {
+                        best = value;
+                        bestIndex = j;
+                    }
+                }
+            }
+        }
     }
 }
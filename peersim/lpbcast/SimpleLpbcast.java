@@ -82,7 +82,7 @@ private static int F;
 * when necessary
 */
 private final static RandomAccessibleIterator rai =
-	new RandomAccessibleIterator(new ArrayList<Node>());
+	new RandomAccessibleIterator(new NodeView(false));
 
 // =================== fields ==========================================
 // =====================================================================
@@ -92,14 +92,15 @@ private final static RandomAccessibleIterator rai =
 * If null, only subs is used. If not null, then subs will serve only
 * as background storage, and the communication graph will be defined by view
 */
-protected ArrayList<Node> view = null;
+protected NodeView view = null;
 
-protected ArrayList<Node> subs = null;
+protected NodeView subs = null;
 
-protected ArrayList<Node> unSubs = null;
-
-/** timestamps of unsubscriptions. If no timestamps are used, null */
-protected ArrayList<Integer> unSubsDates = null;
+/**
+* Unsubscriptions, dated with their timestamps if timestamps are used
+* (that is, if {@value #PAR_UNSUBSTOUT} is positive).
+*/
+protected NodeView unSubs = null;
 
 
 // ====================== initialization ===============================
@@ -113,10 +114,9 @@ public SimpleLpbcast(String n) {
 	SimpleLpbcast.unSubsSize = Configuration.getInt(n+"."+PAR_UNSUBS);
 	SimpleLpbcast.unSubsTout=Configuration.getInt(n+"."+PAR_UNSUBSTOUT,-1);
 	SimpleLpbcast.F = Configuration.getInt(n+"."+PAR_F, 1);
-	subs = new ArrayList<Node>();
-	unSubs = new ArrayList<Node>();
-	if( SimpleLpbcast.unSubsTout > 0 ) unSubsDates = new ArrayList<Integer>();
-	if( SimpleLpbcast.l > 0 ) view = new ArrayList<Node>();
+	subs = new NodeView(false);
+	unSubs = new NodeView(SimpleLpbcast.unSubsTout > 0);
+	if( SimpleLpbcast.l > 0 ) view = new NodeView(false);
 }
 
 // ---------------------------------------------------------------------
@@ -129,11 +129,9 @@ public Object clone() {
 	SimpleLpbcast sn = null;
 	try { sn=(SimpleLpbcast)super.clone(); }
 	catch( CloneNotSupportedException e ) {} // never happens
-	sn.subs = (ArrayList)subs.clone();
-	sn.unSubs = (ArrayList)unSubs.clone();
-	if( SimpleLpbcast.unSubsTout > 0 )
-		sn.unSubsDates = (ArrayList)unSubsDates.clone();
-	if( SimpleLpbcast.l > 0 ) sn.view = (ArrayList)view.clone();
+	sn.subs = (NodeView)subs.clone();
+	sn.unSubs = (NodeView)unSubs.clone();
+	if( SimpleLpbcast.l > 0 ) sn.view = (NodeView)view.clone();
 	return sn;
 }
 
@@ -154,8 +152,7 @@ protected void send( Node thisNode, Node peerNode, int protocolID ) {
 	{
 		Node unsub = unSubs.get(i);
 		peer.remove(unsub);
-		Integer tstamp =
-		   (unSubsDates==null ? null : (Integer)unSubsDates.get(i));
+		int tstamp = (unSubs.isDated() ? unSubs.getDate(i) : 0);
 		peer.addUnSub(unsub,tstamp);
 	}
 
@@ -174,10 +171,10 @@ protected void send( Node thisNode, Node peerNode, int protocolID ) {
 * The node is added to the list of unsibscriptions and if the list becomes
 * larger than the maximal allowed size, a random element is removed.
 * @param node the node to add to unSubs
-* @param tstamp the timestamp of the unsubscrition in question. Null if
-* no timestamp is provided..
+* @param tstamp the timestamp of the unsubscrition in question. Ignored if
+* no timestamps are used.
 */
-protected boolean addUnSub(Node node, Integer tstamp) {
+protected boolean addUnSub(Node node, int tstamp) {
 
 	if( unSubs.contains(node) ) return false; // XXX timestamp handling
 	
@@ -186,17 +183,12 @@ protected boolean addUnSub(Node node, Integer tstamp) {
 		final int pos = CDState.r.nextInt(unSubs.size()+1);
 		if( pos < unSubs.size() )
 		{
-			unSubs.set(pos,node);
-			if( unSubsDates != null ) unSubsDates.set(pos,tstamp);
+			unSubs.set(pos,node,tstamp);
 			return true;
 		}
 		else return false;
 	}
-	else
-	{
-		if( unSubsDates != null ) unSubsDates.add(tstamp);
-		return unSubs.add(node);
-	}
+	else return unSubs.add(node,tstamp);
 }
 
 // --------------------------------------------------------------------
@@ -207,21 +199,11 @@ protected void remove(Node unsub) {
 	// removing from view
 	int ind = -1;
 	if( view != null ) ind = view.indexOf(unsub);
-	if( ind >= 0 )
-	{
-		// removing unsub avoiding arraycopy
-		view.set( ind, view.get(view.size()-1) );
-		view.remove( view.size()-1 );
-	}
+	if( ind >= 0 ) view.removeFast(ind); // avoiding arraycopy
 	
 	// removing from subs
 	ind = subs.indexOf(unsub);
-	if( ind >= 0 )
-	{
-		// removing unsub avoiding arraycopy
-		subs.set( ind, subs.get(subs.size()-1) );
-		subs.remove( subs.size()-1 );
-	}
+	if( ind >= 0 ) subs.removeFast(ind);
 }
 
 // ----------------------------------------------------------------------
@@ -248,7 +230,7 @@ public static void unsubscribe( Node n, int protocolID ) {
 		
 		// this implements the effect of adding n to unSubs
 		peer.remove(n);
-		peer.addUnSub(n,CDState.getCycleObj());
+		peer.addUnSub(n,CDState.getCycle());
 	}
 	
 	if( i < F )
@@ -266,7 +248,7 @@ public static void unsubscribe( Node n, int protocolID ) {
 */
 public Node getNeighbor(int i) {
 	
-	return ( view == null ? (Node)subs.get(i) : (Node)view.get(i) );
+	return ( view == null ? subs.get(i) : view.get(i) );
 }
 
 // --------------------------------------------------------------------
@@ -291,15 +273,13 @@ public boolean addNeighbor(Node node) {
 	
 	boolean ret;
 	
-	// XXX this "contains" slows the simulation down significantly
-	// to be fixed somehow, also at other places. Maybe sets should be used
 	if( subs.contains(node) ) ret = false;
 	else if( subs.size() >= SimpleLpbcast.subsSize )
 	{
 		final int pos = CDState.r.nextInt(subs.size()+1);
 		if( pos < subs.size() )
 		{
-			subs.set(pos,node);
+			subs.set(pos,node,0);
 			ret = true;
 		}
 		else ret = false;
@@ -313,7 +293,7 @@ public boolean addNeighbor(Node node) {
 			final int pos = CDState.r.nextInt(view.size()+1);
 			if( pos < view.size() )
 			{
-				view.set(pos,node);
+				view.set(pos,node,0);
 				ret = true;
 			}
 			else ret = false;
@@ -342,7 +322,6 @@ public void onKill() {
 	view = null;
 	subs = null;
 	unSubs = null;
-	unSubsDates = null;
 }
 
 
@@ -352,20 +331,11 @@ public void onKill() {
 
 public void nextCycle( Node thisNode, int protocolID ) {
 
-	// remove expired unsubscriptions
-	if( unSubsDates != null )
+	// remove expired unsubscriptions, that is, those with
+	// cycle-tstamp>unSubsTout
+	if( unSubs.isDated() )
 	{
-		int i=0;
-		while( i<unSubsDates.size() )
-		{
-			int tstamp = unSubsDates.get(i).intValue();
-			if(CDState.getCycle()-tstamp>SimpleLpbcast.unSubsTout)
-			{
-				unSubs.remove(i);
-				unSubsDates.remove(i);
-			}
-			else ++i;
-		}
+		unSubs.removeBefore(CDState.getCycle()-SimpleLpbcast.unSubsTout);
 	}
 	
 	// send gossip to F nodes
@@ -404,7 +374,7 @@ public String toString() {
 
 /**
 * Iterates over accessible nodes in a random order. Look out! It reorders
-* the list so the list order will be changed as a side effect.
+* the view so the view order will be changed as a side effect.
 */
 class RandomAccessibleIterator implements Iterator {
 
@@ -416,7 +386,7 @@ class RandomAccessibleIterator implements Iterator {
 /** points to the next possible element to return */
 private int i = 0;
 
-private List<Node> l = null;
+private NodeView l = null;
 
 /** if not null, next returns this */
 private Node _next = null;
@@ -426,16 +396,16 @@ private Node _next = null;
 
 
 /**
-* The list has to contain nodes.
+* Iterates over the given view.
 */
-public RandomAccessibleIterator(List<Node> l) {
+public RandomAccessibleIterator(NodeView l) {
 	
 	reset(l);
 }
 
 // --------------------------------------------------------------------
 
-public void reset(List<Node> l) {
+public void reset(NodeView l) {
 	
 	i = 0;
 	this.l = l;
@@ -476,9 +446,8 @@ public Node next() {
 	while( i < l.size() )
 	{
 		pos = CDState.r.nextInt(l.size()-i);
-		peer = l.get(i+pos);
-		l.set(i+pos,l.get(i));
-		l.set(i,peer);
+		l.swap(i,i+pos);
+		peer = l.get(i);
 		++i;
 		if( peer.isUp() ) break;
 	}
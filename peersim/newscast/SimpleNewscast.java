@@ -38,15 +38,16 @@ public class SimpleNewscast implements CDProtocol, Linkable {
  */
 private static final String PAR_CACHE = "cache";
 
-// We are using static temporary arrays to avoid garbage collection
-// of them. These are used by all SimpleNewscast protocols included
-// in the protocol array so their size is the maximum of the cache sizes
+// We are using temporary arrays to avoid garbage collection of them.
+// Each thread has its own, so that several cache exchanges can be
+// performed at the same time (provided they involve different nodes).
+// They are used by all SimpleNewscast protocols included in the
+// protocol array so their size is the maximum of the cache sizes.
 
-/** Temp array for merging. Its size is the same as the cache size.  */
-protected static Node[] tn;
-
-/** Temp array for merging.  Its size is the same as the cache size. */
-protected static int[] ts;
+/** The temporary arrays of the calling thread */
+private static final ThreadLocal<Buffer> buffers = new ThreadLocal<Buffer>() {
+	protected Buffer initialValue() { return new Buffer(); }
+};
 
 
 
@@ -68,12 +69,6 @@ protected int[] tstamps;
 public SimpleNewscast(String n) {
 	
 	final int cachesize = Configuration.getInt(n+"."+PAR_CACHE);
-	if(SimpleNewscast.tn == null || SimpleNewscast.tn.length < cachesize)
-	{
-		SimpleNewscast.tn = new Node[cachesize];
-		SimpleNewscast.ts = new int[cachesize];
-	}
-	
 	cache = new Node[cachesize];
 	tstamps = new int[cachesize];
 }
@@ -130,25 +125,33 @@ protected Node getPeer() {
 
 /**
 * Merge the content of two nodes and adds a new version of
-* the identifier. The result is in the static temporary arrays.
+* the identifier. The result is in the temporary arrays of the returned
+* buffer, which belongs to the calling thread.
 * The first element is not defined, it is reserved for the freshest
 * new updates so it will be different for peer and this.
-* The elements of the static temporary arrays will not contain neither
+* The elements of the temporary arrays will not contain neither
 * peerNode nor thisNode.
+* The cost is linear in the cache size: duplicates are detected marking
+* the nodes already in the temporary arrays.
 * @param thisNode the node that hosts this newscast protocol instance (process)
 * @param peer The peer with which we perform cache exchange
 * @param peerNode the node that hosts the peer newscast protocol instance
+* @return the buffer that contains the result
 */
-protected void merge( Node thisNode, SimpleNewscast peer, Node peerNode ) {
+protected Buffer merge( Node thisNode, SimpleNewscast peer, Node peerNode ) {
 	int i1 = 0; /* Index first cache */
 	int i2 = 0; /* Index second cache */
 	boolean first;
 	boolean lastTieWinner = CommonState.r.nextBoolean();
 	int i = 1; // Index new cache. first element set in the end 
-	// SimpleNewscast.tn[0] is always null. it's never written anywhere
+	// tn[0] is always null. it's never written anywhere
 	final int d1 = _degree();
 	final int d2 = peer._degree();
 	// cachesize is cache.length
+	final Buffer buf = buffers.get();
+	buf.clear(cache.length);
+	final Node[] tn = buf.tn;
+	final int[] ts = buf.ts;
 	
 	// merging two arrays
 	while( i < cache.length && i1 < d1 && i2 < d2 )
@@ -164,22 +167,20 @@ protected void merge( Node thisNode, SimpleNewscast peer, Node peerNode ) {
 			
 		if( first )
 		{
-			if( cache[i1] != peerNode &&
-			    !SimpleNewscast.contains( i, cache[i1] ) )
+			if( cache[i1] != peerNode && buf.mark( cache[i1] ) )
 			{
-				SimpleNewscast.tn[i] = cache[i1];
-				SimpleNewscast.ts[i]  = tstamps[i1];
+				tn[i] = cache[i1];
+				ts[i]  = tstamps[i1];
 				i++;
 			}        
 			i1++;
 		} 
 		else
 		{
-			if( peer.cache[i2] != thisNode &&
-			    !SimpleNewscast.contains( i, peer.cache[i2] ) )
+			if( peer.cache[i2] != thisNode && buf.mark( peer.cache[i2] ) )
 			{
-				SimpleNewscast.tn[i]=peer.cache[i2];
-				SimpleNewscast.ts[i]=peer.tstamps[i2];
+				tn[i]=peer.cache[i2];
+				ts[i]=peer.tstamps[i2];
 				i++;
 			}
 			i2++;
@@ -195,22 +196,20 @@ protected void merge( Node thisNode, SimpleNewscast peer, Node peerNode ) {
 		
 		for(; i1<d1 && i<cache.length; ++i1)
 		{
-			if( cache[i1] != peerNode &&
-			    !SimpleNewscast.contains( i, cache[i1] ) )
+			if( cache[i1] != peerNode && buf.mark( cache[i1] ) )
 			{
-				SimpleNewscast.tn[i] = cache[i1];
-				SimpleNewscast.ts[i]  = tstamps[i1];
+				tn[i] = cache[i1];
+				ts[i]  = tstamps[i1];
 				i++;
 			}        
 		}
 		
 		for(; i2<d2 && i<cache.length; ++i2)
 		{
-			if( peer.cache[i2] != thisNode &&
-			    !SimpleNewscast.contains( i, peer.cache[i2] ) )
+			if( peer.cache[i2] != thisNode && buf.mark( peer.cache[i2] ) )
 			{
-				SimpleNewscast.tn[i]=peer.cache[i2];
-				SimpleNewscast.ts[i]=peer.tstamps[i2];
+				tn[i]=peer.cache[i2];
+				ts[i]=peer.tstamps[i2];
 				i++;
 			}
 		}
@@ -222,23 +221,10 @@ protected void merge( Node thisNode, SimpleNewscast peer, Node peerNode ) {
 	{
 		for(; i<cache.length; ++i)
 		{
-			SimpleNewscast.tn[i] = null;
+			tn[i] = null;
 		}
 	}
-//if(testNode==null)testNode=peerNode;
-//if(peerNode==testNode) System.out.println(CommonState.getTime());
-}
-//private static Node testNode=null;
-
-// --------------------------------------------------------------------
-
-protected static boolean contains(int size, Node peer)
-{
-	for (int i=0; i < size; i++) {
-		if (SimpleNewscast.tn[i] == peer)
-			return true;
-	}
-	return false;
+	return buf;
 }
 
 // --------------------------------------------------------------------
@@ -342,13 +328,13 @@ public void nextCycle( Node n, int protocolID )
 	}
 
 	SimpleNewscast peer=(SimpleNewscast)(peerNode.getProtocol(protocolID));
-	merge( n, peer, peerNode );
+	final Buffer buf = merge( n, peer, peerNode );
 	
 	// set new cache in this and peer
-	System.arraycopy(SimpleNewscast.tn,0,cache,0,cache.length);
-	System.arraycopy(SimpleNewscast.ts,0,tstamps,0,tstamps.length);
-	System.arraycopy(SimpleNewscast.tn,0,peer.cache,0,cache.length);
-	System.arraycopy(SimpleNewscast.ts,0,peer.tstamps,0,tstamps.length);
+	System.arraycopy(buf.tn,0,cache,0,cache.length);
+	System.arraycopy(buf.ts,0,tstamps,0,tstamps.length);
+	System.arraycopy(buf.tn,0,peer.cache,0,cache.length);
+	System.arraycopy(buf.ts,0,peer.tstamps,0,tstamps.length);
 	
 	// set first element
 	tstamps[0] = peer.tstamps[0] = CommonState.getIntTime();
@@ -374,5 +360,79 @@ public String toString() {
 	return sb.toString();
 }
 
+
+// ===================== nested classes ===============================
+// ====================================================================
+
+
+/**
+* The temporary arrays used by {@link #merge}. Besides the merged cache,
+* it contains a hash set of the nodes that have been added to it, used to
+* detect duplicates in constant time. The slots of the set are
+* marked with the number of the merge that filled them, so that
+* the set can be cleared in constant time, incrementing this number.
+*/
+protected static class Buffer {
+
+/** The merged cache; its size is at least the cache size */
+public Node[] tn = new Node[0];
+
+/** The merged time stamps; its size is at least the cache size */
+public int[] ts = new int[0];
+
+/** The slots of the hash set */
+private Node[] set = new Node[0];
+
+/** The merge that filled each slot of the hash set */
+private int[] stamps = new int[0];
+
+/** The number of the current merge */
+private int epoch = 0;
+
+/**
+* Empties the hash set, making sure the arrays can hold the given
+* number of elements.
+*/
+void clear(int size) {
+
+	if( tn.length < size )
+	{
+		tn = new Node[size];
+		ts = new int[size];
+		// at least half of the slots are always free
+		int slots = Integer.highestOneBit(size) << 2;
+		set = new Node[slots];
+		stamps = new int[slots];
+		epoch = 0;
+	}
+	if( ++epoch == 0 )
+	{
+		// after 2^32 merges we clear the set the hard way
+		java.util.Arrays.fill(stamps, 0);
+		epoch = 1;
+	}
+}
+
+/**
+* Adds the given node to the hash set.
+* @return false if the node was already in the set
+*/
+boolean mark(Node n) {
+
+	final long id = n.getID();
+	final int mask = set.length-1;
+	int h = ((int)(id ^ (id>>>32)) * 0x9E3779B9) & mask;
+	while( stamps[h] == epoch )
+	{
+		if( set[h] == n ) return false;
+		h = (h+1) & mask;
+	}
+	set[h] = n;
+	stamps[h] = epoch;
+	return true;
+}
+
+}
+
 }
 
@@ -24,6 +24,7 @@ import peersim.cdsim.*;
 import peersim.config.*;
 import peersim.core.*;
 import peersim.edsim.*;
+import peersim.reports.*;
 
 
 /**
@@ -157,43 +158,9 @@ public static void main(String[] args)
 		(PrintStream)Configuration.getInstance(PAR_REDIRECT,System.out);
 	if(newout!=System.out) System.setOut(newout);
 	
-	int exps = Configuration.getInt(PAR_EXPS,1);
-
-	final int SIMID = getSimID();
-	if( SIMID == UNKNOWN )
-	{
-		System.err.println(
-		    "Simulator: unable to determine simulation engine type");
-		return;
-	}
-	
 	try {
 
-		for(int k=0; k<exps; ++k)
-		{
-			if( k>0 )
-			{
-				long seed = CommonState.r.nextLong();
-				CommonState.initializeRandom(seed);
-			}
-			System.err.print("Simulator: starting experiment "+k);
-			System.err.println(" invoking "+simName[SIMID]);
-			System.err.println("Random seed: "+
-				CommonState.r.getLastSeed());
-			System.out.println("\n\n");
-			
-			// XXX could be done through reflection, but
-			// this is easier to read.
-			switch(SIMID)
-			{
-			case CDSIM:
-				CDSimulator.nextExperiment();
-				break;
-			case EDSIM:
-				EDSimulator.nextExperiment();
-				break;
-			}
-		}
+		if( !runExperiments() ) return;
 	
 	} catch (MissingParameterException e) {
 		System.err.println(e+"");
@@ -212,4 +179,73 @@ public static void main(String[] args)
 	
 }
 
+// ----------------------------------------------------------------------
+
+/**
+* Runs the {@value #PAR_EXPS} experiments of the loaded configuration, as
+* described in {@link #main}. Configuration errors are not caught.
+* @return false if the simulation engine could not be determined
+*/
+public static boolean runExperiments()
+{
+	int exps = Configuration.getInt(PAR_EXPS,1);
+
+	final int SIMID = getSimID();
+	if( SIMID == UNKNOWN )
+	{
+		System.err.println(
+		    "Simulator: unable to determine simulation engine type");
+		return false;
+	}
+	
+	for(int k=0; k<exps; ++k)
+	{
+		if( k>0 )
+		{
+			long seed = CommonState.r.nextLong();
+			CommonState.initializeRandom(seed);
+		}
+		System.err.print("Simulator: starting experiment "+k);
+		System.err.println(" invoking "+simName[SIMID]);
+		System.err.println("Random seed: "+
+			CommonState.r.getLastSeed());
+		System.out.println("\n\n");
+		
+		// XXX could be done through reflection, but
+		// this is easier to read.
+		switch(SIMID)
+		{
+		case CDSIM:
+			CDSimulator.nextExperiment();
+			break;
+		case EDSIM:
+			EDSimulator.nextExperiment();
+			break;
+		}
+	}
+	return true;
+}
+
+// ----------------------------------------------------------------------
+
+/**
+* Resets the static state of the simulator and of the core classes that
+* cache information read from the configuration, after a new configuration
+* has been set with {@link Configuration#setConfig}.
+* This way, the same JVM can run several independent simulations, obtaining
+* the same results as a fresh JVM (see {@link peersim.rangesim.SimulatorWorker}).
+* Static state kept by classes outside the core (for example, by
+* user-defined protocols or by the extras) is not reset.
+*/
+public static void reset()
+{
+	simID = UNKNOWN;
+	CommonState.reset();
+	FastConfig.reset();
+	CDScheduler.reset();
+	GeneralNode.resetIDs();
+	GraphObserver.reset();
+	Profiler.reset();
+}
+
 }
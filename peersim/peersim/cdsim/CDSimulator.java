@@ -154,6 +154,11 @@ private static String[] loadControls()
 		ctrlSchedules[i] = new Scheduler(names[i]);
 	}
 	System.err.println("CDSimulator: loaded controls " + Arrays.asList(names));
+	String[] all = new String[controls.length];
+	System.arraycopy(names, 0, all, 0, names.length);
+	if (!nomaincycle)
+		all[names.length] = PAR_CYCLES;
+	Profiler.setControls(all);
 	return names;
 }
 
@@ -202,7 +207,7 @@ public static final void nextExperiment()
 		boolean stop = false;
 		for (int j = 0; j < controls.length; ++j) {
 			if (ctrlSchedules[j].active(i))
-				stop = stop || controls[j].execute();
+				stop = stop || Profiler.execute(controls[j], j);
 		}
 		if (stop)
 			break;
@@ -214,7 +219,7 @@ public static final void nextExperiment()
 	// analysis after the simulation
 	for (int j = 0; j < controls.length; ++j) {
 		if (ctrlSchedules[j].afterSimulation())
-			controls[j].execute();
+			Profiler.execute(controls[j], j);
 	}
 }
 
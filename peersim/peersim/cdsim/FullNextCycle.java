@@ -100,6 +100,11 @@ public FullNextCycle(String prefix) {
 public boolean execute() {
 
 	final int cycle=CDState.getCycle();
+	final boolean profile=Profiler.isEnabled();
+	// the iteration does not draw random numbers in this case, so it can
+	// be skipped without affecting the rest of the simulation
+	if( !shuffle && !getpair_rand && !hasActiveProtocol(cycle) )
+		return false;
 	if( shuffle ) rperm.reset( Network.size() );
 	for(int j=0; j<Network.size(); ++j)
 	{
@@ -118,14 +123,16 @@ public boolean execute() {
 		{
 			// Check if the protocol should be executed, given the
 			// associated scheduler.
-			if (!protSchedules[k].active(cycle))
+			if (!isActive(k, cycle))
 				continue;
 				
 			CDState.setPid(k);
 			Protocol protocol = node.getProtocol(k);
 			if( protocol instanceof CDProtocol )
 			{
-				((CDProtocol)protocol).nextCycle(node, k);
+				if( profile ) Profiler.enter(Profiler.PROTOCOL, k);
+				try { ((CDProtocol)protocol).nextCycle(node, k); }
+				finally { if( profile ) Profiler.exit(); }
 				if( !node.isUp() ) break;
 			}
 		}
@@ -134,4 +141,35 @@ public boolean execute() {
 	return false;
 }
 
+// --------------------------------------------------------------------
+
+/**
+ * Returns true if the given protocol has to be run on each node in the
+ * given cycle, according to its scheduler. Subclasses can exclude
+ * protocols that they run in a different way.
+ */
+protected boolean isActive(int pid, int cycle) {
+
+	return protSchedules[pid].active(cycle);
+}
+
+// --------------------------------------------------------------------
+
+/**
+ * Returns true if some {@link CDProtocol} has to be run in the given cycle.
+ * All the nodes have the same protocols, so the first node is checked.
+ */
+private boolean hasActiveProtocol(int cycle) {
+
+	if( Network.size() == 0 ) return false;
+	final Node node = Network.get(0);
+	for(int k=0; k<node.protocolSize(); ++k)
+	{
+		if( isActive(k, cycle) &&
+				node.getProtocol(k) instanceof CDProtocol )
+			return true;
+	}
+	return false;
+}
+
 }
@@ -73,6 +73,7 @@ public NextCycle(String prefix) {
 public boolean execute() {
 
 	final int cycle=CDState.getCycle();
+	final boolean profile=Profiler.isEnabled();
 	if( shuffle ) rperm.reset( Network.size() );
 	for(int j=0; j<Network.size(); ++j)
 	{
@@ -97,7 +98,9 @@ public boolean execute() {
 			Protocol protocol = node.getProtocol(pid);
 			if( protocol instanceof CDProtocol )
 			{
-				((CDProtocol)protocol).nextCycle(node, pid);
+				if( profile ) Profiler.enter(Profiler.PROTOCOL, pid);
+				try { ((CDProtocol)protocol).nextCycle(node, pid); }
+				finally { if( profile ) Profiler.exit(); }
 				if( !node.isUp() ) break;
 			}
 		}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.cdsim;
+
+import peersim.config.*;
+import peersim.core.*;
+import peersim.util.PairRounds;
+
+/**
+* Control to run a cycle of the cycle driven simulation, where the
+* {@link PairwiseProtocol}s run their exchanges in parallel.
+* <p>
+* The other cycle driven protocols are run first, as in
+* {@link FullNextCycle}. Then each pairwise protocol is run in two phases:
+* the exchanges of all the nodes that are up are selected, one node after
+* the other in the order of the network, and then they are run in rounds
+* of exchanges that involve distinct nodes (see {@link PairRounds}). Two
+* exchanges that share a node are run in the order they were selected,
+* so the result depends neither on the number of threads nor on the
+* scheduling of the threads, and the simulation is as reproducible as with
+* a single thread. It differs, however, from the one of
+* {@link FullNextCycle}, where a node selects its peer after the
+* exchanges of the nodes that precede it.
+* <p>
+* To use this control instead of the default one, set
+* <code>simulation.nodefaultcycle</code> and configure this control to run
+* after the others.
+*/
+public class PairwiseNextCycle extends FullNextCycle {
+
+
+// ============== fields ===============================================
+// =====================================================================
+
+
+/**
+* The number of threads running the exchanges. Defaults to the number of
+* available processors.
+* @config
+*/
+private static final String PAR_THREADS = "threads";
+
+// --------------------------------------------------------------------
+
+private final int threads;
+
+/** The pairwise protocols, by protocol id; computed at the first cycle */
+private boolean[] pairwise = null;
+
+/** The exchanges being run, between node indexes */
+private final PairRounds pairs = new PairRounds();
+
+/** For each exchange, the initiator */
+private Node[] nodes = new Node[16];
+
+/** For each exchange, the peer */
+private Node[] peers = new Node[16];
+
+/** For each exchange, the tag */
+private int[] tags = new int[16];
+
+/** The id of the protocol whose exchanges are being run */
+private int pid;
+
+/** Adds the exchanges to the arrays above */
+private final PairwiseProtocol.Schedule schedule =
+	new PairwiseProtocol.Schedule() {
+	public void add(Node node, Node peer, int tag) {
+		final int i = peer.getIndex();
+		if( i >= Network.size() || Network.get(i) != peer )
+			throw new IllegalStateException(
+				"Exchange with a node that is not in the network");
+		final int k = pairs.add(node.getIndex(), i);
+		if( k == nodes.length )
+		{
+			nodes = java.util.Arrays.copyOf(nodes, 2*k);
+			peers = java.util.Arrays.copyOf(peers, 2*k);
+			tags = java.util.Arrays.copyOf(tags, 2*k);
+		}
+		nodes[k] = node;
+		peers[k] = peer;
+		tags[k] = tag;
+	}
+};
+
+/** Runs the exchanges */
+private final PairRounds.Task task = new PairRounds.Task() {
+	public void run(int k) {
+		((PairwiseProtocol) nodes[k].getProtocol(pid)).exchange(
+			nodes[k], peers[k], pid, tags[k]);
+	}
+};
+
+
+// =============== initialization ======================================
+// =====================================================================
+
+
+/**
+* Reads config parameters and {@link Scheduler}s.
+*/
+public PairwiseNextCycle(String prefix) {
+
+	super(prefix);
+	threads = Configuration.getInt(prefix+"."+PAR_THREADS,
+		Runtime.getRuntime().availableProcessors());
+	if( threads < 1 )
+		throw new IllegalParameterException(prefix+"."+PAR_THREADS,
+			"must be at least 1");
+}
+
+
+// =============== methods =============================================
+// =====================================================================
+
+
+/** 
+ * Executes the {@link CDProtocol}s that are not pairwise as
+ * {@link FullNextCycle} does, and then the {@link PairwiseProtocol}s
+ * as described above.
+ * @return always false
+ */
+public boolean execute() {
+
+	if( Network.size() == 0 ) return false;
+	if( pairwise == null )
+	{
+		// all the nodes have the same protocols
+		final Node node = Network.get(0);
+		pairwise = new boolean[node.protocolSize()];
+		for(int k=0; k<pairwise.length; ++k)
+			pairwise[k] = node.getProtocol(k) instanceof PairwiseProtocol;
+	}
+	super.execute();
+
+	final int cycle=CDState.getCycle();
+	final boolean profile=Profiler.isEnabled();
+	for(int k=0; k<pairwise.length; ++k)
+	{
+		if( !pairwise[k] || !protSchedules[k].active(cycle) ) continue;
+		if( profile ) Profiler.enter(Profiler.PROTOCOL, k);
+		pairs.clear();
+		CDState.setPid(k);
+		for(int j=0; j<Network.size(); ++j)
+		{
+			final Node node = Network.get(j);
+			if( !node.isUp() ) continue;
+			CDState.setNode(node);
+			CDState.setCycleT(j);
+			((PairwiseProtocol) node.getProtocol(k)).selectExchanges(
+				node, k, schedule);
+		}
+		pid = k;
+		pairs.run(task, threads);
+		if( profile ) Profiler.exit();
+	}
+	return false;
+}
+
+// --------------------------------------------------------------------
+
+/** The pairwise protocols are not run on each node. */
+protected boolean isActive(int pid, int cycle) {
+
+	return super.isActive(pid, cycle) && !pairwise[pid];
+}
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.cdsim;
+
+import peersim.core.Node;
+
+/**
+* A cycle driven protocol whose activity in a cycle is a set of exchanges,
+* each involving the state of two nodes only. Besides running as a normal
+* {@link CDProtocol}, such a protocol can be run by {@link PairwiseNextCycle}
+* in two phases: first the exchanges of all the nodes are selected, one
+* node after the other; then the exchanges are run, in parallel when they
+* involve distinct nodes.
+* <p>
+* The random numbers needed by an exchange (for example to decide whether
+* its messages are lost) must be drawn when it is selected, and passed to
+* {@link #exchange} in the tag. An exchange must read and write the state
+* of its two nodes only, since other exchanges may run at the same time.
+*/
+public interface PairwiseProtocol extends CDProtocol
+{
+
+/**
+ * Collects the exchanges selected by the nodes.
+ */
+public interface Schedule
+{
+
+/**
+ * Adds an exchange. The peer must be in the network.
+ * @param node the node initiating the exchange
+ * @param peer the other node of the exchange
+ * @param tag passed to {@link PairwiseProtocol#exchange}
+ */
+public void add(Node node, Node peer, int tag);
+
+}
+
+/**
+ * Selects the exchanges that the given node initiates in the current
+ * cycle, and adds them to the schedule. This method is called once per
+ * cycle on each node that is up, in the order of the network; it can
+ * change the state of the node and draw random numbers.
+ * 
+ * @param node
+ *          the node on which this component is run
+ * @param protocolID
+ *          the id of this protocol in the protocol array
+ * @param schedule
+ *          where the exchanges are added
+ */
+public void selectExchanges(Node node, int protocolID, Schedule schedule);
+
+/**
+ * Runs an exchange selected by {@link #selectExchanges}. It is called on
+ * the protocol of the initiating node; it must not draw random numbers.
+ * 
+ * @param node
+ *          the node initiating the exchange
+ * @param peer
+ *          the other node of the exchange
+ * @param protocolID
+ *          the id of this protocol in the protocol array
+ * @param tag
+ *          the value given when the exchange was selected
+ */
+public void exchange(Node node, Node peer, int protocolID, int tag);
+
+}
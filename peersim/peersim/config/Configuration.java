@@ -339,6 +339,20 @@ public static void setConfig(Properties p, boolean check)
 
 // -------------------------------------------------------------------
 
+/**
+ * Discards the system-wide configuration, so that a new one can be set
+ * using {@link #setConfig}. This is meant only for running several
+ * independent simulations in the same JVM (see
+ * {@link peersim.rangesim.SimulatorWorker}); values that have already
+ * been read from the configuration are not affected.
+ */
+public static void reset()
+{
+	config = null;
+}
+
+// -------------------------------------------------------------------
+
 /**
  * @return true if and only if name is a specified (existing) property.
  */
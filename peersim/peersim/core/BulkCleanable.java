@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.core;
+
+/**
+ * This interface can be implemented by protocols that want to be notified
+ * when a batch of <em>other</em> nodes has been removed from the network.
+ * While {@link Cleanable} is about the protocol instances of the removed
+ * node itself, this interface is about the protocol instances of the nodes
+ * that remain in the network. The typical use is a {@link Linkable}
+ * that drops its links to the removed nodes in one go, instead of
+ * keeping them until they are lazily filtered out through
+ * {@link Node#isUp}.
+ * @see Network#cleanup
+ */
+public interface BulkCleanable
+{
+
+/**
+ * Performs cleanup after the given nodes have been removed from the network.
+ * This is called by {@link Network#cleanup} on the protocol instances of all
+ * the nodes that are still in the network.
+ * When this method is called, all the nodes in the array are already
+ * {@link Fallible#DEAD} and their index is no longer valid, so
+ * implementations will normally just check the fail state of the nodes
+ * they reference.
+ * @param killed the nodes that have been removed
+ */
+public void onKill(Node[] killed);
+
+}
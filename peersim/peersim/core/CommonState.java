@@ -281,6 +281,28 @@ public static void initializeRandom(long seed)
 
 //-----------------------------------------------------------------
 
+/**
+ * Brings this class back to the state it has right after its static
+ * initialization, re-initializing {@link #r} from the current configuration.
+ * It is needed only if several independent simulations are run in the same
+ * JVM (see {@link peersim.config.Configuration#reset}).
+ */
+public static void reset()
+{
+	time = 0;
+	endtime = -1;
+	toshift = -1;
+	phase = PHASE_UNKNOWN;
+	pid = 0;
+	node = null;
+	r = null;
+	long seed =
+		Configuration.getLong(PAR_SEED,System.currentTimeMillis());
+	initializeRandom(seed);
+}
+
+//-----------------------------------------------------------------
+
 /*
 public static void main(String pars[]) {
 	
@@ -106,6 +106,18 @@ private long nextID() {
 	return counterID++;
 }
 
+// -----------------------------------------------------------------
+
+/**
+* Restarts the generation of IDs, so that nodes get the same IDs they would
+* get in a fresh JVM. It is needed only if several independent simulations
+* are run in the same JVM (see {@link peersim.config.Configuration#reset}).
+*/
+public static void resetIDs() {
+
+	counterID = -1;
+}
+
 // =============== public methods ==================================
 // =================================================================
 
@@ -25,8 +25,10 @@ import peersim.config.Configuration;
  * It is useful to model a static link-structure
  * (topology). The only function of this protocol is to serve as a source of
  * neighborhood information for other protocols.
+ * When notified through {@link BulkCleanable}, links to dead nodes are
+ * dropped.
  */
-public class IdleProtocol implements Protocol, Linkable
+public class IdleProtocol implements Protocol, Linkable, BulkCleanable
 {
 
 // --------------------------------------------------------------------------
@@ -150,6 +152,22 @@ public String toString()
 
 // --------------------------------------------------------------------------
 
+/** Removes the links to all the neighbors that are {@link Fallible#DEAD}.
+* The order of the remaining neighbors is preserved. */
+public void onKill(Node[] killed)
+{
+	int j = 0;
+	for (int i = 0; i < len; i++) {
+		if (neighbors[i].getFailState() != Fallible.DEAD)
+			neighbors[j++] = neighbors[i];
+	}
+	for (int i = j; i < len; i++)
+		neighbors[i] = null;
+	len = j;
+}
+
+// --------------------------------------------------------------------------
+
 public void onKill()
 {
 	neighbors = null;
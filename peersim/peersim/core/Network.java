@@ -251,6 +251,92 @@ public static Node remove(int i) {
 
 // ------------------------------------------------------------------
 
+/**
+* The nodes with the given indices are removed in one pass. Returns the
+* removed nodes in the order of the given indices.
+* It also sets the fail state of each removed node to {@link Fallible#DEAD}.
+* <p>The node array is compacted only once: the holes that fall within
+* the new size of the network are filled with the nodes from the end of
+* the list, so, just like with {@link #remove(int)}, the index of the other
+* nodes does not change, except for the nodes moved from the end.
+* The cost is proportional to the number of removed nodes.
+* <p>Note that this method does not call {@link #cleanup}, that has to be
+* done by the caller if necessary.
+* @param indices the indices of the nodes to be removed. Must not contain
+* duplicates.
+*/
+public static Node[] remove(int[] indices) {
+
+	final int k = indices.length;
+	for(int j=0; j<k; ++j)
+	{
+		final int i = indices[j];
+		if( i<0 || i>=len ) throw new IndexOutOfBoundsException(""+i);
+	}
+	final Node[] removed = new Node[k];
+	for(int j=0; j<k; ++j)
+	{
+		final int i = indices[j];
+		if( node[i] == null )
+		{
+			// restore the array before reporting the duplicate
+			for(int h=0; h<j; ++h) node[indices[h]] = removed[h];
+			throw new IllegalArgumentException(
+				"Index "+i+" is given more than once");
+		}
+		removed[j] = node[i];
+		node[i] = null;
+	}
+	
+	// the number of holes below newlen is the same as the number of
+	// nodes left above newlen, so the tail pointer never goes below newlen
+	final int newlen = len-k;
+	int tail = len;
+	for(int j=0; j<k; ++j)
+	{
+		final int i = indices[j];
+		if( i >= newlen ) continue;
+		do tail--; while( node[tail] == null );
+		node[i] = node[tail];
+		node[tail] = null;
+		node[i].setIndex(i);
+	}
+	len = newlen;
+	
+	for(int j=0; j<k; ++j) removed[j].setFailState(Fallible.DEAD);
+	return removed;
+}
+
+// ------------------------------------------------------------------
+
+/**
+* Calls {@link BulkCleanable#onKill} with the given nodes on all
+* the protocol instances of all the nodes in the network, for those
+* protocols that implement {@link BulkCleanable}. Whether a protocol
+* implements the interface is decided based on the prototype node.
+* Before each call, the current node and protocol ID is set in
+* {@link CommonState}.
+* @param killed the nodes that have been removed, typically the return
+* value of {@link #remove(int[])}.
+*/
+public static void cleanup(Node[] killed) {
+
+	if( killed.length == 0 ) return;
+	for(int pid=0; pid<prototype.protocolSize(); ++pid)
+	{
+		if( !(prototype.getProtocol(pid) instanceof BulkCleanable) )
+			continue;
+		CommonState.setPid(pid);
+		for(int i=0; i<len; ++i)
+		{
+			CommonState.setNode(node[i]);
+			((BulkCleanable)node[i].getProtocol(pid)).onKill(killed);
+		}
+	}
+}
+
+// ------------------------------------------------------------------
+
 /**
 * Swaps the two nodes at the given indexes.
 */
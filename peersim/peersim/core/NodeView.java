@@ -0,0 +1,440 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.core;
+
+/**
+ * A list of distinct nodes, each optionally associated with an integer
+ * date, meant to implement the views of membership protocols. Compared to
+ * a list of nodes and a list of boxed dates, it needs no boxing, it tests
+ * membership in constant time through an open addressing hash set
+ * keyed by {@link Node#getID}, and it removes elements from the head in
+ * constant time, so that expiring the oldest elements is cheap.
+ * Removing or inserting in the middle costs time linear in the size, like
+ * with a list.
+ * <p>
+ * A node can be contained only once: the methods that add a node return
+ * false and do nothing if the node is already in the view.
+ */
+public class NodeView implements Cloneable
+{
+
+// ======================= fields ==================================
+// =================================================================
+
+/** The elements; the view is in positions [head, head+size) */
+private Node[] nodes;
+
+/** The dates of the elements, parallel to nodes, or null if not used */
+private int[] dates;
+
+/** The position of the first element */
+private int head = 0;
+
+/** Number of elements */
+private int size = 0;
+
+/**
+ * The hash set of the elements, with linear probing. At most half of the
+ * slots are used.
+ */
+private Node[] set;
+
+// ====================== initialization ===========================
+// =================================================================
+
+/**
+ * Creates an empty view.
+ * @param dated whether dates are associated to the nodes
+ */
+public NodeView(boolean dated)
+{
+	nodes = new Node[8];
+	if (dated)
+		dates = new int[8];
+	set = new Node[16];
+}
+
+// -----------------------------------------------------------------
+
+public Object clone()
+{
+	NodeView v = null;
+	try { v = (NodeView) super.clone(); }
+	catch (CloneNotSupportedException e) {} // never happens
+	v.nodes = nodes.clone();
+	if (dates != null)
+		v.dates = dates.clone();
+	v.set = set.clone();
+	return v;
+}
+
+// ====================== methods ==================================
+// =================================================================
+
+/** Returns the number of elements */
+public int size() { return size; }
+
+/** Returns true if dates are associated to the nodes */
+public boolean isDated() { return dates != null; }
+
+/** Returns the node in the given position, which is not checked */
+public Node get(int i) { return nodes[head + i]; }
+
+/**
+ * Returns the date of the node in the given position, which is not
+ * checked. Must be called only if the view is dated.
+ */
+public int getDate(int i) { return dates[head + i]; }
+
+// -----------------------------------------------------------------
+
+/** Returns true if the view contains the given node */
+public boolean contains(Node n)
+{
+	final int mask = set.length - 1;
+	for (int h = hash(n, mask); set[h] != null; h = (h + 1) & mask) {
+		if (set[h] == n)
+			return true;
+	}
+	return false;
+}
+
+// -----------------------------------------------------------------
+
+/**
+ * Returns the position of the given node, or -1 if it is not in the view.
+ * Nodes not in the view are detected in constant time, otherwise the
+ * cost is linear.
+ */
+public int indexOf(Node n)
+{
+	if (!contains(n))
+		return -1;
+	for (int i = head; ; ++i) {
+		if (nodes[i] == n)
+			return i - head;
+	}
+}
+
+// -----------------------------------------------------------------
+
+/**
+ * Appends a node to the view, with no date.
+ * @return false if the node was already in the view
+ */
+public boolean add(Node n) { return add(size, n, 0); }
+
+/**
+ * Appends a node to the view, with the given date (ignored if the view is
+ * not dated).
+ * @return false if the node was already in the view
+ */
+public boolean add(Node n, int date) { return add(size, n, date); }
+
+// -----------------------------------------------------------------
+
+/**
+ * Inserts a node in the given position, shifting the elements that follow.
+ * The date is ignored if the view is not dated.
+ * @return false if the node was already in the view
+ */
+public boolean add(int i, Node n, int date)
+{
+	if (!insert(n))
+		return false;
+	if (head + size == nodes.length)
+		makeRoom();
+	final int pos = head + i;
+	System.arraycopy(nodes, pos, nodes, pos + 1, size - i);
+	nodes[pos] = n;
+	if (dates != null) {
+		System.arraycopy(dates, pos, dates, pos + 1, size - i);
+		dates[pos] = date;
+	}
+	size++;
+	return true;
+}
+
+// -----------------------------------------------------------------
+
+/**
+ * Inserts a node keeping the view sorted by date, provided it is already
+ * sorted. The position is the one where
+ * {@link java.util.Collections#binarySearch} would find the date, or would
+ * insert it if not found. Must be called only if the view is dated.
+ * @return false if the node was already in the view
+ */
+public boolean addSorted(Node n, int date)
+{
+	int low = head;
+	int high = head + size - 1;
+	int ins = -1;
+	while (low <= high && ins < 0) {
+		final int mid = (low + high) >>> 1;
+		if (dates[mid] < date)
+			low = mid + 1;
+		else if (dates[mid] > date)
+			high = mid - 1;
+		else
+			ins = mid;
+	}
+	return add((ins < 0 ? low : ins) - head, n, date);
+}
+
+// -----------------------------------------------------------------
+
+/**
+ * Replaces the node (and the date, if the view is dated) in the given
+ * position.
+ * @return false if the new node was already in the view, in which case
+ *   nothing is changed
+ */
+public boolean set(int i, Node n, int date)
+{
+	if (nodes[head + i] == n) {
+		if (dates != null)
+			dates[head + i] = date;
+		return true;
+	}
+	if (!insert(n))
+		return false;
+	delete(nodes[head + i]);
+	nodes[head + i] = n;
+	if (dates != null)
+		dates[head + i] = date;
+	return true;
+}
+
+// -----------------------------------------------------------------
+
+/**
+ * Removes the element in the given position, shifting the elements that
+ * follow. Removing the first element takes constant time.
+ */
+public void remove(int i)
+{
+	delete(nodes[head + i]);
+	if (i == 0) {
+		nodes[head++] = null;
+	} else {
+		final int pos = head + i;
+		System.arraycopy(nodes, pos + 1, nodes, pos, size - i - 1);
+		if (dates != null)
+			System.arraycopy(dates, pos + 1, dates, pos, size - i - 1);
+		nodes[head + size - 1] = null;
+	}
+	if (--size == 0)
+		head = 0;
+}
+
+// -----------------------------------------------------------------
+
+/**
+ * Removes the element in the given position, replacing it with the last
+ * one. It takes constant time, but does not preserve the order.
+ */
+public void removeFast(int i)
+{
+	final int last = head + size - 1;
+	delete(nodes[head + i]);
+	nodes[head + i] = nodes[last];
+	if (dates != null)
+		dates[head + i] = dates[last];
+	nodes[last] = null;
+	if (--size == 0)
+		head = 0;
+}
+
+// -----------------------------------------------------------------
+
+/**
+ * Removes the first k elements, in time proportional to k.
+ */
+public void removeFirst(int k)
+{
+	for (int i = head; i < head + k; ++i) {
+		delete(nodes[i]);
+		nodes[i] = null;
+	}
+	head += k;
+	size -= k;
+	if (size == 0)
+		head = 0;
+}
+
+// -----------------------------------------------------------------
+
+/**
+ * Removes all elements whose date is smaller than the given one,
+ * preserving the order of the others. Its cost is linear in the size.
+ * Must be called only if the view is dated.
+ * @return the number of removed elements
+ */
+public int removeBefore(int date)
+{
+	final int end = head + size;
+	int j = head;
+	for (int i = head; i < end; ++i) {
+		if (dates[i] < date) {
+			delete(nodes[i]);
+		} else {
+			nodes[j] = nodes[i];
+			dates[j++] = dates[i];
+		}
+	}
+	for (int i = j; i < end; ++i)
+		nodes[i] = null;
+	final int removed = end - j;
+	size -= removed;
+	if (size == 0)
+		head = 0;
+	return removed;
+}
+
+// -----------------------------------------------------------------
+
+/**
+ * Swaps the elements (and their dates) in the given positions.
+ */
+public void swap(int i, int j)
+{
+	i += head;
+	j += head;
+	final Node n = nodes[i];
+	nodes[i] = nodes[j];
+	nodes[j] = n;
+	if (dates != null) {
+		final int d = dates[i];
+		dates[i] = dates[j];
+		dates[j] = d;
+	}
+}
+
+// -----------------------------------------------------------------
+
+/**
+ * Returns the elements in the same format as
+ * {@link java.util.AbstractCollection#toString}.
+ */
+public String toString()
+{
+	StringBuilder sb = new StringBuilder("[");
+	for (int i = head; i < head + size; ++i) {
+		if (i > head)
+			sb.append(", ");
+		sb.append(nodes[i]);
+	}
+	return sb.append("]").toString();
+}
+
+// ====================== private methods ==========================
+// =================================================================
+
+/** Returns the first slot of the given node in a hash set */
+private static int hash(Node n, int mask)
+{
+	final long id = n.getID();
+	return ((int) (id ^ (id >>> 32)) * 0x9E3779B9) & mask;
+}
+
+// -----------------------------------------------------------------
+
+/**
+ * Adds the given node to the hash set.
+ * @return false if it was already there
+ */
+private boolean insert(Node n)
+{
+	if (2 * (size + 1) > set.length)
+		rehash(2 * set.length);
+	final int mask = set.length - 1;
+	int h = hash(n, mask);
+	for (; set[h] != null; h = (h + 1) & mask) {
+		if (set[h] == n)
+			return false;
+	}
+	set[h] = n;
+	return true;
+}
+
+// -----------------------------------------------------------------
+
+/**
+ * Removes the given node from the hash set, where it must be. The
+ * following elements of its cluster are moved back, so that no deleted
+ * markers are needed.
+ */
+private void delete(Node n)
+{
+	final int mask = set.length - 1;
+	int h = hash(n, mask);
+	while (set[h] != n)
+		h = (h + 1) & mask;
+	for (int j = (h + 1) & mask; set[j] != null; j = (j + 1) & mask) {
+		final int k = hash(set[j], mask);
+		// move set[j] to the hole if its first slot is not in (h, j]
+		if ((h <= j) ? (h < k && k <= j) : (h < k || k <= j))
+			continue;
+		set[h] = set[j];
+		h = j;
+	}
+	set[h] = null;
+}
+
+// -----------------------------------------------------------------
+
+private void rehash(int len)
+{
+	final Node[] old = set;
+	set = new Node[len];
+	final int mask = len - 1;
+	for (int i = 0; i < old.length; ++i) {
+		if (old[i] == null)
+			continue;
+		int h = hash(old[i], mask);
+		while (set[h] != null)
+			h = (h + 1) & mask;
+		set[h] = old[i];
+	}
+}
+
+// -----------------------------------------------------------------
+
+/**
+ * Makes room for one more element at the end, moving the elements to
+ * the beginning of the arrays if at least half of them is free, or
+ * doubling the arrays otherwise.
+ */
+private void makeRoom()
+{
+	final int len = (size < nodes.length / 2 ? nodes.length : 2 * nodes.length);
+	Node[] n = (len == nodes.length ? nodes : new Node[len]);
+	System.arraycopy(nodes, head, n, 0, size);
+	if (n == nodes)
+		java.util.Arrays.fill(nodes, size, head + size, null);
+	nodes = n;
+	if (dates != null) {
+		int[] d = (len == dates.length ? dates : new int[len]);
+		System.arraycopy(dates, head, d, 0, size);
+		dates = d;
+	}
+	head = 0;
+}
+
+}
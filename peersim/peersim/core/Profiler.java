@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.core;
+
+import java.lang.management.*;
+import java.lang.reflect.*;
+import peersim.config.*;
+
+/**
+ * Accounts for the time spent by the simulation engines in the protocols
+ * and in the controls. Static singleton, like {@link CommonState}.
+ * <p>
+ * The engines call {@link #enter} before passing an event to a protocol
+ * (or running its {@link peersim.cdsim.CDProtocol#nextCycle} method) and
+ * {@link #exit} when it returns; controls are run through
+ * {@link #execute}. For each protocol identifier and each control, the
+ * number of calls, the nanoseconds spent and, optionally, the bytes
+ * allocated by the simulation thread are recorded. Calls may be nested
+ * (e.g. a control that runs the protocols, like
+ * {@link peersim.cdsim.FullNextCycle}): time and memory are always
+ * charged to the innermost call only, so the totals of the different
+ * entries can be summed.
+ * <p>
+ * The profiler is disabled by default, in which case the cost for the
+ * engines is a test of {@link #isEnabled}. It is normally switched on by
+ * configuring {@link peersim.reports.ProfileObserver}, which also prints
+ * the collected data.
+ * <p>
+ * <em>The methods of this class should not be used by applications</em>,
+ * they are for system components.
+ */
+public class Profiler
+{
+
+//======================= constants ===============================
+//=================================================================
+
+/** Kind of the entries accounting for protocols, indexed by pid */
+public static final int PROTOCOL = 0;
+
+/** Kind of the entries accounting for controls, indexed by their order */
+public static final int CONTROL = 1;
+
+//======================= fields ==================================
+//=================================================================
+
+/** True if the profiler is collecting data */
+private static boolean enabled = false;
+
+/** Number of calls, indexed by kind and id */
+private static long[][] count = new long[2][0];
+
+/** Nanoseconds spent, indexed by kind and id */
+private static long[][] time = new long[2][0];
+
+/** Bytes allocated, indexed by kind and id */
+private static long[][] bytes = new long[2][0];
+
+/** Names of the controls, indexed by their order */
+private static String[] controls = new String[0];
+
+/** Total number of calls */
+private static long events;
+
+/** Largest size of the event queue observed */
+private static int queueMax;
+
+/** Kinds of the calls being executed, innermost last */
+private static int[] stkKind = new int[8];
+
+/** Ids of the calls being executed, innermost last */
+private static int[] stkId = new int[8];
+
+/** Times at which the calls being executed were last resumed */
+private static long[] stkTime = new long[8];
+
+/** Allocated bytes when the calls being executed were last resumed */
+private static long[] stkBytes = new long[8];
+
+/** Number of calls being executed */
+private static int depth;
+
+/** The thread management bean, if allocation is measured, or null */
+private static ThreadMXBean mxbean = null;
+
+/**
+ * The method <code>getThreadAllocatedBytes(long)</code> of
+ * <code>com.sun.management.ThreadMXBean</code>, if available and
+ * allocation is measured, or null.
+ */
+private static Method allocated = null;
+
+/** The id of the simulation thread */
+private static long thread;
+
+//======================= initialization ==========================
+//=================================================================
+
+/** to prevent construction */
+private Profiler() {}
+
+//======================= methods =================================
+//=================================================================
+
+/**
+ * Discards the collected data and starts collecting.
+ * @param alloc if true, the bytes allocated by the simulation thread
+ *   are measured as well, if the JVM supports it; note that this has a
+ *   much higher overhead than measuring time
+ * @return false if allocation has been requested but cannot be measured
+ */
+public static boolean enable(boolean alloc)
+{
+	reset();
+	enabled = true;
+	if (!alloc)
+		return true;
+	mxbean = ManagementFactory.getThreadMXBean();
+	try {
+		Class<?> c = Class.forName("com.sun.management.ThreadMXBean");
+		if (c.isInstance(mxbean) && (Boolean) c.getMethod(
+				"isThreadAllocatedMemorySupported").invoke(mxbean)) {
+			c.getMethod("setThreadAllocatedMemoryEnabled",
+					boolean.class).invoke(mxbean, true);
+			allocated = c.getMethod("getThreadAllocatedBytes", long.class);
+			thread = Thread.currentThread().getId();
+			return true;
+		}
+	} catch (Exception e) {
+		// not a Sun compatible JVM
+	}
+	mxbean = null;
+	allocated = null;
+	return false;
+}
+
+//-----------------------------------------------------------------
+
+/**
+ * Stops collecting and discards the collected data.
+ */
+public static void reset()
+{
+	enabled = false;
+	count = new long[2][0];
+	time = new long[2][0];
+	bytes = new long[2][0];
+	events = 0;
+	queueMax = 0;
+	depth = 0;
+	mxbean = null;
+	allocated = null;
+}
+
+//-----------------------------------------------------------------
+
+/**
+ * Returns true if the profiler is collecting data. The engines should
+ * call the other methods of this class only if this returns true.
+ */
+public static boolean isEnabled() { return enabled; }
+
+//-----------------------------------------------------------------
+
+/**
+ * Sets the names of the controls, which are used for reporting only.
+ * @param names the names, indexed by the ids the controls are
+ *   {@linkplain #execute executed} with
+ */
+public static void setControls(String[] names) { controls = names; }
+
+//-----------------------------------------------------------------
+
+/**
+ * Records the start of a call. Must be followed by a call to
+ * {@link #exit} when the call returns.
+ * @param kind either {@link #PROTOCOL} or {@link #CONTROL}
+ * @param id the protocol identifier or the index of the control
+ */
+public static void enter(int kind, int id)
+{
+	final long now = System.nanoTime();
+	final long alloc = allocated();
+	if (depth > 0) {
+		final int p = depth - 1;
+		time[stkKind[p]][stkId[p]] += now - stkTime[p];
+		bytes[stkKind[p]][stkId[p]] += alloc - stkBytes[p];
+	}
+	if (id >= count[kind].length)
+		grow(kind, id);
+	if (depth == stkKind.length)
+		growStack();
+	count[kind][id]++;
+	events++;
+	stkKind[depth] = kind;
+	stkId[depth] = id;
+	stkTime[depth] = now;
+	stkBytes[depth] = alloc;
+	depth++;
+}
+
+//-----------------------------------------------------------------
+
+/**
+ * Records the end of the innermost call started with {@link #enter}.
+ */
+public static void exit()
+{
+	final long now = System.nanoTime();
+	final long alloc = allocated();
+	depth--;
+	time[stkKind[depth]][stkId[depth]] += now - stkTime[depth];
+	bytes[stkKind[depth]][stkId[depth]] += alloc - stkBytes[depth];
+	if (depth > 0) {
+		stkTime[depth - 1] = now;
+		stkBytes[depth - 1] = alloc;
+	}
+}
+
+//-----------------------------------------------------------------
+
+/**
+ * Executes the given control, recording the call if the profiler is
+ * enabled.
+ * @param control the control to execute
+ * @param id the index of the control
+ * @return the value returned by the control
+ */
+public static boolean execute(Control control, int id)
+{
+	if (!enabled)
+		return control.execute();
+	enter(CONTROL, id);
+	try {
+		return control.execute();
+	} finally {
+		exit();
+	}
+}
+
+//-----------------------------------------------------------------
+
+/**
+ * Records the current size of the event queue.
+ */
+public static void queued(int size)
+{
+	if (size > queueMax)
+		queueMax = size;
+}
+
+//-----------------------------------------------------------------
+
+/**
+ * Returns the number of entries of the given kind; ids range from 0
+ * to this value minus one.
+ */
+public static int size(int kind) { return count[kind].length; }
+
+/** Returns the number of calls recorded for the given entry */
+public static long getCount(int kind, int id) { return count[kind][id]; }
+
+/** Returns the nanoseconds spent in the calls of the given entry */
+public static long getTime(int kind, int id) { return time[kind][id]; }
+
+/**
+ * Returns the bytes allocated during the calls of the given entry; always
+ * 0 if allocation is not measured.
+ */
+public static long getBytes(int kind, int id) { return bytes[kind][id]; }
+
+/** Returns the total number of calls recorded */
+public static long getEvents() { return events; }
+
+/** Returns the largest size of the event queue observed */
+public static int getQueueMax() { return queueMax; }
+
+/** Returns true if allocation is being measured */
+public static boolean isAllocEnabled() { return allocated != null; }
+
+//-----------------------------------------------------------------
+
+/**
+ * Returns the name of the given entry: the name of the protocol (as
+ * in {@link Configuration#lookupPid(int)}) or of the control.
+ */
+public static String getName(int kind, int id)
+{
+	if (kind == PROTOCOL)
+		return Configuration.lookupPid(id);
+	return id < controls.length ? controls[id] : "" + id;
+}
+
+//-----------------------------------------------------------------
+
+/**
+ * Returns the bytes allocated so far by the simulation thread, or 0
+ * if allocation is not measured.
+ */
+private static long allocated()
+{
+	if (allocated == null)
+		return 0;
+	try {
+		return (Long) allocated.invoke(mxbean, thread);
+	} catch (Exception e) {
+		throw new RuntimeException(e);
+	}
+}
+
+//-----------------------------------------------------------------
+
+private static void grow(int kind, int id)
+{
+	final int len = id + 1;
+	long[] a = new long[len];
+	System.arraycopy(count[kind], 0, a, 0, count[kind].length);
+	count[kind] = a;
+	a = new long[len];
+	System.arraycopy(time[kind], 0, a, 0, time[kind].length);
+	time[kind] = a;
+	a = new long[len];
+	System.arraycopy(bytes[kind], 0, a, 0, bytes[kind].length);
+	bytes[kind] = a;
+}
+
+//-----------------------------------------------------------------
+
+private static void growStack()
+{
+	final int len = 2 * stkKind.length;
+	int[] i = new int[len];
+	System.arraycopy(stkKind, 0, i, 0, depth);
+	stkKind = i;
+	i = new int[len];
+	System.arraycopy(stkId, 0, i, 0, depth);
+	stkId = i;
+	long[] l = new long[len];
+	System.arraycopy(stkTime, 0, l, 0, depth);
+	stkTime = l;
+	l = new long[len];
+	System.arraycopy(stkBytes, 0, l, 0, depth);
+	stkBytes = l;
+}
+
+}
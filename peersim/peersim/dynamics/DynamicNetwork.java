@@ -18,6 +18,8 @@
 
 package peersim.dynamics;
 
+import java.util.HashSet;
+
 import peersim.config.Configuration;
 import peersim.core.*;
 
@@ -89,6 +91,29 @@ private static final String PAR_MAX = "maxsize";
  */
 private static final String PAR_MIN = "minsize";
 
+/**
+ * If defined, nodes are removed and added in batches. The nodes to remove
+ * are sampled without replacement and removed in one pass through
+ * {@link Network#remove(int[])}, and the capacity of the network is grown
+ * at most once when adding nodes. This results in a different (but equally
+ * random) set of removed nodes than the default one-by-one removal, so
+ * simulations are not reproducible across the two modes.
+ * Not set by default.
+ * @config
+ */
+private static final String PAR_BATCH = "batch";
+
+/**
+ * If defined, {@link Network#cleanup} is called after each batch of
+ * removals, so that protocols implementing {@link BulkCleanable} (e.g.
+ * {@link IdleProtocol}) drop their references to the removed nodes
+ * immediately. This costs one pass over the network per execution. Has
+ * effect only if {@value #PAR_BATCH} is defined.
+ * Not set by default.
+ * @config
+ */
+private static final String PAR_PURGE = "purge";
+
 // --------------------------------------------------------------------------
 // Fields
 // --------------------------------------------------------------------------
@@ -108,6 +133,12 @@ protected final int maxsize;
 /** node initializers to apply on the newly added nodes */
 protected final NodeInitializer[] inits;
 
+/** value of {@value #PAR_BATCH} */
+protected final boolean batch;
+
+/** value of {@value #PAR_PURGE} */
+protected final boolean purge;
+
 // --------------------------------------------------------------------------
 // Protected methods
 // --------------------------------------------------------------------------
@@ -122,6 +153,8 @@ protected final NodeInitializer[] inits;
  */
 protected void add(int n)
 {
+	if (batch && Network.size() + n > Network.getCapacity())
+		Network.setCapacity(Network.size() + n);
 	for (int i = 0; i < n; ++i) {
 		Node newnode = (Node) Network.prototype.clone();
 		for (int j = 0; j < inits.length; ++j) {
@@ -137,10 +170,33 @@ protected void add(int n)
  * Removes n nodes from the network. Extending classes can implement any
  * algorithm to do that. The default algorithm removes <em>random</em>
  * nodes <em>permanently</em> simply by calling {@link Network#remove(int)}.
+ * If {@value #PAR_BATCH} is defined, the random nodes are removed
+ * by one call to {@link Network#remove(int[])} instead, followed by
+ * {@link Network#cleanup} if {@value #PAR_PURGE} is defined.
  * @param n the number of nodes to remove
  */
 protected void remove(int n)
 {
+	if (batch) {
+		if (n == 0)
+			return;
+		// Floyd's algorithm: n distinct random indices in O(n)
+		int size = Network.size();
+		int[] indices = new int[n];
+		HashSet<Integer> chosen = new HashSet<Integer>(2 * n);
+		for (int i = 0, j = size - n; j < size; ++i, ++j) {
+			int t = CommonState.r.nextInt(j + 1);
+			if (!chosen.add(t)) {
+				t = j;
+				chosen.add(t);
+			}
+			indices[i] = t;
+		}
+		Node[] killed = Network.remove(indices);
+		if (purge)
+			Network.cleanup(killed);
+		return;
+	}
 	for (int i = 0; i < n; ++i) {
 		Network.remove(CommonState.r.nextInt(Network.size()));
 	}
@@ -168,6 +224,8 @@ public DynamicNetwork(String prefix)
 	}
 	maxsize=Configuration.getInt(prefix+"."+PAR_MAX,Integer.MAX_VALUE);
 	minsize = Configuration.getInt(prefix + "." + PAR_MIN, 0);
+	batch = Configuration.contains(prefix + "." + PAR_BATCH);
+	purge = Configuration.contains(prefix + "." + PAR_PURGE);
 }
 
 // --------------------------------------------------------------------------
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.dynamics;
+
+import peersim.config.*;
+import peersim.core.*;
+
+/**
+ * Session lengths drawn independently from a parametric distribution.
+ * The supported distributions are
+ * <ul>
+ * <li><code>exponential</code> with mean {@value #PAR_SCALE},</li>
+ * <li><code>weibull</code> with scale {@value #PAR_SCALE} and shape
+ * {@value #PAR_SHAPE},</li>
+ * <li><code>pareto</code> with minimum {@value #PAR_SCALE} and shape
+ * {@value #PAR_SHAPE}.</li>
+ * </ul>
+ * All samples are drawn with the inverse transform method
+ * from {@link CommonState#r} and are rounded to the nearest integer, but
+ * they are at least 1, so that a node never changes its state twice
+ * at the same time point.
+ * The same distribution is used for uptime and downtime sessions, so
+ * {@link SessionChurn} typically uses two instances of this class.
+ */
+public class RandomSessions implements SessionDistribution
+{
+
+//--------------------------------------------------------------------------
+//Parameters
+//--------------------------------------------------------------------------
+
+/**
+ * The distribution: one of <code>exponential</code>,
+ * <code>weibull</code> or <code>pareto</code>.
+ * Defaults to <code>exponential</code>.
+ * @config
+ */
+private static final String PAR_TYPE = "type";
+
+/**
+ * The scale parameter of the distribution. For the exponential distribution
+ * this is the mean, for the Pareto distribution this is the minimal value.
+ * @config
+ */
+private static final String PAR_SCALE = "scale";
+
+/**
+ * The shape parameter of the Weibull and the Pareto distributions.
+ * Not used by the exponential distribution.
+ * @config
+ */
+private static final String PAR_SHAPE = "shape";
+
+/**
+ * The probability that a node is up at the beginning of the simulation.
+ * Defaults to 1.
+ * @config
+ */
+private static final String PAR_AVAILABILITY = "availability";
+
+//--------------------------------------------------------------------------
+//Fields
+//--------------------------------------------------------------------------
+
+private static final int EXPONENTIAL = 0;
+
+private static final int WEIBULL = 1;
+
+private static final int PARETO = 2;
+
+/** The distribution type */
+private final int type;
+
+/** value of {@value #PAR_SCALE} */
+private final double scale;
+
+/** The reciprocal of {@value #PAR_SHAPE} */
+private final double invshape;
+
+/** value of {@value #PAR_AVAILABILITY} */
+private final double availability;
+
+//--------------------------------------------------------------------------
+//Initialization
+//--------------------------------------------------------------------------
+
+/**
+ * Standard constructor that reads the configuration parameters. Invoked by the
+ * simulation engine.
+ * @param prefix the configuration prefix for this class
+ */
+public RandomSessions(String prefix)
+{
+	String t = Configuration.getString(prefix + "." + PAR_TYPE,
+		"exponential");
+	if (t.equals("exponential")) type = EXPONENTIAL;
+	else if (t.equals("weibull")) type = WEIBULL;
+	else if (t.equals("pareto")) type = PARETO;
+	else throw new IllegalParameterException(prefix + "." + PAR_TYPE,
+		"Unknown distribution " + t);
+	scale = Configuration.getDouble(prefix + "." + PAR_SCALE);
+	if (scale <= 0) throw new IllegalParameterException(
+		prefix + "." + PAR_SCALE, "Must be positive");
+	if (type == EXPONENTIAL) {
+		invshape = 1;
+	} else {
+		double shape = Configuration.getDouble(prefix + "." + PAR_SHAPE);
+		if (shape <= 0) throw new IllegalParameterException(
+			prefix + "." + PAR_SHAPE, "Must be positive");
+		invshape = 1 / shape;
+	}
+	availability = Configuration.getDouble(
+		prefix + "." + PAR_AVAILABILITY, 1);
+}
+
+//--------------------------------------------------------------------------
+//Methods
+//--------------------------------------------------------------------------
+
+/**
+ * Returns true with probability {@value #PAR_AVAILABILITY}.
+ */
+public boolean startsUp(Node n)
+{
+	return availability >= 1 || CommonState.r.nextDouble() < availability;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Draws a sample from the configured distribution. The parameters are
+ * ignored.
+ */
+public long nextSession(Node n, boolean up)
+{
+	// 1-u is in (0,1] so the logarithm is finite
+	final double u = 1 - CommonState.r.nextDouble();
+	double x;
+	switch (type) {
+		case EXPONENTIAL:
+			x = -scale * Math.log(u);
+			break;
+		case WEIBULL:
+			x = scale * Math.pow(-Math.log(u), invshape);
+			break;
+		default:
+			x = scale / Math.pow(u, invshape);
+	}
+	return Math.max(1, Math.round(x));
+}
+
+}
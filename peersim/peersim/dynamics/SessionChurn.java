@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.dynamics;
+
+import peersim.config.*;
+import peersim.core.*;
+import peersim.edsim.*;
+
+/**
+ * This {@link Control} models churn through individual session timers of
+ * the nodes. Each node alternates between uptime sessions, when its fail
+ * state is {@link Fallible#OK}, and downtime sessions, when its fail state is
+ * {@link Fallible#DOWN}. The session lengths are drawn from the
+ * {@link SessionDistribution}s given by {@value #PAR_UP} and
+ * {@value #PAR_DOWN}.
+ * <p>
+ * The end of the current session of each node is stored as an event in a
+ * private {@link PriorityQ}, so one execution of this control costs time
+ * proportional to the number of transitions that are due, independently of
+ * the size of the network.
+ * This class implements {@link SchedulerI}, so in event-driven
+ * simulations it is executed exactly at the time points of the
+ * transitions (see {@link EDSimulator}), while in cycle-driven simulations
+ * it should be scheduled in each cycle (which is the default), and it
+ * executes the transitions that are due in the given cycle.
+ * <p>
+ * The nodes that are in the network when this control is constructed are
+ * initialized through {@link SessionDistribution#startsUp} of
+ * {@value #PAR_UP}. The nodes added later and dead nodes are ignored.
+ */
+public class SessionChurn implements Control, SchedulerI
+{
+
+//--------------------------------------------------------------------------
+//Parameters
+//--------------------------------------------------------------------------
+
+/**
+ * The {@link SessionDistribution} of the uptime sessions. It also defines
+ * the initial state of the nodes.
+ * @config
+ */
+private static final String PAR_UP = "up";
+
+/**
+ * The {@link SessionDistribution} of the downtime sessions. If not
+ * defined, the same object is used as {@value #PAR_UP}, which is needed
+ * for distributions that define both types of sessions, like
+ * {@link TraceSessions}.
+ * @config
+ */
+private static final String PAR_DOWN = "down";
+
+/**
+ * The {@link PriorityQ} to store the session timers. If not defined,
+ * {@link Heap} is used.
+ * @config
+ */
+private static final String PAR_PQ = "eventqueue";
+
+//--------------------------------------------------------------------------
+//Fields
+//--------------------------------------------------------------------------
+
+/** value of {@value #PAR_UP} */
+private final SessionDistribution up;
+
+/** value of {@value #PAR_DOWN} */
+private final SessionDistribution down;
+
+/** The session timers */
+private final PriorityQ timers;
+
+/**
+ * The first timer, removed from {@link #timers} already, or null.
+ * {@link PriorityQ} has no method to inspect the first event without
+ * removing it.
+ */
+private Node firstNode = null;
+
+/** The time of {@link #firstNode} */
+private long firstTime;
+
+/** The state {@link #firstNode} has to be set to */
+private boolean firstUp;
+
+//--------------------------------------------------------------------------
+//Initialization
+//--------------------------------------------------------------------------
+
+/**
+ * Standard constructor that reads the configuration parameters and
+ * initializes the state and the first session of all the nodes in the
+ * network. Invoked by the simulation engine.
+ * @param prefix the configuration prefix for this class
+ */
+public SessionChurn(String prefix)
+{
+	up = (SessionDistribution) Configuration.getInstance(
+		prefix + "." + PAR_UP);
+	if (Configuration.contains(prefix + "." + PAR_DOWN))
+		down = (SessionDistribution) Configuration.getInstance(
+			prefix + "." + PAR_DOWN);
+	else
+		down = up;
+	if (Configuration.contains(prefix + "." + PAR_PQ))
+		timers = (PriorityQ) Configuration.getInstance(
+			prefix + "." + PAR_PQ);
+	else
+		timers = new Heap();
+
+	for (int i = 0; i < Network.size(); ++i) {
+		Node n = Network.get(i);
+		if (n.getFailState() == Fallible.DEAD) continue;
+		boolean isup = up.startsUp(n);
+		n.setFailState(isup ? Fallible.OK : Fallible.DOWN);
+		schedule(n, isup);
+	}
+}
+
+//--------------------------------------------------------------------------
+//Methods
+//--------------------------------------------------------------------------
+
+/**
+ * Draws the length of the session of the node that starts now and adds the
+ * timer for the end of the session.
+ * @param isup the state of the node in the session
+ */
+private void schedule(Node n, boolean isup)
+{
+	long length = (isup ? up : down).nextSession(n, isup);
+	if (length < 0) return;
+	
+	final long now = CommonState.getTime();
+	// check like this to deal with overflow
+	if (length >= CommonState.getEndTime() - now
+			|| length > timers.maxTime() - now) return;
+	
+	final long time = now + length;
+	if (firstNode != null && time < firstTime) {
+		timers.add(firstTime, Boolean.valueOf(firstUp), firstNode,
+			(byte) 0);
+		firstNode = null;
+	}
+	timers.add(time, Boolean.valueOf(!isup), n, (byte) 0);
+}
+
+//--------------------------------------------------------------------------
+
+/** Makes sure {@link #firstNode} is set if there are timers. */
+private void fetch()
+{
+	if (firstNode != null || timers.size() == 0) return;
+	PriorityQ.Event ev = timers.removeFirst();
+	firstNode = ev.node;
+	firstTime = ev.time;
+	firstUp = ((Boolean) ev.event).booleanValue();
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Changes the state of the nodes whose session ends at or before the
+ * current time, and starts their next session.
+ * @return always false
+ */
+public boolean execute()
+{
+	final long now = CommonState.getTime();
+	for (fetch(); firstNode != null && firstTime <= now; fetch()) {
+		Node n = firstNode;
+		boolean isup = firstUp;
+		firstNode = null;
+		if (n.getFailState() == Fallible.DEAD) continue;
+		n.setFailState(isup ? Fallible.OK : Fallible.DOWN);
+		schedule(n, isup);
+	}
+	return false;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Returns true if the given time is the time of the next transition.
+ * Since the sessions are random, the schedule is not known
+ * in advance, so the value is correct only for times not earlier than the
+ * current time.
+ */
+public boolean active(long time)
+{
+	fetch();
+	return firstNode != null && firstTime == time;
+}
+
+//--------------------------------------------------------------------------
+
+public boolean active()
+{
+	return active(CommonState.getTime());
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Returns the time of the next transition, or -1 if there are no
+ * transitions left.
+ */
+public long getNext()
+{
+	fetch();
+	return firstNode == null ? -1 : firstTime;
+}
+
+//--------------------------------------------------------------------------
+
+/** Returns false. */
+public boolean afterSimulation()
+{
+	return false;
+}
+
+}
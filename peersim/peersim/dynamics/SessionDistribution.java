@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.dynamics;
+
+import peersim.core.Node;
+
+/**
+ * Generic interface of the session length models used by
+ * {@link SessionChurn}. A session is a maximal time interval during which a
+ * node is continuously up (an uptime session) or continuously down (a
+ * downtime session). Implementations can be stateless random distributions
+ * (see {@link RandomSessions}) or can follow a fixed schedule for each node
+ * (see {@link TraceSessions}).
+ */
+public interface SessionDistribution
+{
+
+/**
+ * Returns true if the given node has to be up at the beginning of the
+ * simulation. This is called exactly once for each node, before the first
+ * call to {@link #nextSession} with the same node.
+ */
+public boolean startsUp(Node n);
+
+/**
+ * Returns the length of the session of the given node that starts at the
+ * current time. The returned value is interpreted in the time units of the
+ * simulation ({@link peersim.core.CommonState#getTime}). A negative value
+ * means that the session never ends, that is, the node stays in the given
+ * state for the rest of the simulation.
+ * @param n the node
+ * @param up true if the session starting now is an uptime session, false
+ * if it is a downtime session
+ */
+public long nextSession(Node n, boolean up);
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.dynamics;
+
+import java.io.*;
+import java.util.*;
+import peersim.config.*;
+import peersim.core.*;
+
+/**
+ * Session lengths that follow an availability trace. The trace has the
+ * following format, one line per traced host:
+ * <pre>
+ * &lt;host id&gt; &lt;number of sessions&gt; &lt;start1&gt; &lt;end1&gt; &lt;start2&gt; &lt;end2&gt; ...
+ * </pre>
+ * where the times are given in seconds. This is the same format that
+ * is read by <code>traces.AvailabilityTraceDynamics</code>.
+ * <p>
+ * Each node is assigned a random host of the trace the first time it is
+ * seen. Hosts are sampled without replacement, if there are more nodes than
+ * hosts, the hosts are reused. Hosts without sessions are ignored.
+ * A node is down before the first session of its host and after the last
+ * session of its host.
+ */
+public class TraceSessions implements SessionDistribution
+{
+
+//--------------------------------------------------------------------------
+//Parameters
+//--------------------------------------------------------------------------
+
+/**
+ * The file containing the trace.
+ * @config
+ */
+private static final String PAR_FILE = "file";
+
+/**
+ * The number of simulation time units in one second of the trace.
+ * It can be less than one, e.g. when the time unit is a cycle of
+ * a cycle-driven simulation. Defaults to 1.
+ * @config
+ */
+private static final String PAR_UNITS = "units";
+
+//--------------------------------------------------------------------------
+//Fields
+//--------------------------------------------------------------------------
+
+/**
+ * The session boundaries of the hosts in simulation time units, in
+ * the order start, end, start, end, ...
+ */
+private final long[][] traces;
+
+/** The host assigned to each node that has been seen */
+private final Map<Node,Cursor> cursors = new HashMap<Node,Cursor>();
+
+/** Hosts that have not been assigned in the current round */
+private final int[] selection;
+
+/** Number of valid elements in {@link #selection} */
+private int selsize = 0;
+
+//--------------------------------------------------------------------------
+//Initialization
+//--------------------------------------------------------------------------
+
+/**
+ * Standard constructor that reads the configuration parameters and
+ * the trace file. Invoked by the simulation engine.
+ * @param prefix the configuration prefix for this class
+ */
+public TraceSessions(String prefix)
+{
+	String filename = Configuration.getString(prefix + "." + PAR_FILE);
+	double units = Configuration.getDouble(prefix + "." + PAR_UNITS, 1);
+	ArrayList<long[]> tmp = new ArrayList<long[]>();
+	try {
+		BufferedReader in = new BufferedReader(new FileReader(filename));
+		String line;
+		while ((line = in.readLine()) != null) {
+			StringTokenizer tok = new StringTokenizer(line);
+			if (!tok.hasMoreTokens()) continue;
+			tok.nextToken();
+			int n = Integer.parseInt(tok.nextToken());
+			if (n == 0) continue;
+			long[] trace = new long[2 * n];
+			for (int i = 0; i < trace.length; ++i) {
+				trace[i] = (long) (Double.parseDouble(tok.nextToken())
+					* units);
+			}
+			tmp.add(trace);
+		}
+		in.close();
+	} catch (FileNotFoundException e) {
+		throw new IllegalParameterException(prefix + "." + PAR_FILE,
+			filename + " does not exist");
+	} catch (IOException e) {
+		throw new IllegalParameterException(prefix + "." + PAR_FILE,
+			"Error reading " + filename + ": " + e.getMessage());
+	}
+	if (tmp.size() == 0)
+		throw new IllegalParameterException(prefix + "." + PAR_FILE,
+			filename + " contains no sessions");
+	traces = tmp.toArray(new long[tmp.size()][]);
+	selection = new int[traces.length];
+}
+
+//--------------------------------------------------------------------------
+//Methods
+//--------------------------------------------------------------------------
+
+/**
+ * Assigns a random host to the node and returns true if the host is
+ * in a session at the current time.
+ */
+public boolean startsUp(Node n)
+{
+	if (selsize == 0) {
+		selsize = traces.length;
+		for (int i = 0; i < selsize; ++i) selection[i] = i;
+	}
+	int r = CommonState.r.nextInt(selsize);
+	Cursor c = new Cursor(traces[selection[r]]);
+	selection[r] = selection[--selsize];
+	cursors.put(n, c);
+	
+	// skip the boundaries that are already in the past
+	final long now = CommonState.getTime();
+	while (c.pos < c.trace.length && c.trace[c.pos] <= now) c.pos++;
+	
+	// odd positions are the ends of sessions
+	return c.pos % 2 == 1;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Returns the time until the next session boundary of the host assigned to
+ * the node, or -1 if there are no more boundaries. Parameter
+ * <code>up</code> is ignored, the state is defined by the trace.
+ */
+public long nextSession(Node n, boolean up)
+{
+	Cursor c = cursors.get(n);
+	if (c.pos == c.trace.length) {
+		cursors.remove(n);
+		return -1;
+	}
+	return c.trace[c.pos++] - CommonState.getTime();
+}
+
+//--------------------------------------------------------------------------
+
+/** The host assigned to a node and the position of the next boundary */
+private static class Cursor
+{
+	final long[] trace;
+	int pos = 0;
+	Cursor(long[] trace) { this.trace = trace; }
+}
+
+}
@@ -77,8 +77,10 @@ private static final String PAR_RNDSTART = "randstart";
 * configuration. The length of the array is the number of protocols defined,
 * but those entries that belong to protocols that are not {@link CDProtocol}s
 * are null.
+* The array is loaded from the current configuration when it is first
+* needed, and again after {@link #reset}.
 */
-public static final Scheduler[] sch;
+public static Scheduler[] sch;
 
 private final NextCycleEvent[] nce;
 
@@ -91,19 +93,46 @@ private final boolean randstart;
 
 
 /**
-* Loads protocol schedulers for all protocols.
+* Creates the scheduler objects for all {@link CDProtocol}s of the
+* network prototype, based on the current configuration.
 */
-static {
+private static Scheduler[] loadSchedulers() {
 
 	String[] names = Configuration.getNames(Node.PAR_PROT);
-	sch = new Scheduler[names.length];
+	Scheduler[] s = new Scheduler[names.length];
 	for(int i=0; i<names.length; ++i)
 	{
 		if( Network.prototype.getProtocol(i) instanceof CDProtocol )
 			// with no default values for step to avoid
 			// "overscheduling" due to lack of step option.
-			sch[i] = new Scheduler(names[i],false);
+			s[i] = new Scheduler(names[i],false);
 	}
+	return s;
+}
+
+// --------------------------------------------------------------------
+
+/**
+* Discards the schedulers loaded from the previous configuration.
+* They are loaded again when they are next needed, that is, after
+* the network prototype of the new configuration has been built.
+* Called by {@link peersim.Simulator#reset}.
+*/
+public static void reset() {
+
+	sch = null;
+}
+
+// --------------------------------------------------------------------
+
+/**
+* Returns the scheduler of the given protocol, loading the schedulers
+* from the configuration if needed.
+*/
+static Scheduler getScheduler(int pid) {
+
+	if( sch == null ) sch = loadSchedulers();
+	return sch[pid];
 }
 
 // --------------------------------------------------------------------
@@ -113,6 +142,8 @@ static {
 */
 public CDScheduler(String n) {
 
+	if( sch == null ) sch = loadSchedulers();
+
 	String[] prots=Configuration.getString(n+"."+PAR_PROTOCOL).split("\\s");
 	pid = new int[prots.length];
 	nce = new NextCycleEvent[prots.length];
@@ -195,9 +226,10 @@ public void initialize(Node n) {
 		try { nceclone = nce[i].clone(); }
 		catch(CloneNotSupportedException e) {} //cannot possibly happen
 		
-		final long delay = firstDelay(sch[pid[i]].step);
-		final long nexttime = Math.max(time,sch[pid[i]].from)+delay;
-		if( nexttime < sch[pid[i]].until )
+		final Scheduler s = getScheduler(pid[i]);
+		final long delay = firstDelay(s.step);
+		final long nexttime = Math.max(time,s.from)+delay;
+		if( nexttime < s.until )
 			EDSimulator.add(nexttime-time, nceclone, n, pid[i]);
 	}
 }
@@ -19,6 +19,7 @@
 package peersim.edsim;
 
 import peersim.core.Control;
+import peersim.core.Profiler;
 import peersim.core.SchedulerI;
 
 
@@ -78,7 +79,7 @@ public ControlEvent(Control control, SchedulerI scheduler, int order)
 */
 public boolean execute() {
 
-	boolean ret = control.execute();
+	boolean ret = Profiler.execute(control, order);
 	long next = scheduler.getNext();
 	if( next>=0 ) EDSimulator.addControlEvent(next, order, this);
 	return ret;
@@ -115,7 +115,8 @@ private static final String PAR_LOGTIME = "simulation.logtime";
 /** 
  * This parameter specifies the event queue to be used. It must be an
  * implementation of interface {@link PriorityQ}. If it is not defined,
- * the internal implementation is used.
+ * the internal implementation is used. Use {@link MonitoredQueue} to
+ * collect statistics about the event queue.
  * @config 
  */	
 private static final String PAR_PQ = "simulation.eventqueue";
@@ -208,6 +209,7 @@ private static void scheduleControls()
 	}
 	System.err.println("EDSimulator: loaded controls "+
 		Arrays.asList(names));
+	Profiler.setControls(names);
 
 	// Schedule controls execution
 	if (controls.length > heap.maxPriority()+1)
@@ -239,6 +241,7 @@ static void addControlEvent(long time, int order, ControlEvent event)
 // the caller, which must be from this package
 	if (time >= endtime) return;
 	heap.add(time, event, null, (byte)0, order);
+	if (Profiler.isEnabled()) Profiler.queued(heap.size());
 }
 
 //---------------------------------------------------------------------
@@ -309,7 +312,10 @@ private static boolean executeNext() {
 			// this is a scheduling event so we might want to run
 			// it on nodes that are down temporarily (nce will decide)
 			NextCycleEvent nce = (NextCycleEvent) ev.event;
-			nce.execute();
+			final boolean profile = Profiler.isEnabled();
+			if (profile) Profiler.enter(Profiler.PROTOCOL, pid);
+			try { nce.execute(); }
+			finally { if (profile) Profiler.exit(); }
 		}
 		else if (ev.node.isUp())
 		{
@@ -322,7 +328,10 @@ private static boolean executeNext() {
 					Configuration.lookupPid(pid) + 
 					" does not implement EDProtocol; " + ev.event.getClass()  );
 			}
-			prot.processEvent(ev.node, pid, ev.event);
+			final boolean profile = Profiler.isEnabled();
+			if (profile) Profiler.enter(Profiler.PROTOCOL, pid);
+			try { prot.processEvent(ev.node, pid, ev.event); }
+			finally { if (profile) Profiler.exit(); }
 		}
 	}
 	
@@ -375,7 +384,8 @@ public static void nextExperiment()
 	CommonState.setPhase(CommonState.POST_SIMULATION);
 	for(int j=0; j<controls.length; ++j)
 	{
-		if( ctrlSchedules[j].afterSimulation() ) controls[j].execute();
+		if( ctrlSchedules[j].afterSimulation() )
+			Profiler.execute(controls[j], j);
 	}
 
 }
@@ -410,7 +420,10 @@ public static void add(long delay, Object event, Node node, int pid)
 	
 	long time = CommonState.getTime();
 	if( endtime - time > delay ) // check like this to deal with overflow 
+	{
 		heap.add(time+delay, event, node, (byte) pid);
+		if (Profiler.isEnabled()) Profiler.queued(heap.size());
+	}
 }
 
 }
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.edsim;
+
+import java.util.*;
+import peersim.config.*;
+import peersim.core.*;
+import peersim.util.*;
+
+/**
+ * A {@link PriorityQ} that delegates to another implementation and
+ * collects statistics about the events that pass through it, to help
+ * choosing the queue implementation and its parameters (for example,
+ * {@link Heap} <code>size</code> and <code>pbits</code>). It can be used
+ * wherever a {@link PriorityQ} is configured, e.g. as
+ * <code>simulation.eventqueue</code>.
+ * <p>
+ * The following is collected:
+ * <ul>
+ * <li>the size of the queue, sampled at each removal;</li>
+ * <li>the number of events added, per class of the event object;</li>
+ * <li>the scheduling horizon of the events, that is, the difference between
+ * their time and the current time when they are added;</li>
+ * <li>ties, that is, events added when other events are scheduled at the
+ * same time, and collisions, that is, events added when another event is
+ * scheduled at the same time with the same priority; the order of
+ * colliding events is unspecified, so a high number of collisions
+ * suggests to increase the number of priority levels.</li>
+ * </ul>
+ * To be able to detect collisions, events added without a priority are
+ * given a random one, drawn from {@link CommonState#r} exactly as
+ * {@link Heap} would do, so the simulation is not affected.
+ * <p>
+ * The statistics are printed on the standard output every
+ * {@value #PAR_STEP} time units and when the end time of the simulation
+ * is reached or the queue becomes empty. The report is made of lines
+ * starting with the name of this component, followed by a keyword:
+ * <ul>
+ * <li><code>size</code>: the time, the current size and the statistics of
+ * the sampled sizes since the previous report, as printed by
+ * {@link IncrementalStats}</li>
+ * <li><code>class</code>: the name of a class and the number of its events
+ * added so far</li>
+ * <li><code>horizon</code>: the statistics of the horizons so far,
+ * as printed by {@link IncrementalStats}</li>
+ * <li><code>horizon-bin</code>: an integer k and the number of events with
+ * horizon in [2^(k-1),2^k) so far (k=0 for horizon 0)</li>
+ * <li><code>ties</code>: the number of ties and collisions so far, and the
+ * number of priority levels</li>
+ * </ul>
+ * Collecting the statistics is much more expensive than the queue
+ * operations themselves.
+ */
+public class MonitoredQueue implements PriorityQ
+{
+
+//--------------------------------------------------------------------------
+// Constants
+//--------------------------------------------------------------------------
+
+/**
+ * The queue implementation to be monitored. If not defined,
+ * {@link Heap} is used, configured with this prefix.
+ * @config
+ */
+private static final String PAR_QUEUE = "queue";
+
+/**
+ * The statistics are printed every this many time units. If not defined,
+ * they are printed only at the end.
+ * @config
+ */
+private static final String PAR_STEP = "step";
+
+//--------------------------------------------------------------------------
+// Fields
+//--------------------------------------------------------------------------
+
+/** The name of this component in the configuration */
+private final String name;
+
+/** The monitored queue */
+private final PriorityQ queue;
+
+/** The report period, or 0 */
+private final long step;
+
+/** The time of the next report */
+private long next;
+
+/** True once the final report has been printed */
+private boolean done = false;
+
+/** The sizes of the queue sampled since the previous report */
+private final IncrementalStats sizes = new IncrementalStats();
+
+/** Number of events added, per class */
+private final Map<String,long[]> classes = new TreeMap<String,long[]>();
+
+/** Horizons of the added events */
+private final IncrementalStats horizons = new IncrementalStats();
+
+/** Number of events per horizon bin */
+private final long[] bins = new long[65];
+
+/** Number of ties */
+private long ties = 0;
+
+/** Number of collisions */
+private long collisions = 0;
+
+/**
+ * The number of queued events, by time and by priority. Priorities are
+ * needed because the events at the same time are removed in order of
+ * priority.
+ */
+private final Map<Long,TreeMap<Long,int[]>> pending =
+	new HashMap<Long,TreeMap<Long,int[]>>();
+
+//--------------------------------------------------------------------------
+// Initialization
+//--------------------------------------------------------------------------
+
+/**
+ * Standard constructor that reads the configuration parameters.
+ * @param prefix the configuration prefix for this class
+ */
+public MonitoredQueue(String prefix)
+{
+	name = prefix;
+	if (Configuration.contains(prefix + "." + PAR_QUEUE))
+		queue = (PriorityQ) Configuration.getInstance(prefix + "." +
+				PAR_QUEUE);
+	else
+		queue = new Heap(prefix);
+	step = Configuration.getLong(prefix + "." + PAR_STEP, 0);
+	if (step < 0)
+		throw new IllegalParameterException(prefix + "." + PAR_STEP,
+				"must be positive");
+	next = step;
+}
+
+//--------------------------------------------------------------------------
+// Methods
+//--------------------------------------------------------------------------
+
+public int size() { return queue.size(); }
+
+//--------------------------------------------------------------------------
+
+public long maxTime() { return queue.maxTime(); }
+
+//--------------------------------------------------------------------------
+
+public long maxPriority() { return queue.maxPriority(); }
+
+//--------------------------------------------------------------------------
+
+public void add(long time, Object event, Node node, byte pid)
+{
+	final long max = queue.maxPriority();
+	final long priority;
+	if (max < Integer.MAX_VALUE)
+		priority = CommonState.r.nextInt((int) max + 1);
+	else if (max == Long.MAX_VALUE)
+		priority = CommonState.r.nextLong() & Long.MAX_VALUE;
+	else
+		priority = CommonState.r.nextLong(max + 1);
+	add(time, event, node, pid, priority);
+}
+
+//--------------------------------------------------------------------------
+
+public void add(long time, Object event, Node node, byte pid, long priority)
+{
+	queue.add(time, event, node, pid, priority);
+
+	final String cl = (event == null ? "null" : event.getClass().getName());
+	long[] c = classes.get(cl);
+	if (c == null)
+		classes.put(cl, c = new long[1]);
+	c[0]++;
+
+	final long horizon = time - CommonState.getTime();
+	horizons.add(horizon);
+	bins[horizon > 0 ? 64 - Long.numberOfLeadingZeros(horizon) : 0]++;
+
+	TreeMap<Long,int[]> prios = pending.get(time);
+	if (prios == null)
+		pending.put(time, prios = new TreeMap<Long,int[]>());
+	else
+		ties++;
+	int[] n = prios.get(priority);
+	if (n == null)
+		prios.put(priority, n = new int[1]);
+	else
+		collisions++;
+	n[0]++;
+}
+
+//--------------------------------------------------------------------------
+
+public Event removeFirst()
+{
+	sizes.add(queue.size());
+	final Event ev = queue.removeFirst();
+	if (ev == null) {
+		report(CommonState.getTime(), true);
+		return null;
+	}
+
+	final TreeMap<Long,int[]> prios = pending.get(ev.time);
+	final Map.Entry<Long,int[]> first = prios.firstEntry();
+	if (--first.getValue()[0] == 0) {
+		prios.remove(first.getKey());
+		if (prios.isEmpty())
+			pending.remove(ev.time);
+	}
+
+	final long end = CommonState.getEndTime();
+	if (end >= 0 && ev.time >= end)
+		report(ev.time, true);
+	else if (step > 0 && ev.time >= next) {
+		report(ev.time, false);
+		// skip the periods with no events, without overflowing
+		while (ev.time - next >= step && next <= Long.MAX_VALUE - step)
+			next += step;
+		next = (next <= Long.MAX_VALUE - step ? next + step : Long.MAX_VALUE);
+	}
+	return ev;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Prints the statistics.
+ * @param time the time of the report
+ * @param last true if this is the final report; only one final report is
+ *   printed
+ */
+private void report(long time, boolean last)
+{
+	if (done)
+		return;
+	done = last;
+	System.out.println(name + ": size " + time + " " + queue.size() + " " +
+			sizes);
+	sizes.reset();
+	for (Map.Entry<String,long[]> e : classes.entrySet())
+		System.out.println(name + ": class " + e.getKey() + " " +
+				e.getValue()[0]);
+	System.out.println(name + ": horizon " + horizons);
+	for (int i = 0; i < bins.length; ++i) {
+		if (bins[i] > 0)
+			System.out.println(name + ": horizon-bin " + i + " " + bins[i]);
+	}
+	System.out.println(name + ": ties " + ties + " " + collisions + " " +
+			(queue.maxPriority() + 1));
+}
+
+}
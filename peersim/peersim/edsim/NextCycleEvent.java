@@ -152,8 +152,9 @@ public final void execute() {
 
 	if( nodeUp || perssch ) 
 	{
-		long delay = nextDelay(CDScheduler.sch[pid].step);
-		if( CommonState.getTime()+delay < CDScheduler.sch[pid].until )
+		final Scheduler s = CDScheduler.getScheduler(pid);
+		long delay = nextDelay(s.step);
+		if( CommonState.getTime()+delay < s.until )
 			EDSimulator.add(delay, this, node, pid);
 	}
 
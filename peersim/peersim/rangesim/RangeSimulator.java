@@ -19,7 +19,9 @@
 package peersim.rangesim;
 
 import java.io.*;
+import java.security.*;
 import java.util.*;
+import java.util.regex.*;
 
 import peersim.*;
 import peersim.config.*;
@@ -81,6 +83,55 @@ java peersim.rangesim.RangeSimulator config.file jvm.options=-Xmx256m
  * The new JVM inherits the same classpath as the JVM running the
  * RangeSimulator. The {@value #PAR_JVM} parameter can be used to
  * specify additional classpath specification.
+ * <p>
+ * By default, experiments are executed one at a time, and the output
+ * of each experiment is printed as soon as it is produced. If
+ * {@value #PAR_PARALLELISM} is larger than one, up to that many JVMs are
+ * run concurrently, taking the experiments from a common queue. In this
+ * case the standard output of each experiment is buffered, and it is
+ * printed when the experiment terminates, in the order of the
+ * experiments, so the output is the same as in the sequential case.
+ * The standard error of the experiments is printed immediately.
+ * The seeds of the experiments are drawn in the same order
+ * in both cases. Failed experiments (whose JVM terminates with a non-zero
+ * exit code) can be retried (see {@value #PAR_RETRIES}), and the results of
+ * completed experiments can be recorded in a file so that an interrupted
+ * set of experiments can be resumed (see {@value #PAR_RESUME}).
+ * These two features also work if {@value #PAR_PARALLELISM} is one,
+ * but the output is buffered in the same way in this case too.
+ * <p>
+ * Starting a JVM for each experiment can take longer than the experiment
+ * itself, if experiments are short. Parameter {@value #PAR_REUSE} allows
+ * each JVM to run several experiments, one after the other (see
+ * {@link SimulatorWorker}). This is correct only if the components used in
+ * the simulation do not keep information in static fields across
+ * experiments; the core components of the simulator are reset before
+ * each experiment.
+ * <p>
+ * The output of the experiments can be stored in a cache directory (see
+ * {@value #PAR_CACHE}), so that experiments that were already run, even
+ * as part of a different set of experiments, are not run again. An
+ * experiment is identified by its full configuration (the properties
+ * read from the configuration files and the command line, except those
+ * of the range simulator) together with the values of its range
+ * parameters and its random seed. The code of the simulation is not
+ * part of the identity of an experiment, so the cache must be cleared
+ * when the code changes. Note that the seeds of the experiments depend
+ * on their position in the set of experiments.
+ * <p>
+ * If {@value peersim.Simulator#PAR_EXPS} is specified, the experiments
+ * of each combination of the values of the range parameters can be
+ * stopped early, once enough of them have been run to estimate a metric
+ * with the requested precision (see {@value #PAR_STOP}).
+ * The value of the metric in each experiment is extracted from its
+ * standard output, and the experiments of a combination are not run any
+ * more once the 95% confidence interval of the average of the metric is
+ * narrower than a given fraction of the average (see
+ * {@value #PAR_PRECISION}).
+ * Since the experiments are run in the order of their
+ * index, this is done after each round of experiments; if
+ * {@value #PAR_PARALLELISM} is larger than one, some experiments may be
+ * started before the decision is taken, and they are not stopped.
  * 
  * @author Alberto Montresor
  * @version $Revision$
@@ -107,6 +158,72 @@ private static final String PAR_RANGE = "range";
  */
 public static final String PAR_JVM = "jvm.options";
 
+/**
+ * The maximal number of JVMs running experiments concurrently.
+ * Defaults to 1. This parameter is not a range specification, even if its
+ * name starts with {@value #PAR_RANGE}.
+ * @config
+ */
+private static final String PAR_PARALLELISM = PAR_RANGE + ".parallelism";
+
+/**
+ * The number of times a failed experiment is run again before giving up.
+ * Defaults to 0.
+ * @config
+ */
+private static final String PAR_RETRIES = PAR_RANGE + ".retries";
+
+/**
+ * The name of a file in which the output of the completed experiments is
+ * recorded. If the file exists when the range simulator is started, the
+ * experiments recorded in it are not run again, but their recorded output
+ * is printed. Experiments are identified by the values of the
+ * range parameters. Not set by default.
+ * @config
+ */
+private static final String PAR_RESUME = PAR_RANGE + ".resume";
+
+/**
+ * The maximum number of experiments run by the same JVM; if 0, a JVM
+ * runs any number of experiments. Defaults to 1, that is, a new JVM is
+ * started for each experiment.
+ * @config
+ */
+private static final String PAR_REUSE = PAR_RANGE + ".reuse";
+
+/**
+ * The name of the directory used to cache the output of the experiments.
+ * It is created if it does not exist. Not set by default.
+ * @config
+ */
+private static final String PAR_CACHE = PAR_RANGE + ".cache";
+
+/**
+ * A regular expression that extracts the metric used to stop the
+ * experiments of a combination early. Its first group must match a number;
+ * the last match in the standard output of an experiment is the value of the
+ * metric in that experiment. For example, <code>control.avgo:.*
+ * ([^ ]+)$</code> selects the last value printed by observer
+ * <code>avgo</code>. If not set, all the experiments are run.
+ * @config
+ */
+private static final String PAR_STOP = PAR_RANGE + ".stop";
+
+/**
+ * The precision required to stop the experiments of a combination, as the
+ * ratio between the half width of the confidence interval and the absolute
+ * value of the average of the metric. Defaults to 0.05.
+ * @config
+ */
+private static final String PAR_PRECISION = PAR_STOP + ".precision";
+
+/**
+ * The minimum number of experiments run for each combination before
+ * stopping it. Defaults to 5.
+ * @config
+ */
+private static final String PAR_MINEXPS = PAR_STOP + ".min";
+
 
 // --------------------------------------------------------------------------
 // Static variables
@@ -127,6 +244,58 @@ private String[] args;
 /** The current process that is executed */
 private Process p;
 
+/** Value of {@value #PAR_PARALLELISM} */
+private int parallelism;
+
+/** Value of {@value #PAR_RETRIES} */
+private int retries;
+
+/** Value of {@value #PAR_RESUME}, or null */
+private String resume;
+
+/** Value of {@value #PAR_REUSE} */
+private int reuse;
+
+/** Number of elements of the JVM command line preceding the main class */
+private int jvmlen;
+
+/** The JVMs reused by the worker pool */
+private final ArrayList<SimulatorWorker> jvms = new ArrayList<SimulatorWorker>();
+
+/** The loaded configuration */
+private Properties properties;
+
+/** Value of {@value #PAR_CACHE}, or null */
+private File cache;
+
+/** Value of {@value #PAR_STOP}, or null */
+private Pattern metric;
+
+/** Value of {@value #PAR_PRECISION} */
+private double precision;
+
+/** Value of {@value #PAR_MINEXPS} */
+private int minexps;
+
+/** Statistics of the metric, for each combination of the range values */
+private final HashMap<String, IncrementalStats> stats =
+	new HashMap<String, IncrementalStats>();
+
+/** The processes executed by the worker pool */
+private final Set<Process> running = new HashSet<Process>();
+
+/** True if the shutdown thread has stopped the simulator */
+private boolean stopped = false;
+
+/** The experiments, in the order their output has to be printed */
+private ArrayList<Experiment> experiments;
+
+/** Index of the first experiment whose output has not been printed yet */
+private int nextout;
+
+/** Writer used to record the completed experiments, or null */
+private PrintWriter journal;
+
 
 // --------------------------------------------------------------------------
 // Main
@@ -159,7 +328,7 @@ public RangeSimulator(String[] args)
 
 	// Read property file
 	System.err.println("Simulator: loading configuration");
-	Properties properties = new ParsedProperties(args);
+	properties = new ParsedProperties(args);
 	Configuration.setConfig(properties);
 	
 	// Read jvm options and separate them in different strings
@@ -169,6 +338,37 @@ public RangeSimulator(String[] args)
 	else
 		jvmoptions = opt.split(" ");
 
+	parallelism = Configuration.getInt(PAR_PARALLELISM, 1);
+	if (parallelism < 1)
+		throw new IllegalParameterException(PAR_PARALLELISM,
+				"should be at least 1");
+	retries = Configuration.getInt(PAR_RETRIES, 0);
+	resume = Configuration.getString(PAR_RESUME, null);
+	reuse = Configuration.getInt(PAR_REUSE, 1);
+	if (reuse < 0)
+		throw new IllegalParameterException(PAR_REUSE,
+				"should not be negative");
+	String dir = Configuration.getString(PAR_CACHE, null);
+	if (dir != null) {
+		cache = new File(dir);
+		if (!cache.isDirectory() && !cache.mkdirs())
+			throw new IllegalParameterException(PAR_CACHE,
+					"Cannot create directory " + dir);
+	}
+	String regex = Configuration.getString(PAR_STOP, null);
+	if (regex != null) {
+		if (!Configuration.contains(Simulator.PAR_EXPS))
+			throw new IllegalParameterException(PAR_STOP,
+					"requires " + Simulator.PAR_EXPS);
+		try {
+			metric = Pattern.compile(regex);
+		} catch (PatternSyntaxException e) {
+			throw new IllegalParameterException(PAR_STOP, e.getMessage());
+		}
+		precision = Configuration.getDouble(PAR_PRECISION, 0.05);
+		minexps = Configuration.getInt(PAR_MINEXPS, 5);
+	}
+
 	// Parse range parameters
 	parseRanges();
 
@@ -210,8 +410,15 @@ public void run()
  */
 private void parseRanges()
 {
-	// Get ranges
-	String[] ranges = Configuration.getNames(PAR_RANGE);
+	// Get ranges, skipping the options of the range simulator
+	ArrayList<String> tmp = new ArrayList<String>();
+	for (String name : Configuration.getNames(PAR_RANGE)) {
+		if (!name.equals(PAR_PARALLELISM) && !name.equals(PAR_RETRIES)
+				&& !name.equals(PAR_RESUME) && !name.equals(PAR_REUSE)
+				&& !name.equals(PAR_CACHE) && !name.equals(PAR_STOP))
+			tmp.add(name);
+	}
+	String[] ranges = tmp.toArray(new String[tmp.size()]);
 
 	// Start is the first element in which ranges are stored
 	int start;
@@ -281,6 +488,7 @@ private void doExperiments(String[] args)
 		list.add(jvmoptions[i]);
 	
 	// The class to be run in the forked JVM
+	jvmlen = list.size();
 	list.add("peersim.Simulator");
 	
 	// Parameters specified on the command line
@@ -290,6 +498,7 @@ private void doExperiments(String[] args)
 	
 	// Since multiple experiments are managed here, the value
 	// of standard variable for multiple experiments is changed to 1
+	int startexp = list.size();
 	list.add(Simulator.PAR_EXPS+"=1");
 
 	// Activate redirection to separate stdout from stderr
@@ -307,6 +516,10 @@ private void doExperiments(String[] args)
 		list.add("");
 		
 	// Execute with different values
+	final boolean pool = parallelism > 1 || retries > 0 || resume != null
+			|| reuse != 1 || cache != null || metric != null;
+	String config = (cache == null ? null : configuration());
+	experiments = new ArrayList<Experiment>();
 	int[] idx = new int[values.length]; // Initialized to 0
 	while (idx[0] < values[0].length) {
 
@@ -330,14 +543,523 @@ private void doExperiments(String[] args)
 		long seed = CommonState.r.nextLong();
 		list.set(startseed, CommonState.PAR_SEED+"="+seed);
 
-		System.err.println("Experiment: " + log);
-		
-		executeProcess(list);
+		if (pool) {
+			Experiment e = new Experiment(log.toString(),
+				list.toArray(new String[list.size()]));
+			if (config != null)
+				e.key = digest(config, list.subList(startexp, list.size()));
+			if (metric != null) {
+				// the combination, without the experiment index
+				e.point = log.substring(log.indexOf(" ", 4) + 1);
+			}
+			experiments.add(e);
+		} else {
+			System.err.println("Experiment: " + log);
+			executeProcess(list);
+		}
 
 		// Increment values
 		nextValues(idx, values);
 	
 	}
+	
+	if (pool)
+		executePool();
+}
+
+//--------------------------------------------------------------------
+
+/**
+ * Executes the experiments collected in {@link #experiments} using
+ * {@value #PAR_PARALLELISM} worker threads, each of them running one JVM
+ * at a time.
+ */
+private void executePool()
+{
+	nextout = 0;
+	if (resume != null) {
+		readJournal();
+		try {
+			journal = new PrintWriter(new BufferedWriter(
+				new FileWriter(resume, true)));
+		} catch (IOException e) {
+			throw new IllegalParameterException(PAR_RESUME,
+				"Cannot write " + resume + ": " + e.getMessage());
+		}
+	}
+	
+	// looks for the output of the other experiments in the cache
+	for (Experiment e : experiments) {
+		if (e.done)
+			record(e);
+		else if (readCache(e))
+			record(e);
+	}
+	
+	// prints the output of the experiments read from the journal
+	// and from the cache
+	completed();
+	
+	final LinkedList<Experiment> queue = new LinkedList<Experiment>();
+	for (Experiment e : experiments) {
+		if (!e.done) queue.add(e);
+	}
+	Thread[] workers = new Thread[Math.min(parallelism, queue.size())];
+	for (int i = 0; i < workers.length; i++) {
+		final SimulatorWorker jvm = createWorker(queue.getFirst().cmd);
+		workers[i] = new Thread() {
+			public void run() {
+				while (true) {
+					Experiment e;
+					synchronized (queue) {
+						if (queue.isEmpty()) break;
+						e = queue.removeFirst();
+					}
+					if (converged(e.point)) {
+						synchronized (RangeSimulator.this) {
+							e.skipped = true;
+							e.done = true;
+							completed();
+						}
+					} else {
+						runExperiment(e, jvm);
+					}
+				}
+				if (jvm != null)
+					jvm.close();
+			}
+		};
+		workers[i].start();
+	}
+	for (int i = 0; i < workers.length; i++) {
+		while (workers[i].isAlive()) {
+			try {
+				workers[i].join();
+			} catch (InterruptedException e) {
+			}
+		}
+	}
+	if (journal != null)
+		journal.close();
+	if (metric != null)
+		printStats();
+}
+
+//--------------------------------------------------------------------
+
+/**
+ * Creates a worker running the JVMs with the given command line, if
+ * JVMs have to be reused. Returns null otherwise.
+ */
+private SimulatorWorker createWorker(String[] cmd)
+{
+	if (reuse == 1)
+		return null;
+	String[] prefix = new String[jvmlen];
+	System.arraycopy(cmd, 0, prefix, 0, jvmlen);
+	SimulatorWorker jvm = new SimulatorWorker(prefix, reuse);
+	synchronized (running) {
+		if (stopped)
+			jvm.doStop();
+		jvms.add(jvm);
+	}
+	return jvm;
+}
+
+//--------------------------------------------------------------------
+
+/**
+ * Runs the given experiment, retrying it at most {@value #PAR_RETRIES}
+ * times if it fails. If <code>jvm</code> is not null, the experiment is
+ * run by it, otherwise in a new JVM.
+ */
+private void runExperiment(Experiment e, SimulatorWorker jvm)
+{
+	for (int attempt = 0; attempt <= retries; attempt++) {
+		System.err.println("Experiment: " + e.log +
+			(attempt > 0 ? "(attempt " + (attempt + 1) + ")" : ""));
+		e.out.setLength(0);
+		boolean ok;
+		if (jvm != null) {
+			String[] args = new String[e.cmd.length - jvmlen - 1];
+			System.arraycopy(e.cmd, jvmlen + 1, args, 0, args.length);
+			ok = jvm.execute(args, e.out);
+		} else {
+			ok = executeBuffered(e);
+		}
+		if (ok) {
+			e.failed = false;
+			writeCache(e);
+			record(e);
+			break;
+		}
+		e.failed = true;
+		System.err.println("Experiment failed: " + e.log);
+	}
+	synchronized (this) {
+		e.done = true;
+		completed();
+	}
+}
+
+//--------------------------------------------------------------------
+
+/**
+ * Prints the output of the completed experiments that are not preceded
+ * by running experiments, and records them in the journal.
+ */
+private synchronized void completed()
+{
+	while (nextout < experiments.size() && experiments.get(nextout).done) {
+		Experiment e = experiments.get(nextout++);
+		System.out.print(e.out);
+		System.out.flush();
+		if (journal != null && !e.failed && !e.resumed && !e.skipped) {
+			journal.println("= " + e.log);
+			BufferedReader r = new BufferedReader(
+				new StringReader(e.out.toString()));
+			String line;
+			try {
+				while ((line = r.readLine()) != null) {
+					journal.println("> " + line);
+				}
+			} catch (IOException ex) {
+				// never happens with a StringReader
+			}
+			journal.println(".");
+			journal.flush();
+		}
+		e.out = null;
+	}
+}
+
+//--------------------------------------------------------------------
+
+/**
+ * Reads the journal file and marks the experiments recorded in it as
+ * done, with the recorded output. Incomplete records (e.g. because the
+ * range simulator was killed while writing them) are ignored.
+ */
+private void readJournal()
+{
+	if (!new File(resume).exists())
+		return;
+	HashMap<String, Experiment> bylog = new HashMap<String, Experiment>();
+	for (Experiment e : experiments) {
+		bylog.put(e.log, e);
+	}
+	int count = 0;
+	try {
+		BufferedReader in = new BufferedReader(new FileReader(resume));
+		String line;
+		String log = null;
+		StringBuffer out = new StringBuffer();
+		while ((line = in.readLine()) != null) {
+			if (line.startsWith("= ")) {
+				log = line.substring(2);
+				out.setLength(0);
+			} else if (line.startsWith("> ") && log != null) {
+				out.append(line.substring(2)).append('\n');
+			} else if (line.equals(".") && log != null) {
+				Experiment e = bylog.get(log);
+				if (e != null && !e.done) {
+					e.out.append(out);
+					e.done = true;
+					e.resumed = true;
+					count++;
+				}
+				log = null;
+			}
+		}
+		in.close();
+	} catch (IOException e) {
+		throw new IllegalParameterException(PAR_RESUME,
+			"Cannot read " + resume + ": " + e.getMessage());
+	}
+	System.err.println("RangeSimulator: resuming, " + count + " of " +
+		experiments.size() + " experiments already done");
+}
+
+//--------------------------------------------------------------------
+
+/**
+ * Returns the properties of the loaded configuration that can affect the
+ * result of an experiment, in a canonical form.
+ */
+private String configuration()
+{
+	StringBuffer buffer = new StringBuffer();
+	for (Object key : new TreeSet<Object>(properties.keySet())) {
+		String name = key.toString();
+		if (name.startsWith(PAR_RANGE + ".") || name.equals(PAR_JVM))
+			continue;
+		buffer.append(name).append('=');
+		buffer.append(properties.get(key)).append('\n');
+	}
+	return buffer.toString();
+}
+
+//--------------------------------------------------------------------
+
+/**
+ * Returns the name of the cache entry of an experiment, that is the SHA-1
+ * digest of the configuration and of the parameters that are specific
+ * to the experiment, in hexadecimal form.
+ */
+private static String digest(String config, List<String> pars)
+{
+	try {
+		MessageDigest md = MessageDigest.getInstance("SHA-1");
+		md.update(config.getBytes("UTF-8"));
+		for (String par : pars) {
+			md.update(par.getBytes("UTF-8"));
+			md.update((byte) '\n');
+		}
+		StringBuffer hex = new StringBuffer();
+		for (byte b : md.digest()) {
+			hex.append(Character.forDigit((b >> 4) & 0xf, 16));
+			hex.append(Character.forDigit(b & 0xf, 16));
+		}
+		return hex.toString();
+	} catch (NoSuchAlgorithmException e) {
+		throw new RuntimeException(e);
+	} catch (UnsupportedEncodingException e) {
+		throw new RuntimeException(e);
+	}
+}
+
+//--------------------------------------------------------------------
+
+/**
+ * Reads the output of the given experiment from the cache, if present.
+ * @return true if the output has been found
+ */
+private boolean readCache(Experiment e)
+{
+	if (e.key == null)
+		return false;
+	File file = new File(cache, e.key);
+	if (!file.exists())
+		return false;
+	try {
+		Reader in = new InputStreamReader(new FileInputStream(file), "UTF-8");
+		char[] buf = new char[4096];
+		int n;
+		while ((n = in.read(buf)) > 0) {
+			e.out.append(buf, 0, n);
+		}
+		in.close();
+	} catch (IOException ex) {
+		System.err.println("RangeSimulator: cannot read " + file + ": " +
+			ex.getMessage());
+		e.out.setLength(0);
+		return false;
+	}
+	e.done = true;
+	e.resumed = true;
+	return true;
+}
+
+//--------------------------------------------------------------------
+
+/**
+ * Writes the output of the given experiment in the cache. The output is
+ * first written in a temporary file, which is then renamed, so that
+ * partial outputs are never found in the cache.
+ */
+private void writeCache(Experiment e)
+{
+	if (e.key == null)
+		return;
+	File file = new File(cache, e.key);
+	File tmp = new File(cache, e.key + ".tmp" + Thread.currentThread().getId());
+	try {
+		Writer out = new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8");
+		out.write(e.out.toString());
+		out.close();
+		if (!tmp.renameTo(file)) {
+			file.delete();
+			if (!tmp.renameTo(file))
+				throw new IOException("cannot rename " + tmp);
+		}
+	} catch (IOException ex) {
+		System.err.println("RangeSimulator: cannot write " + file + ": " +
+			ex.getMessage());
+		tmp.delete();
+	}
+}
+
+//--------------------------------------------------------------------
+
+/**
+ * Adds the value of the metric in the output of the given experiment to the
+ * statistics of its combination of range values.
+ */
+private void record(Experiment e)
+{
+	if (metric == null || e.failed)
+		return;
+	double value = Double.NaN;
+	Matcher m = metric.matcher("");
+	BufferedReader r = new BufferedReader(new StringReader(e.out.toString()));
+	String line;
+	try {
+		while ((line = r.readLine()) != null) {
+			m.reset(line);
+			if (m.find()) {
+				try {
+					value = Double.parseDouble(m.group(1));
+				} catch (NumberFormatException ex) {
+				}
+			}
+		}
+	} catch (IOException ex) {
+		// never happens with a StringReader
+	}
+	if (Double.isNaN(value)) {
+		System.err.println("RangeSimulator: metric not found in the output" +
+			" of experiment " + e.log);
+		return;
+	}
+	synchronized (stats) {
+		IncrementalStats is = stats.get(e.point);
+		if (is == null) {
+			is = new IncrementalStats();
+			stats.put(e.point, is);
+		}
+		is.add(value);
+	}
+}
+
+//--------------------------------------------------------------------
+
+/**
+ * Returns true if the metric of the given combination of range values has
+ * been estimated with the requested precision.
+ */
+private boolean converged(String point)
+{
+	if (metric == null)
+		return false;
+	synchronized (stats) {
+		IncrementalStats is = stats.get(point);
+		if (is == null || is.getN() < Math.max(minexps, 2))
+			return false;
+		return halfWidth(is) <= precision * Math.abs(is.getAverage());
+	}
+}
+
+//--------------------------------------------------------------------
+
+/**
+ * Returns the half width of the 95% confidence interval of the average
+ * (normal approximation).
+ */
+private static double halfWidth(IncrementalStats is)
+{
+	return 1.96 * is.getStD() / Math.sqrt(is.getN());
+}
+
+//--------------------------------------------------------------------
+
+/**
+ * Prints on the standard error the statistics of the metric for each
+ * combination of range values.
+ */
+private void printStats()
+{
+	HashSet<String> printed = new HashSet<String>();
+	for (Experiment e : experiments) {
+		if (!printed.add(e.point))
+			continue;
+		IncrementalStats is = stats.get(e.point);
+		if (is == null)
+			continue;
+		System.err.println("RangeSimulator: " + e.point + "experiments " +
+			is.getN() + " average " + is.getAverage() + " halfwidth " +
+			(is.getN() > 1 ? halfWidth(is) : Double.NaN) +
+			(converged(e.point) ? "" : " (not converged)"));
+	}
+}
+
+//--------------------------------------------------------------------
+
+/**
+ * Executes the given experiment in a new JVM, storing its standard output
+ * in the buffer of the experiment.
+ * @return true if the JVM terminated normally with exit code 0
+ */
+private boolean executeBuffered(Experiment e)
+{
+	Process proc;
+	try {
+		ProcessBuilder pb = new ProcessBuilder(e.cmd);
+		pb.redirectErrorStream(true);
+		proc = startRegistered(pb);
+	} catch (IOException e1) {
+		try {
+			String[] cmd = e.cmd.clone();
+			cmd[0] = "java";
+			ProcessBuilder pb = new ProcessBuilder(cmd);
+			pb.redirectErrorStream(true);
+			proc = startRegistered(pb);
+		} catch (IOException e2) {
+			System.err.println("Unable to launch a Java virtual machine");
+			return false;
+		}
+	}
+	if (proc == null)
+		return false; // shutting down
+
+	BufferedReader toprint = new BufferedReader(new InputStreamReader(
+			proc.getInputStream()));
+	int exit = -1;
+	try {
+		String line;
+		while ((line = toprint.readLine()) != null) {
+			if (line.length() == 0) {
+				e.out.append('\n');
+			} else if (line.charAt(line.length()-1) != TaggedOutputStream.TAG) {
+				System.err.println(line);
+			} else {
+				e.out.append(line, 0, line.length()-1).append('\n');
+			}
+		}
+		exit = proc.waitFor();
+	} catch (IOException ex) {
+		// the process has been killed by the shutdown thread
+	} catch (InterruptedException ex) {
+	}
+	
+	try {
+		proc.getErrorStream().close();
+		proc.getInputStream().close();
+		proc.getOutputStream().close();
+	} catch (IOException ex) {
+		ex.printStackTrace();
+	}
+	synchronized (running) {
+		proc.destroy();
+		running.remove(proc);
+	}
+	return exit == 0;
+}
+
+//--------------------------------------------------------------------
+
+/**
+ * Starts the given process and registers it, so that it is killed on
+ * shutdown. Returns null if the simulator is shutting down.
+ */
+private Process startRegistered(ProcessBuilder pb) throws IOException
+{
+	synchronized (running) {
+		if (stopped)
+			return null;
+		Process proc = pb.start();
+		running.add(proc);
+		return proc;
+	}
 }
 
 //--------------------------------------------------------------------
@@ -447,6 +1169,15 @@ public void doStop()
 {
 	if (p != null)
 		p.destroy();
+	synchronized (running) {
+		stopped = true;
+		for (Process proc : running) {
+			proc.destroy();
+		}
+		for (SimulatorWorker jvm : jvms) {
+			jvm.doStop();
+		}
+	}
 }
 
 /**
@@ -458,4 +1189,45 @@ public void join() throws InterruptedException
 	p.waitFor();
 }
 
+//--------------------------------------------------------------------
+
+/**
+ * An experiment to be executed by the worker pool.
+ */
+private static class Experiment
+{
+	/** The values of the range parameters */
+	final String log;
+
+	/** The command line of the JVM */
+	final String[] cmd;
+
+	/** The standard output of the experiment */
+	StringBuffer out = new StringBuffer();
+
+	/** True if the experiment has terminated */
+	volatile boolean done = false;
+
+	/** True if the last attempt failed */
+	boolean failed = false;
+
+	/** True if the output has been read from the journal or the cache */
+	boolean resumed = false;
+
+	/** True if the experiment has not been run because not needed */
+	boolean skipped = false;
+
+	/** The name of the cache entry of the experiment, or null */
+	String key;
+
+	/** The values of the range parameters, except the experiment index */
+	String point;
+
+	Experiment(String log, String[] cmd)
+	{
+		this.log = log;
+		this.cmd = cmd;
+	}
+}
+
 }
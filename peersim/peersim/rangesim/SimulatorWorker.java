@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA.
+ *
+ */
+
+package peersim.rangesim;
+
+import java.io.*;
+
+import peersim.*;
+import peersim.config.*;
+
+/**
+ * A Java virtual machine that runs several experiments, one after the
+ * other, so that the cost of starting the JVM, of looking up the classes
+ * and of compiling the code is paid only once.
+ * <p>
+ * The {@link #main} method of this class is run by the forked JVM. It reads
+ * the command line of each experiment from the standard input, as a line
+ * containing the number of arguments followed by one argument per line.
+ * The experiment is run as {@link Simulator#main} would do, after resetting
+ * the static state of the simulator with {@link Simulator#reset}. The
+ * output of the experiment is written on the standard output as usual
+ * (it is normally tagged with {@link TaggedOutputStream}), and it is
+ * followed by a line containing the {@link #END} character and the exit
+ * status of the experiment. The JVM terminates when its standard input is
+ * closed. Exceptions other than configuration errors terminate the JVM, as
+ * they would do with {@link Simulator}.
+ * <p>
+ * The instances of this class are used by the process that forks the JVM
+ * to send the experiments and to collect their output; a new JVM is
+ * started when needed, for example because the previous one terminated
+ * or had already run the maximum number of experiments it was allowed to.
+ * <p>
+ * Note that static state is reset only for the core classes of the
+ * simulator; components that keep information in static fields across
+ * experiments cannot be used with this class.
+ */
+public class SimulatorWorker implements ProcessHandler
+{
+
+//--------------------------------------------------------------------------
+//Constants
+//--------------------------------------------------------------------------
+
+/**
+ * A line starting with this character marks the end of the output of an
+ * experiment; the rest of the line is its exit status.
+ */
+public static final int END = 2;
+
+//--------------------------------------------------------------------------
+//Fields
+//--------------------------------------------------------------------------
+
+/** The command line used to start the JVM, without the main class */
+private final String[] jvm;
+
+/** Maximum number of experiments run by a JVM, 0 if unbounded */
+private final int limit;
+
+/** The running JVM, or null */
+private Process proc;
+
+/** Used to send experiments to the running JVM */
+private PrintWriter input;
+
+/** Used to read the output of the running JVM */
+private BufferedReader output;
+
+/** Number of experiments run by the running JVM */
+private int count;
+
+/** True if the JVM has been stopped by the shutdown thread */
+private boolean stopped = false;
+
+//--------------------------------------------------------------------------
+//Initialization
+//--------------------------------------------------------------------------
+
+/**
+ * Creates a worker that runs its JVMs with the given command line.
+ * @param jvm the java executable followed by its options; the name
+ *   of the main class is added by this class
+ * @param limit the maximum number of experiments run by the same
+ *   JVM; if 0, a JVM is replaced only when it terminates
+ */
+public SimulatorWorker(String[] jvm, int limit)
+{
+	this.jvm = new String[jvm.length + 1];
+	System.arraycopy(jvm, 0, this.jvm, 0, jvm.length);
+	this.jvm[jvm.length] = SimulatorWorker.class.getName();
+	this.limit = limit;
+}
+
+//--------------------------------------------------------------------------
+//Methods
+//--------------------------------------------------------------------------
+
+/**
+ * Runs an experiment in the JVM managed by this object, starting a new
+ * JVM if needed. The tagged lines of the output are appended to
+ * <code>out</code> (without the tag), while the other lines are
+ * printed on the standard error.
+ * @param args the command line of the experiment, as it would be passed
+ *   to {@link Simulator#main}
+ * @param out where the standard output of the experiment is appended
+ * @return true if the experiment terminated normally
+ */
+public boolean execute(String[] args, Appendable out)
+{
+	if (proc == null && !start())
+		return false;
+	int status = -1;
+	try {
+		input.println(args.length);
+		for (int i = 0; i < args.length; i++) {
+			input.println(args[i]);
+		}
+		input.flush();
+		String line;
+		while ((line = output.readLine()) != null) {
+			if (line.length() == 0) {
+				out.append('\n');
+			} else if (line.charAt(0) == END) {
+				status = Integer.parseInt(line.substring(1));
+				break;
+			} else if (line.charAt(line.length()-1) != TaggedOutputStream.TAG) {
+				System.err.println(line);
+			} else {
+				out.append(line, 0, line.length()-1).append('\n');
+			}
+		}
+	} catch (IOException e) {
+		// the JVM has been killed by the shutdown thread
+	}
+
+	// If the JVM terminated without completing the experiment (for example
+	// because System.exit() has been called) its exit code is used.
+	if (status < 0)
+		status = close();
+	else if (++count == limit)
+		close();
+	return status == 0;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Terminates the running JVM, if any, by closing its standard input.
+ * @return the exit code of the JVM, or -1 if it could not be obtained
+ */
+public int close()
+{
+	Process p;
+	synchronized (this) {
+		if (proc == null)
+			return -1;
+		p = proc;
+		proc = null;
+	}
+	input.close();
+	int exit = -1;
+	try {
+		exit = p.waitFor();
+	} catch (InterruptedException e) {
+	}
+
+	// See RangeSimulator.executeProcess() for why the streams are closed
+	try {
+		p.getErrorStream().close();
+		p.getInputStream().close();
+		p.getOutputStream().close();
+	} catch (IOException e) {
+		e.printStackTrace();
+	}
+	p.destroy();
+	return exit;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Starts a new JVM. We try to run the same JVM as the current one;
+ * if not possible, we use the first java command found in the path.
+ * @return false if the JVM could not be started or the simulator is
+ *   shutting down
+ */
+private synchronized boolean start()
+{
+	if (stopped)
+		return false;
+	try {
+		ProcessBuilder pb = new ProcessBuilder(jvm);
+		pb.redirectErrorStream(true);
+		proc = pb.start();
+	} catch (IOException e1) {
+		try {
+			String[] cmd = jvm.clone();
+			cmd[0] = "java";
+			ProcessBuilder pb = new ProcessBuilder(cmd);
+			pb.redirectErrorStream(true);
+			proc = pb.start();
+		} catch (IOException e2) {
+			System.err.println("Unable to launch a Java virtual machine");
+			return false;
+		}
+	}
+	input = new PrintWriter(new OutputStreamWriter(proc.getOutputStream()));
+	output = new BufferedReader(new InputStreamReader(proc.getInputStream()));
+	count = 0;
+	return true;
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Kills the running JVM; no JVM will be started after this.
+ */
+public synchronized void doStop()
+{
+	stopped = true;
+	if (proc != null)
+		proc.destroy();
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Waits until the running JVM, if any, has terminated.
+ */
+public void join() throws InterruptedException
+{
+	Process p = proc;
+	if (p != null)
+		p.waitFor();
+}
+
+//--------------------------------------------------------------------------
+//Worker JVM
+//--------------------------------------------------------------------------
+
+/**
+ * Runs the experiments read from the standard input, until it is closed.
+ */
+public static void main(String[] args)
+{
+	BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+	PrintStream stdout = System.out;
+	String[] exp;
+	while ((exp = readExperiment(in)) != null) {
+		int status = runExperiment(exp);
+		System.err.flush();
+		stdout.println((char) END + "" + status);
+		stdout.flush();
+	}
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Reads the command line of the next experiment.
+ * @return the command line, or null if the standard input has been closed
+ */
+private static String[] readExperiment(BufferedReader in)
+{
+	try {
+		String line = in.readLine();
+		if (line == null)
+			return null;
+		String[] exp = new String[Integer.parseInt(line.trim())];
+		for (int i = 0; i < exp.length; i++) {
+			exp[i] = in.readLine();
+			if (exp[i] == null)
+				return null;
+		}
+		return exp;
+	} catch (IOException e) {
+		return null;
+	}
+}
+
+//--------------------------------------------------------------------------
+
+/**
+ * Runs an experiment in this JVM, as {@link Simulator#main} would do.
+ * @return the exit status of the experiment
+ */
+private static int runExperiment(String[] args)
+{
+	PrintStream stdout = System.out;
+	try {
+		Configuration.reset();
+		System.err.println("Simulator: loading configuration");
+		Configuration.setConfig(new ParsedProperties(args));
+		Simulator.reset();
+
+		PrintStream newout = (PrintStream) Configuration.getInstance(
+				Simulator.PAR_REDIRECT, stdout);
+		if (newout != stdout)
+			System.setOut(newout);
+		Simulator.runExperiments();
+		return 0;
+	} catch (MissingParameterException e) {
+		System.err.println(e + "");
+		return 1;
+	} catch (IllegalParameterException e) {
+		System.err.println(e + "");
+		return 1;
+	} finally {
+		System.out.flush();
+		System.setOut(stdout);
+	}
+}
+
+}
@@ -120,6 +120,26 @@ protected GraphObserver(String name) {
 // ====================== methods ======================================
 // =====================================================================
 
+/**
+* Discards the graph cached by {@link #updateGraph}. It is needed only if
+* several independent simulations are run in the same JVM (see
+* {@link peersim.config.Configuration#reset}), because the cached graph could
+* otherwise be taken for the current one.
+*/
+public static void reset() {
+
+	lastpid = -1234;
+	time = -1234;
+	phase = -1234;
+	ctime = -1234;
+	dirg = null;
+	undirg = null;
+	fast = false;
+	needUndir = false;
+}
+
+// ---------------------------------------------------------------------
+
 /**
 * Sets {@link #g}.
 * It MUST be called by any implementation of {@link #execute()} before
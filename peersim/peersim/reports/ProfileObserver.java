@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.reports;
+
+import peersim.config.*;
+import peersim.core.*;
+
+/**
+ * Switches on the {@link Profiler} and reports the data it collects. The
+ * profiler is enabled when this observer is created, that is, after the
+ * initializers have been run; each execution prints the data collected
+ * since then, so scheduling this observer also sets the frequency of the
+ * reports. Each report is made of a line of the form
+ * <pre>
+ * name: time T events E rate R queue Q
+ * </pre>
+ * where E is the total number of protocol and control calls, R is the
+ * number of calls per second of wall clock time since the previous report
+ * and Q is the largest size of the event queue seen so far (0 in
+ * cycle driven simulations), followed by a line of the form
+ * <pre>
+ * name: K N calls C ns T bytes B
+ * </pre>
+ * for each protocol and control that has been called at least once,
+ * where K is either <code>protocol</code> or <code>control</code> and
+ * N is its name. The nanoseconds and bytes of a control do not include
+ * those of the protocols it runs, if any.
+ */
+public class ProfileObserver implements Control
+{
+
+// ===================== fields =======================================
+// ====================================================================
+
+/**
+ * If defined, the bytes allocated by the simulation are measured too.
+ * This is supported only by some JVMs and considerably slows down the
+ * simulation. Not defined by default.
+ * @config
+ */
+private static final String PAR_ALLOC = "alloc";
+
+/** The name of this observer in the configuration */
+private final String name;
+
+/** The number of calls at the time of the previous report */
+private long events = 0;
+
+/** The wall clock time of the previous report */
+private long last;
+
+// ===================== initialization ================================
+// =====================================================================
+
+/**
+ * Standard constructor that reads the configuration parameters and
+ * enables the profiler.
+ * Invoked by the simulation engine.
+ * @param name the configuration prefix for this class
+ */
+public ProfileObserver(String name)
+{
+	this.name = name;
+	if (!Profiler.enable(Configuration.contains(name + "." + PAR_ALLOC)))
+		System.err.println(name + ": allocation cannot be measured "
+				+ "with this JVM");
+	last = System.nanoTime();
+}
+
+// ===================== methods =======================================
+// =====================================================================
+
+public boolean execute()
+{
+	final long now = System.nanoTime();
+	final long total = Profiler.getEvents();
+	final double rate = (now > last ? (total - events) * 1e9 / (now - last) : 0);
+	events = total;
+	last = now;
+	System.out.println(name + ": time " + CommonState.getTime() +
+		" events " + total + " rate " + (long) rate +
+		" queue " + Profiler.getQueueMax());
+	print(Profiler.PROTOCOL, "protocol");
+	print(Profiler.CONTROL, "control");
+	return false;
+}
+
+// --------------------------------------------------------------------
+
+private void print(int kind, String label)
+{
+	for (int i = 0; i < Profiler.size(kind); ++i) {
+		if (Profiler.getCount(kind, i) == 0)
+			continue;
+		System.out.println(name + ": " + label + " " +
+			Profiler.getName(kind, i) +
+			" calls " + Profiler.getCount(kind, i) +
+			" ns " + Profiler.getTime(kind, i) +
+			" bytes " + Profiler.getBytes(kind, i));
+	}
+}
+
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.transport;
+
+import peersim.config.*;
+import peersim.core.*;
+import peersim.edsim.*;
+
+
+/**
+ * Implements a transport layer that models the upload and download capacity
+ * of the nodes. Each node has an uplink and a downlink, that transmit
+ * one message at a time in FIFO order, at a rate given by their capacity.
+ * A message is delivered when it has been completely received, that is:
+ * <ul>
+ * <li>its upload starts when all the messages previously sent by
+ * the sender have been uploaded;</li>
+ * <li>its first part arrives at the receiver after the latency of the
+ * underlying transport (or a constant latency) since the upload started;
+ * </li>
+ * <li>its download starts when the first part has arrived and all the
+ * messages previously scheduled on the downlink of the receiver have been 
+ * downloaded;</li>
+ * <li>the download ends after the time needed to download the message at
+ * the capacity of the downlink, but not before the last part of the message
+ * has arrived.</li>
+ * </ul>
+ * The size of the messages is given by {@link SizedMessage#getSize}, or by
+ * parameter {@value #PAR_SIZE} for messages not implementing 
+ * {@link SizedMessage}.
+ * <p>
+ * The transmission of a message is computed when it is sent, so
+ * only one event is generated for each message, irrespective of its size.
+ * As a consequence, the capacity of a link is shared among the messages
+ * in the order they are sent, rather than concurrently; and the downlink
+ * of a node serves messages in the order they have been sent, not in the
+ * order their first part arrives. The occupation of the links is computed
+ * exactly, so a link can transmit several messages in a time unit; only
+ * the delivery time of each message is rounded up to a whole time unit.
+ * <p>
+ * The capacities can be assigned to each node using setters
+ * {@link #setUpload} and {@link #setDownload}, for example through
+ * {@link peersim.vector.UniformDistribution}. 
+ */
+public class BandwidthTransport implements Transport
+{
+
+//---------------------------------------------------------------------
+//Parameters
+//---------------------------------------------------------------------
+
+/** 
+ * The upload capacity of the nodes, in size units per time unit.
+ * @config
+ */
+private static final String PAR_UPLOAD = "upload";
+
+/** 
+ * The download capacity of the nodes, in size units per time unit.
+ * Defaults to infinity (downloads are limited only by uploads).
+ * @config
+ */
+private static final String PAR_DOWNLOAD = "download";
+
+/**
+ * The name of the transport protocol used to obtain the latency between
+ * nodes. If not specified, the latency is given by {@value #PAR_LATENCY}.
+ * @config
+ */
+private static final String PAR_TRANSPORT = "transport";
+
+/**
+ * The constant latency between nodes, if {@value #PAR_TRANSPORT} is not
+ * specified. Defaults to 0.
+ * @config
+ */
+private static final String PAR_LATENCY = "latency";
+
+/**
+ * The size of the messages not implementing {@link SizedMessage}.
+ * Defaults to 1.
+ * @config
+ */
+private static final String PAR_SIZE = "size";
+
+/**
+ * The maximum amount of data waiting to be uploaded by a node. Messages
+ * that would exceed it are dropped. Defaults to no limit.
+ * @config
+ */
+private static final String PAR_QUEUE = "queue";
+
+//---------------------------------------------------------------------
+//Fields
+//---------------------------------------------------------------------
+
+/** Identifier of this transport protocol */
+private final int tid;
+
+/** Identifier of the latency transport protocol, or -1 */
+private final int transport;
+
+/** Constant latency */
+private final long latency;
+
+/** Default message size */
+private final long size;
+
+/** Maximum upload backlog */
+private final double queue;
+
+/** Upload capacity of this node */
+private double upload;
+
+/** Download capacity of this node */
+private double download;
+
+/** Time at which the uplink becomes idle */
+private double upfree = 0;
+
+/** Time at which the downlink becomes idle */
+private double downfree = 0;
+
+//---------------------------------------------------------------------
+//Initialization
+//---------------------------------------------------------------------
+
+/**
+ * Reads configuration parameters.
+ */
+public BandwidthTransport(String prefix)
+{
+	tid = CommonState.getPid();
+	upload = Configuration.getDouble(prefix + "." + PAR_UPLOAD);
+	download = Configuration.getDouble(prefix + "." + PAR_DOWNLOAD,
+			Double.POSITIVE_INFINITY);
+	if (upload <= 0)
+		throw new IllegalParameterException(prefix + "." + PAR_UPLOAD,
+				"The capacity must be positive");
+	if (download <= 0)
+		throw new IllegalParameterException(prefix + "." + PAR_DOWNLOAD,
+				"The capacity must be positive");
+	transport = Configuration.getPid(prefix + "." + PAR_TRANSPORT, -1);
+	latency = Configuration.getLong(prefix + "." + PAR_LATENCY, 0);
+	size = Configuration.getLong(prefix + "." + PAR_SIZE, 1);
+	queue = Configuration.getDouble(prefix + "." + PAR_QUEUE,
+			Double.POSITIVE_INFINITY);
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Clones the object.
+ */
+public Object clone()
+{
+	BandwidthTransport bt=null;
+	try { bt=(BandwidthTransport)super.clone(); }
+	catch( CloneNotSupportedException e ) {} // never happens
+	return bt;
+}
+
+//---------------------------------------------------------------------
+//Methods inherited by Transport
+//---------------------------------------------------------------------
+
+/**
+ * Delivers the message when it has been completely received, as described
+ * in the class documentation. If the upload queue of the sender is full,
+ * the message is dropped.
+ */
+public void send(Node src, Node dest, Object msg, int pid)
+{
+	BandwidthTransport sender = (BandwidthTransport) src.getProtocol(tid);
+	BandwidthTransport receiver = (BandwidthTransport) dest.getProtocol(tid);
+	long len = (msg instanceof SizedMessage ? 
+			((SizedMessage) msg).getSize() : size);
+	long now = CommonState.getTime();
+
+	// upload
+	double upstart = Math.max(now, sender.upfree);
+	if ((upstart - now) * sender.upload + len > queue)
+		return;
+	double upend = upstart + duration(len, sender.upload);
+	sender.upfree = upend;
+	
+	// download
+	long lat = getLatency(src, dest);
+	double downstart = Math.max(upstart + lat, receiver.downfree);
+	double downend = Math.max(downstart + duration(len, receiver.download),
+			upend + lat);
+	receiver.downfree = downend;
+	
+	// only the delivery time is rounded, so that the links are shared
+	// exactly by messages shorter than a time unit
+	EDSimulator.add((long) Math.ceil(downend - now), msg, dest, pid);
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns the latency of the underlying transport, or the constant latency
+ * {@value #PAR_LATENCY}. The time needed to transmit messages is not
+ * included.
+ */
+public long getLatency(Node src, Node dest)
+{
+	if (transport < 0)
+		return latency;
+	Transport t = (Transport) src.getProtocol(transport);
+	return t.getLatency(src, dest);
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns the time needed to transmit a message of the given size at the
+ * given rate.
+ */
+private static double duration(long len, double rate)
+{
+	if (rate == Double.POSITIVE_INFINITY)
+		return 0;
+	return len / rate;
+}
+
+//---------------------------------------------------------------------
+//Getters and setters
+//---------------------------------------------------------------------
+
+/** Returns the upload capacity of this node */
+public double getUpload()
+{
+	return upload;
+}
+
+//---------------------------------------------------------------------
+
+/** Sets the upload capacity of this node */
+public void setUpload(double upload)
+{
+	this.upload = upload;
+}
+
+//---------------------------------------------------------------------
+
+/** Returns the download capacity of this node */
+public double getDownload()
+{
+	return download;
+}
+
+//---------------------------------------------------------------------
+
+/** Sets the download capacity of this node */
+public void setDownload(double download)
+{
+	this.download = download;
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns the amount of data waiting to be uploaded by this node (or
+ * being uploaded) at the current time.
+ */
+public double getUploadBacklog()
+{
+	return Math.max(0, upfree - CommonState.getTime()) * upload;
+}
+
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.transport;
+
+import java.util.*;
+
+import peersim.config.*;
+import peersim.core.*;
+import peersim.edsim.*;
+
+
+/**
+ * This transport protocol can be combined with other transports to reduce
+ * the number of events in the event queue. The delivery time of each
+ * message is computed using the latency of the underlying transport
+ * ({@link Transport#getLatency}), and it is rounded up to a multiple of
+ * the configured quantum. All the messages addressed to the same protocol
+ * of the same node with the same delivery time are put in a single batch,
+ * which is inserted in the event queue as a single event. When the batch
+ * is delivered, its messages are passed to the destination protocol in
+ * the order in which they were sent.
+ * <p>
+ * Note that the underlying transport is used only to compute the
+ * latency, so it must not drop messages or keep state about them; messages
+ * can be dropped by putting an {@link UnreliableTransport} on top of
+ * this transport. If the quantum is 0, messages are simply sent through the
+ * underlying transport, with exactly the same semantics.
+ * <p>
+ * The memory requirements are minimal, as a single instance is created and 
+ * inserted in the protocol array of all nodes.
+ */
+public final class BatchingTransport implements Transport, EDProtocol<Object>
+{
+
+//---------------------------------------------------------------------
+//Parameters
+//---------------------------------------------------------------------
+
+/**
+ * The name of the underlying transport protocol.
+ * @config
+ */
+private static final String PAR_TRANSPORT = "transport";
+
+/** 
+ * The quantum to which delivery times are rounded up. With 1, only messages
+ * that would be delivered at the same time to the same destination are
+ * batched. With 0, messages are not batched. Defaults to 1.
+ * @config
+ */
+private static final String PAR_QUANTUM = "quantum";
+
+//---------------------------------------------------------------------
+//Fields
+//---------------------------------------------------------------------
+
+/** Identifier of this transport protocol */
+private final int tid;
+
+/** Protocol identifier for the underlying transport protocol */
+private final int transport;
+
+/** The quantum */
+private final long quantum;
+
+/** The batches that have not been delivered yet */
+private final HashMap<Batch,Batch> batches = new HashMap<Batch,Batch>();
+
+/** Used to look up batches without creating objects */
+private final Batch probe = new Batch(null, 0, 0);
+
+/** Size of {@link #batches} that triggers the removal of old batches */
+private int sweep = 1024;
+
+//---------------------------------------------------------------------
+//Initialization
+//---------------------------------------------------------------------
+
+/**
+ * Reads configuration parameters.
+ */
+public BatchingTransport(String prefix)
+{
+	tid = CommonState.getPid();
+	transport = Configuration.getPid(prefix + "." + PAR_TRANSPORT);
+	quantum = Configuration.getLong(prefix + "." + PAR_QUANTUM, 1);
+	if (quantum < 0)
+		throw new IllegalParameterException(prefix + "." + PAR_QUANTUM,
+				"The quantum cannot be negative");
+}
+
+//---------------------------------------------------------------------
+
+/**
+* Returns <code>this</code>. This way only one instance exists in the system
+* that is linked from all the nodes.
+*/
+public Object clone()
+{
+	return this;
+}
+
+//---------------------------------------------------------------------
+//Methods
+//---------------------------------------------------------------------
+
+/**
+ * Adds the message to the batch of its destination and delivery time,
+ * creating the batch if needed.
+ */
+public void send(Node src, Node dest, Object msg, int pid)
+{
+	Transport t = (Transport) src.getProtocol(transport);
+	if (quantum == 0) {
+		t.send(src, dest, msg, pid);
+		return;
+	}
+	long now = CommonState.getTime();
+	long time = now + t.getLatency(src, dest);
+	time = ((time + quantum - 1) / quantum) * quantum;
+
+	probe.set(dest, pid, time);
+	Batch batch = batches.get(probe);
+	if (batch == null) {
+		if (batches.size() >= sweep)
+			removeOld(now);
+		batch = new Batch(dest, pid, time);
+		batches.put(batch, batch);
+		EDSimulator.add(time - now, batch, dest, tid);
+	}
+	batch.add(msg);
+}
+
+//---------------------------------------------------------------------
+
+/** Returns the latency of the underlying protocol. */
+public long getLatency(Node src, Node dest)
+{
+	Transport t = (Transport) src.getProtocol(transport);
+	return t.getLatency(src, dest);
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Delivers the messages of a batch to the destination protocol, as long as
+ * the destination node is up.
+ */
+public void processEvent(Node node, int pid, Object event)
+{
+	Batch batch = (Batch) event;
+	batches.remove(batch);
+	@SuppressWarnings("unchecked")
+	EDProtocol<Object> prot = (EDProtocol<Object>) node.getProtocol(batch.pid);
+	CommonState.setPid(batch.pid);
+	for (int i = 0; i < batch.size && node.isUp(); i++) {
+		prot.processEvent(node, batch.pid, batch.msgs[i]);
+	}
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Removes the batches that should have been delivered already: they are
+ * left in the map if their destination was not up. The size that triggers 
+ * the next removal is adjusted so that the cost is amortized. 
+ */
+private void removeOld(long now)
+{
+	Iterator<Batch> it = batches.keySet().iterator();
+	while (it.hasNext()) {
+		if (it.next().time < now)
+			it.remove();
+	}
+	sweep = Math.max(1024, batches.size() * 2);
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * The messages addressed to the same protocol of the same node, that are 
+ * delivered at the same time.
+ */
+private static class Batch
+{
+	/** Destination node */
+	Node dest;
+
+	/** Destination protocol */
+	int pid;
+
+	/** Delivery time */
+	long time;
+
+	/** The messages */
+	Object[] msgs;
+
+	/** Number of messages */
+	int size;
+
+	Batch(Node dest, int pid, long time)
+	{
+		set(dest, pid, time);
+	}
+
+	void set(Node dest, int pid, long time)
+	{
+		this.dest = dest;
+		this.pid = pid;
+		this.time = time;
+	}
+
+	void add(Object msg)
+	{
+		if (msgs == null) {
+			msgs = new Object[2];
+		} else if (size == msgs.length) {
+			Object[] tmp = new Object[size * 2];
+			System.arraycopy(msgs, 0, tmp, 0, size);
+			msgs = tmp;
+		}
+		msgs[size++] = msg;
+	}
+
+	public int hashCode()
+	{
+		return System.identityHashCode(dest) * 31 + pid * 17 + 
+			(int) (time ^ (time >>> 32));
+	}
+
+	public boolean equals(Object o)
+	{
+		Batch b = (Batch) o;
+		return dest == b.dest && pid == b.pid && time == b.time;
+	}
+}
+
+}
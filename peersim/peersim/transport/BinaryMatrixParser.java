@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.transport;
+
+import java.io.*;
+
+import peersim.config.*;
+import peersim.core.*;
+
+/**
+ * Initializes static singleton {@link E2ENetwork} by mapping a binary
+ * latency matrix file into memory (see {@link E2ENetwork#load}).
+ * The file is not read, so the initialization is fast even for very large
+ * router networks.
+ * <p>
+ * Binary matrix files can be created from the files read by
+ * {@link TriangularMatrixParser} with the {@link #main} method of this
+ * class.
+ */
+public class BinaryMatrixParser implements Control
+{
+
+// ---------------------------------------------------------------------
+// Parameters
+// ---------------------------------------------------------------------
+
+/**
+ * The binary matrix file.
+ * @config
+ */
+private static final String PAR_FILE = "file";
+
+// ---------------------------------------------------------------------
+// Fields
+// ---------------------------------------------------------------------
+
+/** Name of the file containing the matrix. */
+private final String filename;
+
+/** Prefix for reading parameters */
+private final String prefix;
+
+// ---------------------------------------------------------------------
+// Initialization
+// ---------------------------------------------------------------------
+
+/**
+ * Read the configuration parameters.
+ */
+public BinaryMatrixParser(String prefix)
+{
+	this.prefix = prefix;
+	filename = Configuration.getString(prefix + "." + PAR_FILE);
+}
+
+// ---------------------------------------------------------------------
+// Methods
+// ---------------------------------------------------------------------
+
+/**
+ * Initializes static singleton {@link E2ENetwork} by mapping the
+ * matrix file.
+ * @return  always false
+ */
+public boolean execute()
+{
+	try {
+		E2ENetwork.load(filename);
+	} catch (FileNotFoundException e) {
+		throw new IllegalParameterException(prefix + "." + PAR_FILE,
+			filename + " does not exist");
+	} catch (IOException e) {
+		throw new RuntimeException(e.getMessage());
+	}
+	System.err.println("BinaryMatrixParser: mapped " +
+		E2ENetwork.getSize() + " routers from " + filename);
+	return false;
+}
+
+// ---------------------------------------------------------------------
+
+/**
+ * Converts a matrix in the format read by {@link TriangularMatrixParser}
+ * into a binary matrix file.
+ * Usage: <code>java peersim.transport.BinaryMatrixParser infile outfile
+ * [ratio [bits [quantum]]]</code>, where the optional arguments have the
+ * same meaning as the parameters of {@link TriangularMatrixParser}.
+ */
+public static void main(String[] args) throws IOException
+{
+	if (args.length < 2 || args.length > 5) {
+		System.err.println("Usage: java peersim.transport." +
+			"BinaryMatrixParser infile outfile [ratio [bits [quantum]]]");
+		System.exit(1);
+	}
+	double ratio = args.length > 2 ? Double.parseDouble(args[2]) : 1;
+	int bits = args.length > 3 ? Integer.parseInt(args[3]) : 32;
+	int quantum = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+
+	ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(
+		new FileInputStream(args[0])));
+	int size = in.readInt();
+	E2ENetwork.reset(size, true, bits, quantum);
+	for (int r = 0; r < size; r++) {
+		for (int c = r + 1; c < size; c++) {
+			E2ENetwork.setLatency(r, c, (int) (ratio * in.readInt()));
+		}
+	}
+	in.close();
+	E2ENetwork.save(args[1]);
+	System.err.println("BinaryMatrixParser: written " + size + " routers");
+}
+
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.transport;
+
+import java.io.*;
+
+
+/**
+ * This static singleton emulates an underlying router network
+ * of fixed size, where the latency between two routers is derived from
+ * their network coordinates, instead of being stored for each pair like in
+ * {@link E2ENetwork}. Each router has a point in a Euclidean space and,
+ * optionally, a non-negative height. The latency between two
+ * different routers is the Euclidean distance of their points plus
+ * their heights. The height models the latency of the access link of
+ * the router, which is not captured well by the Euclidean part.
+ * <p>
+ * Memory usage is proportional to the number of routers.
+ * Coordinates can be obtained by fitting them to a latency matrix with
+ * {@link VivaldiFitter}, and they can be saved and loaded with
+ * {@link #save} and {@link #load}.
+ */
+public class CoordinateNetwork
+{
+
+//---------------------------------------------------------------------
+//Constants
+//---------------------------------------------------------------------
+
+/** The first int of a coordinate file */
+private static final int MAGIC = 0x50534331;
+
+//---------------------------------------------------------------------
+//Fields
+//---------------------------------------------------------------------
+
+/** Size of the router network. */
+private static int size;
+
+/** Number of dimensions of the Euclidean part */
+private static int dims;
+
+/**
+ * The Euclidean coordinates, the coordinates of router i are
+ * in positions from <code>i*dims</code> to <code>(i+1)*dims-1</code>.
+ */
+private static double[] coords;
+
+/** The heights, or null if heights are not used */
+private static double[] heights;
+
+//---------------------------------------------------------------------
+//Initialization
+//---------------------------------------------------------------------
+
+/** Disable instance construction */
+private CoordinateNetwork() {}
+
+//---------------------------------------------------------------------
+//Methods
+//---------------------------------------------------------------------
+
+/**
+ * Resets the network. Initially all the coordinates and heights are 0.
+ * @param size the number of routers
+ * @param dims the number of dimensions of the Euclidean part
+ * @param height true if heights are used
+ */
+public static void reset(int size, int dims, boolean height)
+{
+	CoordinateNetwork.size = size;
+	CoordinateNetwork.dims = dims;
+	coords = new double[size * dims];
+	heights = height ? new double[size] : null;
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns the latency between the given routers, as a double.
+ * Routers are indexed from 0.
+ */
+public static double getDistance(int r1, int r2)
+{
+	if (r1 == r2)
+		return 0;
+	double sum = 0;
+	for (int i = r1 * dims, j = r2 * dims, end = i + dims; i < end; i++, j++) {
+		final double d = coords[i] - coords[j];
+		sum += d * d;
+	}
+	final double dist = Math.sqrt(sum);
+	return heights == null ? dist : dist + heights[r1] + heights[r2];
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns the latency between the given routers, rounded to the
+ * nearest integer. Routers are indexed from 0.
+ */
+public static long getLatency(int r1, int r2)
+{
+	return Math.round(getDistance(r1, r2));
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns the Euclidean coordinates of the routers. The coordinates of
+ * router i are in positions from <code>i*getDimensions()</code> to
+ * <code>(i+1)*getDimensions()-1</code>. The array can be modified.
+ */
+public static double[] getCoordinates()
+{
+	return coords;
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns the heights of the routers, or null if heights are not used.
+ * The array can be modified, but heights must remain non-negative.
+ */
+public static double[] getHeights()
+{
+	return heights;
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns the current size of the underlying network (i.e., the number of
+ * routers).
+ */
+public static int getSize()
+{
+	return size;
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns the number of dimensions of the Euclidean part of the
+ * coordinates.
+ */
+public static int getDimensions()
+{
+	return dims;
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Writes the coordinates into the given file, in the format read by
+ * {@link #load}.
+ */
+public static void save(String filename) throws IOException
+{
+	DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+		new FileOutputStream(filename)));
+	try {
+		out.writeInt(MAGIC);
+		out.writeInt(size);
+		out.writeInt(dims);
+		out.writeBoolean(heights != null);
+		for (int i = 0; i < coords.length; i++) out.writeDouble(coords[i]);
+		if (heights != null)
+			for (int i = 0; i < size; i++) out.writeDouble(heights[i]);
+	} finally {
+		out.close();
+	}
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Resets the network reading the coordinates from the given file,
+ * written by {@link #save}.
+ */
+public static void load(String filename) throws IOException
+{
+	DataInputStream in = new DataInputStream(new BufferedInputStream(
+		new FileInputStream(filename)));
+	try {
+		if (in.readInt() != MAGIC)
+			throw new IOException(filename + " is not a coordinate file");
+		int size = in.readInt();
+		int dims = in.readInt();
+		reset(size, dims, in.readBoolean());
+		for (int i = 0; i < coords.length; i++) coords[i] = in.readDouble();
+		if (heights != null)
+			for (int i = 0; i < size; i++) heights[i] = in.readDouble();
+	} finally {
+		in.close();
+	}
+}
+
+}
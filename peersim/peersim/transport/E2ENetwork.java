@@ -18,11 +18,30 @@
 
 package peersim.transport;
 
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+
 
 /**
  * This static singleton emulates an underlying router network
  * of fixed size, and stores the latency measurements for all pairs
  * of routers.
+ * <p>
+ * The latencies are stored in a single flat array outside the Java heap:
+ * a strictly lower triangular matrix if latency is symmetric, or a
+ * full square matrix otherwise, ordered by row. To save memory, latencies
+ * can be quantized: they can be stored as multiples of a given quantum, in
+ * 32, 16 or 8 bits. With 16 and 8 bits the stored value is unsigned, so
+ * negative latencies become 0, and latencies that are too large for the
+ * given number of bits are saturated to the largest representable value.
+ * In all cases, the stored value is also saturated so that, multiplied by
+ * the quantum, it still fits into an <code>int</code>.
+ * <p>
+ * The matrix can be saved to a binary file with {@link #save}, and loaded
+ * back with {@link #load}. Loading does not read the file, but it maps
+ * it into memory, so it is practically instantaneous and the operating
+ * system can share and page the matrix as needed.
  *
  * @author Alberto Montresor
  * @version $Revision$
@@ -30,6 +49,19 @@ package peersim.transport;
 public class E2ENetwork
 {
 
+//---------------------------------------------------------------------
+//Constants
+//---------------------------------------------------------------------
+
+/** The first int of a binary matrix file */
+private static final int MAGIC = 0x50534532;
+
+/** The format version of binary matrix files */
+private static final int VERSION = 1;
+
+/** Size of the header of binary matrix files in bytes */
+private static final int HEADER = 24;
+
 //---------------------------------------------------------------------
 //Fields
 //---------------------------------------------------------------------
@@ -45,9 +77,21 @@ private static boolean symm;
 private static int size;
 
 /**
- * Latency distances between nodes.
+ * Latency distances between nodes, in units of {@link #quantum}.
  */
-private static int[][] array;
+private static ByteBuffer matrix;
+
+/** Number of bits used to store one latency value: 8, 16 or 32 */
+private static int bits;
+
+/** Latencies are stored as multiples of this value */
+private static int quantum;
+
+/**
+ * The largest value that can be stored, such that multiplying it by
+ * {@link #quantum} does not overflow.
+ */
+private static long max;
 	
 //---------------------------------------------------------------------
 //Initialization
@@ -64,20 +108,72 @@ private E2ENetwork() {}
  * Resets the network, by creating a triangular (if symm is true) or
  * a rectangular (if symm is false) array of integers. Initially all
  * latencies between any pairs are set to be 0.
+ * Latencies are stored exactly, using 32 bits.
  * @param size the number or routers
  * @param symm if latency is symmetric between all pairs of routers
  */
 public static void reset(int size, boolean symm)
+{
+	reset(size, symm, 32, 1);
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Resets the network, by creating a triangular (if symm is true) or
+ * a rectangular (if symm is false) matrix of quantized latencies.
+ * Initially all latencies between any pairs are set to be 0.
+ * @param size the number or routers
+ * @param symm if latency is symmetric between all pairs of routers
+ * @param bits the number of bits used to store a latency: 8, 16 or 32
+ * @param quantum latencies are stored as the nearest multiple of this
+ * value. Must be positive.
+ */
+public static void reset(int size, boolean symm, int bits, int quantum)
+{
+	if (bits != 8 && bits != 16 && bits != 32)
+		throw new IllegalArgumentException("bits=" + bits);
+	if (quantum <= 0)
+		throw new IllegalArgumentException("quantum=" + quantum);
+	long entries = symm ? (long) size * (size - 1) / 2 : (long) size * size;
+	long bytes = entries * (bits / 8);
+	if (bytes > Integer.MAX_VALUE)
+		throw new IllegalArgumentException("A matrix of " + size +
+			" routers with " + bits + " bits does not fit into " +
+			"a single buffer; use less bits");
+	setup(size, symm, bits, quantum);
+	matrix = ByteBuffer.allocateDirect((int) bytes).order(
+		ByteOrder.LITTLE_ENDIAN);
+}
+
+//---------------------------------------------------------------------
+
+/** Sets the static fields describing the matrix. */
+private static void setup(int size, boolean symm, int bits, int quantum)
 {
 	E2ENetwork.symm = symm;
 	E2ENetwork.size = size;
-	array = new int[size][];
-	for (int i=0; i < size; i++) {
-		if (symm)
-			array[i] = new int[i];
-		else
-			array[i] = new int[size];
+	E2ENetwork.bits = bits;
+	E2ENetwork.quantum = quantum;
+	max = Math.min(bits == 32 ? Integer.MAX_VALUE : (1L << bits) - 1,
+		Integer.MAX_VALUE / quantum);
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns the position of the given pair in the flat matrix.
+ * The pair must not be on the diagonal if latency is symmetric.
+ */
+private static int index(int sender, int receiver)
+{
+	if (symm) {
+		// row is the larger index
+		final int row = Math.max(sender, receiver);
+		return (int) ((long) row * (row - 1) / 2) +
+			Math.min(sender, receiver);
 	}
+	return (int) ((long) sender * size) + receiver;
 }
 	
 //---------------------------------------------------------------------
@@ -96,15 +192,15 @@ public static int getLatency(int sender, int receiver)
 	if (sender == receiver)
 		return 0;
 	// XXX There should be the possibility to fix the delay.
-	if (symm) {
-		// Symmetric network
-		if (sender < receiver) {
-			int tmp = sender;
-			sender = receiver;
-			receiver = tmp;
-		}
-	} 
-	return array[sender][receiver];
+	final int i = index(sender, receiver);
+	switch (bits) {
+		case 32:
+			return matrix.getInt(i << 2) * quantum;
+		case 16:
+			return (matrix.getShort(i << 1) & 0xffff) * quantum;
+		default:
+			return (matrix.get(i) & 0xff) * quantum;
+	}
 }
 
 //---------------------------------------------------------------------
@@ -112,6 +208,8 @@ public static int getLatency(int sender, int receiver)
 /**
  * Sets the latency associated to the specified (sender, receiver)
  * pair. Routers are indexed from 0.
+ * The latency is rounded to the nearest multiple of the quantum,
+ * and it might be saturated (see the class description).
  * 
  * @param sender the index of the sender
  * @param receiver the index of the receiver
@@ -119,15 +217,21 @@ public static int getLatency(int sender, int receiver)
  */
 public static void setLatency(int sender, int receiver, int latency) 
 {
-	if (symm) {
-		// Symmetric network
-		if (sender < receiver) {
-			int tmp = sender;
-			sender = receiver;
-			receiver = tmp;
-		}
-	} 
- 	array[sender][receiver] = latency;
+	if (symm && sender == receiver)
+		return;
+	final int i = index(sender, receiver);
+	long v = Math.round((double) latency / quantum);
+	if (v > max) v = max;
+	switch (bits) {
+		case 32:
+			matrix.putInt(i << 2, (int) Math.max(v, -max));
+			break;
+		case 16:
+			matrix.putShort(i << 1, (short) Math.max(v, 0));
+			break;
+		default:
+			matrix.put(i, (byte) Math.max(v, 0));
+	}
 }
 
 //---------------------------------------------------------------------
@@ -141,4 +245,69 @@ public static int getSize()
 	return size;
 }
 
+//---------------------------------------------------------------------
+
+/**
+ * Writes the current matrix into the given file, in the format
+ * read by {@link #load}.
+ */
+public static void save(String filename) throws IOException
+{
+	FileChannel out = new FileOutputStream(filename).getChannel();
+	try {
+		ByteBuffer header = ByteBuffer.allocate(HEADER).order(
+			ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putInt(size);
+		header.putInt(symm ? 1 : 0).putInt(bits).putInt(quantum);
+		header.flip();
+		while (header.hasRemaining()) out.write(header);
+		ByteBuffer data = matrix.duplicate();
+		data.clear();
+		while (data.hasRemaining()) out.write(data);
+	} finally {
+		out.close();
+	}
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Resets the network by mapping the matrix stored in the given file by
+ * {@link #save} into memory. The matrix is read-only, so
+ * {@link #setLatency} cannot be called after this method.
+ */
+public static void load(String filename) throws IOException
+{
+	FileChannel in = new RandomAccessFile(filename, "r").getChannel();
+	try {
+		ByteBuffer header = ByteBuffer.allocate(HEADER).order(
+			ByteOrder.LITTLE_ENDIAN);
+		while (header.hasRemaining() && in.read(header) >= 0);
+		header.flip();
+		if (header.remaining() < HEADER || header.getInt() != MAGIC)
+			throw new IOException(filename + " is not a latency matrix");
+		int version = header.getInt();
+		if (version != VERSION)
+			throw new IOException(filename +
+				": unsupported latency matrix version " + version);
+		int size = header.getInt();
+		boolean symm = header.getInt() == 1;
+		int bits = header.getInt();
+		int quantum = header.getInt();
+		if ((bits != 8 && bits != 16 && bits != 32) || quantum <= 0)
+			throw new IOException(filename + " is corrupted");
+		long entries = symm ? (long) size * (size - 1) / 2 :
+			(long) size * size;
+		long bytes = entries * (bits / 8);
+		if (in.size() != HEADER + bytes)
+			throw new IOException(filename + " is truncated");
+		// the mapping remains valid after the channel is closed
+		matrix = in.map(FileChannel.MapMode.READ_ONLY, HEADER, bytes).order(
+			ByteOrder.LITTLE_ENDIAN);
+		setup(size, symm, bits, quantum);
+	} finally {
+		in.close();
+	}
+}
+
 }
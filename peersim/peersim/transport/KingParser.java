@@ -49,6 +49,20 @@ private static final String PAR_FILE = "file";
  */
 private static final String PAR_RATIO = "ratio";
 
+/**
+ * The number of bits used to store a latency in {@link E2ENetwork}: 8, 16
+ * or 32. Defaults to 32.
+ * @config
+ */
+private static final String PAR_BITS = "bits";
+
+/**
+ * Latencies are stored in {@link E2ENetwork} as multiples of this value,
+ * after applying {@value #PAR_RATIO}. Defaults to 1.
+ * @config
+ */
+private static final String PAR_QUANTUM = "quantum";
+
 // ---------------------------------------------------------------------
 // Fields
 // ---------------------------------------------------------------------
@@ -65,6 +79,12 @@ private double ratio;
 /** Prefix for reading parameters */
 private String prefix;
 
+/** Value of {@value #PAR_BITS} */
+private int bits;
+
+/** Value of {@value #PAR_QUANTUM} */
+private int quantum;
+
 // ---------------------------------------------------------------------
 // Initialization
 // ---------------------------------------------------------------------
@@ -77,6 +97,8 @@ public KingParser(String prefix)
 	this.prefix = prefix;
 	ratio = Configuration.getDouble(prefix + "." + PAR_RATIO, 1);
 	filename = Configuration.getString(prefix + "." + PAR_FILE, null);
+	bits = Configuration.getInt(prefix + "." + PAR_BITS, 32);
+	quantum = Configuration.getInt(prefix + "." + PAR_QUANTUM, 1);
 }
 
 // ---------------------------------------------------------------------
@@ -123,7 +145,7 @@ public boolean execute()
 		try { in.close(); } catch (IOException e1) { };
 		System.exit(1);
 	}
-	E2ENetwork.reset(size, true);
+	E2ENetwork.reset(size, true, bits, quantum);
 	if (line == null) {
 		System.err.println("KingParser: " + filename + ", line " + lc + ":");
 		System.err.println("No latency matrix contained in the specified file");
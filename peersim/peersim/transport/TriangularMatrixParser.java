@@ -63,6 +63,20 @@ private static final String PAR_FILE = "file";
  */
 private static final String PAR_RATIO = "ratio";
 
+/**
+ * The number of bits used to store a latency in {@link E2ENetwork}: 8, 16
+ * or 32. Defaults to 32.
+ * @config
+ */
+private static final String PAR_BITS = "bits";
+
+/**
+ * Latencies are stored in {@link E2ENetwork} as multiples of this value,
+ * after applying {@value #PAR_RATIO}. Defaults to 1.
+ * @config
+ */
+private static final String PAR_QUANTUM = "quantum";
+
 // ---------------------------------------------------------------------
 // Fields
 // ---------------------------------------------------------------------
@@ -73,6 +87,12 @@ private String filename;
 /** Ratio read from PAR_RATIO */
 private double ratio;
 
+/** Value of {@value #PAR_BITS} */
+private int bits;
+
+/** Value of {@value #PAR_QUANTUM} */
+private int quantum;
+
 // ---------------------------------------------------------------------
 // Initialization
 // ---------------------------------------------------------------------
@@ -84,6 +104,8 @@ public TriangularMatrixParser(String prefix)
 {
 	filename = Configuration.getString(prefix + "." + PAR_FILE);
 	ratio = Configuration.getDouble(prefix + "." + PAR_RATIO);
+	bits = Configuration.getInt(prefix + "." + PAR_BITS, 32);
+	quantum = Configuration.getInt(prefix + "." + PAR_QUANTUM, 1);
 }
 
 // ---------------------------------------------------------------------
@@ -114,7 +136,7 @@ public boolean execute()
 	  int size = in.readInt();
 	  
 		// Reset the E2E network
-		E2ENetwork.reset(size, true);
+		E2ENetwork.reset(size, true, bits, quantum);
 		System.err.println("TriangularMatrixParser: reading " + size + " rows");
 	
 		// If the file format is not correct, data will be read 
@@ -24,7 +24,8 @@ import peersim.core.*;
 
 /**
  * Initializes {@link RouterInfo} protocols by assigning routers to them.
- * The number of routers is defined by static singleton {@link E2ENetwork}.
+ * The number of routers is defined by static singleton {@link E2ENetwork},
+ * or, if that is empty, by static singleton {@link CoordinateNetwork}.
  *
  * @author Alberto Montresor
  * @version $Revision$
@@ -70,13 +71,15 @@ public UniformRouterAssignment(String prefix)
 /**
  * Initializes given {@link RouterInfo} protocol layer by assigning
  * routers randomly.
- * The number of routers is defined by static singleton {@link E2ENetwork}.
+ * The number of routers is defined by static singleton {@link E2ENetwork},
+ * or, if that is empty, by static singleton {@link CoordinateNetwork}.
 * @return always false
 */
 public boolean execute()
 {
 	int nsize = Network.size();
 	int nrouters = E2ENetwork.getSize();
+	if (nrouters == 0) nrouters = CoordinateNetwork.getSize();
 	for (int i=0; i < nsize; i++) {
 		Node node = Network.get(i);
 		RouterInfo t = (RouterInfo) node.getProtocol(pid);
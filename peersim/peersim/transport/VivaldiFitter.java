@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.transport;
+
+import java.io.*;
+
+import peersim.config.*;
+import peersim.core.*;
+import peersim.util.*;
+
+/**
+ * Initializes static singleton {@link CoordinateNetwork} by embedding the
+ * latency matrix of {@link E2ENetwork} into network coordinates, using the
+ * Vivaldi algorithm (Dabek et al., SIGCOMM 2004) with height vectors.
+ * {@link E2ENetwork} has to be initialized before this control is run,
+ * for example by {@link KingParser} or {@link TriangularMatrixParser}.
+ * <p>
+ * In each round, each router adjusts its coordinates based on its
+ * measured latency to {@value #PAR_SAMPLES} random routers, with the
+ * adaptive timestep of Vivaldi. Pairs with a non-positive latency are
+ * considered missing measurements and are ignored.
+ * After the fitting, the relative error
+ * <code>|predicted-measured|/measured</code> is evaluated over all the pairs,
+ * or over {@value #PAR_EVAL} random pairs if there are more, and it is
+ * printed on the standard output.
+ * <p>
+ * The coordinates can be saved with {@value #PAR_FILE}, so that later
+ * simulations can load them with {@link CoordinateParser}, without loading
+ * the latency matrix at all.
+ */
+public class VivaldiFitter implements Control
+{
+
+// ---------------------------------------------------------------------
+// Parameters
+// ---------------------------------------------------------------------
+
+/**
+ * The number of dimensions of the Euclidean part of the coordinates.
+ * Defaults to 2.
+ * @config
+ */
+private static final String PAR_DIMS = "dimensions";
+
+/**
+ * If true, the coordinates include a height. Defaults to true.
+ * @config
+ */
+private static final String PAR_HEIGHT = "height";
+
+/**
+ * The number of rounds. Defaults to 100.
+ * @config
+ */
+private static final String PAR_ROUNDS = "rounds";
+
+/**
+ * The number of random routers each router samples in a round.
+ * Defaults to 16.
+ * @config
+ */
+private static final String PAR_SAMPLES = "samples";
+
+/**
+ * The constant c<sub>c</sub> of Vivaldi, that controls the timestep.
+ * Defaults to 0.25.
+ * @config
+ */
+private static final String PAR_CC = "cc";
+
+/**
+ * The constant c<sub>e</sub> of Vivaldi, that controls the weight of new
+ * samples in the local error estimates. Defaults to 0.25.
+ * @config
+ */
+private static final String PAR_CE = "ce";
+
+/**
+ * The maximal number of pairs used to evaluate the error of the
+ * coordinates. Defaults to 100000.
+ * @config
+ */
+private static final String PAR_EVAL = "eval";
+
+/**
+ * If defined, the coordinates are saved into this file.
+ * @config
+ */
+private static final String PAR_FILE = "file";
+
+// ---------------------------------------------------------------------
+// Fields
+// ---------------------------------------------------------------------
+
+/** Prefix for reading parameters */
+private final String prefix;
+
+/** Value of {@value #PAR_DIMS} */
+private final int dims;
+
+/** Value of {@value #PAR_HEIGHT} */
+private final boolean height;
+
+/** Value of {@value #PAR_ROUNDS} */
+private final int rounds;
+
+/** Value of {@value #PAR_SAMPLES} */
+private final int samples;
+
+/** Value of {@value #PAR_CC} */
+private final double cc;
+
+/** Value of {@value #PAR_CE} */
+private final double ce;
+
+/** Value of {@value #PAR_EVAL} */
+private final int eval;
+
+/** Value of {@value #PAR_FILE}, or null */
+private final String filename;
+
+// ---------------------------------------------------------------------
+// Initialization
+// ---------------------------------------------------------------------
+
+/**
+ * Read the configuration parameters.
+ */
+public VivaldiFitter(String prefix)
+{
+	this.prefix = prefix;
+	dims = Configuration.getInt(prefix + "." + PAR_DIMS, 2);
+	height = Configuration.getBoolean(prefix + "." + PAR_HEIGHT, true);
+	rounds = Configuration.getInt(prefix + "." + PAR_ROUNDS, 100);
+	samples = Configuration.getInt(prefix + "." + PAR_SAMPLES, 16);
+	cc = Configuration.getDouble(prefix + "." + PAR_CC, 0.25);
+	ce = Configuration.getDouble(prefix + "." + PAR_CE, 0.25);
+	eval = Configuration.getInt(prefix + "." + PAR_EVAL, 100000);
+	filename = Configuration.getString(prefix + "." + PAR_FILE, null);
+}
+
+// ---------------------------------------------------------------------
+// Methods
+// ---------------------------------------------------------------------
+
+/**
+ * Fits the coordinates, prints the error statistics and saves the
+ * coordinates if required.
+ * @return always false
+ */
+public boolean execute()
+{
+	final int size = E2ENetwork.getSize();
+	if (size < 2)
+		throw new IllegalStateException(
+			"VivaldiFitter: E2ENetwork is not initialized");
+	CoordinateNetwork.reset(size, dims, height);
+	final double[] x = CoordinateNetwork.getCoordinates();
+	final double[] h = CoordinateNetwork.getHeights();
+
+	// start from a random configuration with the scale of the latencies,
+	// so that no two routers are at the same point
+	IncrementalStats lat = new IncrementalStats();
+	for (int i = 0; i < Math.min(eval, 1000); i++) {
+		int a = CommonState.r.nextInt(size);
+		int b = CommonState.r.nextInt(size);
+		if (a != b && E2ENetwork.getLatency(a, b) > 0)
+			lat.add(E2ENetwork.getLatency(a, b));
+	}
+	final double scale = lat.getN() > 0 ? lat.getAverage() : 1;
+	for (int i = 0; i < x.length; i++)
+		x[i] = (CommonState.r.nextDouble() - 0.5) * scale;
+	if (h != null)
+		for (int i = 0; i < size; i++)
+			h[i] = CommonState.r.nextDouble() * scale / 10;
+
+	final double[] error = new double[size];
+	java.util.Arrays.fill(error, 1);
+	final double[] dir = new double[dims];
+	for (int round = 0; round < rounds; round++) {
+		for (int i = 0; i < size; i++) {
+			for (int s = 0; s < samples; s++) {
+				int j = CommonState.r.nextInt(size - 1);
+				if (j >= i) j++;
+				double rtt = E2ENetwork.getLatency(i, j);
+				if (rtt <= 0) continue;
+				update(i, j, rtt, x, h, error, dir);
+			}
+		}
+	}
+
+	printError(size);
+
+	if (filename != null) {
+		try {
+			CoordinateNetwork.save(filename);
+		} catch (IOException e) {
+			throw new IllegalParameterException(prefix + "." + PAR_FILE,
+				"Cannot write " + filename + ": " + e.getMessage());
+		}
+	}
+	return false;
+}
+
+// ---------------------------------------------------------------------
+
+/**
+ * One Vivaldi update of router i, based on its measured latency to
+ * router j.
+ * @param dir work array of length {@link #dims}
+ */
+private void update(int i, int j, double rtt, double[] x, double[] h,
+		double[] error, double[] dir)
+{
+	double euclid = 0;
+	for (int d = 0; d < dims; d++) {
+		dir[d] = x[i * dims + d] - x[j * dims + d];
+		euclid += dir[d] * dir[d];
+	}
+	euclid = Math.sqrt(euclid);
+	if (euclid == 0) {
+		// same point: move in a random direction
+		for (int d = 0; d < dims; d++) {
+			dir[d] = CommonState.r.nextGaussian();
+			euclid += dir[d] * dir[d];
+		}
+		euclid = Math.sqrt(euclid);
+		for (int d = 0; d < dims; d++) dir[d] /= euclid;
+		euclid = 0;
+	} else {
+		for (int d = 0; d < dims; d++) dir[d] /= euclid;
+	}
+	final double hsum = h == null ? 0 : h[i] + h[j];
+	final double dist = euclid + hsum;
+
+	// adaptive timestep
+	final double w = error[i] / (error[i] + error[j]);
+	final double es = Math.abs(dist - rtt) / rtt;
+	error[i] = es * ce * w + error[i] * (1 - ce * w);
+	final double force = cc * w * (rtt - dist);
+
+	// the unit vector is (x_i-x_j, h_i+h_j)/dist
+	final double norm = dist > 0 ? dist : 1;
+	final double fe = euclid == 0 ? force : force * euclid / norm;
+	for (int d = 0; d < dims; d++) x[i * dims + d] += fe * dir[d];
+	if (h != null && dist > 0) {
+		h[i] += force * hsum / norm;
+		if (h[i] < 0) h[i] = 0;
+	}
+}
+
+// ---------------------------------------------------------------------
+
+/**
+ * Prints the relative error of the coordinates over all pairs, or over
+ * {@value #PAR_EVAL} random pairs.
+ */
+private void printError(int size)
+{
+	MedianStats rel = new MedianStats();
+	IncrementalStats abs = new IncrementalStats();
+	if ((long) size * (size - 1) / 2 <= eval) {
+		for (int i = 0; i < size; i++)
+			for (int j = i + 1; j < size; j++)
+				addError(i, j, rel, abs);
+	} else {
+		for (int k = 0; k < eval; k++) {
+			int i = CommonState.r.nextInt(size);
+			int j = CommonState.r.nextInt(size - 1);
+			if (j >= i) j++;
+			addError(i, j, rel, abs);
+		}
+	}
+	if (rel.getN() == 0) return;
+	System.out.println(prefix + ": routers " + size + " pairs " +
+		rel.getN() + " relerr_median " + rel.getMedian() +
+		" relerr_avg " + rel.getAverage() + " relerr_max " + rel.getMax() +
+		" abserr_avg " + abs.getAverage());
+}
+
+// ---------------------------------------------------------------------
+
+/** Adds the error of the given pair to the statistics, if measured. */
+private static void addError(int i, int j, IncrementalStats rel,
+		IncrementalStats abs)
+{
+	double rtt = E2ENetwork.getLatency(i, j);
+	if (rtt <= 0) return;
+	double diff = Math.abs(CoordinateNetwork.getDistance(i, j) - rtt);
+	rel.add(diff / rtt);
+	abs.add(diff);
+}
+
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package peersim.util;
+
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+* A sequence of interactions between pairs of nodes, partitioned into
+* rounds of pairs that have no node in common, so that the interactions
+* of a round can be run in parallel.
+* <p>
+* Nodes are identified by small non-negative integers, typically their
+* index in the network. A pair is assigned to the round following the last
+* round of any of its nodes, so that two pairs that share a node are run
+* in the order they were added. If each interaction reads and writes only
+* the state of its two nodes, running the rounds one after the other
+* gives exactly the same result as running the pairs in the order they
+* were added, however the pairs of a round are executed.
+*/
+public class PairRounds {
+
+
+// ======================= types =====================================
+// ===================================================================
+
+
+/**
+* An interaction between the nodes of a pair.
+*/
+public interface Task {
+
+	/**
+	* Runs the interaction of the given pair. It can be called concurrently
+	* for the pairs of the same round.
+	* @param pair the index of the pair, in the order the pairs were added
+	*/
+	public void run(int pair);
+}
+
+
+// ======================= private fields ============================
+// ===================================================================
+
+
+/** Rounds smaller than this are not split among threads */
+private static final int MIN_PARALLEL = 256;
+
+/** The pools used to run the rounds, by parallelism */
+private static final HashMap<Integer,ForkJoinPool> pools =
+	new HashMap<Integer,ForkJoinPool>();
+
+/** The nodes of the pairs */
+private int[] first = new int[16], second = new int[16];
+
+/** Number of pairs */
+private int size = 0;
+
+/** The round of each pair, then used as scratch space */
+private int[] round = new int[16];
+
+/** The pairs sorted by round */
+private int[] order = new int[16];
+
+/** Where each round starts in {@link #order}; it has rounds+1 elements */
+private int[] start = new int[2];
+
+/** Number of rounds, or -1 if the pairs have not been scheduled */
+private int rounds = -1;
+
+/** For each node, the round following its last one */
+private int[] next = new int[16];
+
+
+// ======================= public methods ============================
+// ===================================================================
+
+
+/** Removes all the pairs. */
+public void clear() {
+
+	size = 0;
+	rounds = -1;
+}
+
+// -------------------------------------------------------------------
+
+/**
+* Adds a pair.
+* @return the index of the pair
+*/
+public int add(int a, int b) {
+	
+	if (a < 0 || b < 0)
+		throw new IllegalArgumentException("Negative node: " + a + "," + b);
+	if (size == first.length) {
+		first = grow(first);
+		second = grow(second);
+	}
+	first[size] = a;
+	second[size] = b;
+	rounds = -1;
+	return size++;
+}
+
+// -------------------------------------------------------------------
+
+/** Returns the number of pairs. */
+public int size() { return size; }
+
+/** Returns the first node of the given pair. */
+public int getFirst(int pair) { return first[pair]; }
+
+/** Returns the second node of the given pair. */
+public int getSecond(int pair) { return second[pair]; }
+
+// -------------------------------------------------------------------
+
+/**
+* Partitions the pairs into rounds. It is called by the other methods
+* when needed; the cost is linear in the number of pairs and in the
+* largest node.
+* @return the number of rounds
+*/
+public int schedule() {
+
+	if (rounds >= 0) return rounds;
+	int max = 0;
+	for (int i = 0; i < size; ++i)
+		max = Math.max(max, Math.max(first[i], second[i]));
+	if (next.length <= max) next = new int[max + 1];
+	else java.util.Arrays.fill(next, 0, max + 1, 0);
+	if (round.length < first.length) {
+		round = new int[first.length];
+		order = new int[first.length];
+	}
+
+	rounds = 0;
+	for (int i = 0; i < size; ++i) {
+		final int r = Math.max(next[first[i]], next[second[i]]);
+		round[i] = r;
+		next[first[i]] = next[second[i]] = r + 1;
+		if (r >= rounds) rounds = r + 1;
+	}
+
+	// counting sort, that keeps the order of the pairs within a round
+	if (start.length < rounds + 1) start = new int[rounds + 1];
+	java.util.Arrays.fill(start, 0, rounds + 1, 0);
+	for (int i = 0; i < size; ++i) start[round[i] + 1]++;
+	for (int r = 0; r < rounds; ++r) start[r + 1] += start[r];
+	for (int i = 0; i < size; ++i) order[start[round[i]]++] = i;
+	for (int r = rounds; r > 0; --r) start[r] = start[r - 1];
+	start[0] = 0;
+	return rounds;
+}
+
+// -------------------------------------------------------------------
+
+/** Returns the number of rounds. */
+public int rounds() { return schedule(); }
+
+/** Returns the number of pairs in the given round. */
+public int getRoundSize(int r) {
+
+	schedule();
+	return start[r + 1] - start[r];
+}
+
+/** Returns the i-th pair of the given round. */
+public int getPair(int r, int i) {
+
+	schedule();
+	return order[start[r] + i];
+}
+
+// -------------------------------------------------------------------
+
+/**
+* Runs the given task on all the pairs, one round after the other. The
+* pairs of a round are split among the given number of threads, taken from
+* a pool shared by all the instances of this class.
+* @param task the interaction to run
+* @param threads the number of threads; if 1, the pairs are run by the
+* calling thread in the order they were added, which gives the same
+* result without the cost of scheduling
+*/
+public void run(final Task task, int threads) {
+
+	if (threads <= 1) {
+		for (int i = 0; i < size; ++i) task.run(i);
+		return;
+	}
+	schedule();
+	final ForkJoinPool pool = getPool(threads);
+	for (int r = 0; r < rounds; ++r) {
+		final int from = start[r], to = start[r + 1];
+		if (to - from < MIN_PARALLEL) {
+			for (int i = from; i < to; ++i) task.run(order[i]);
+		} else {
+			final int grain = Math.max(MIN_PARALLEL / 4,
+				(to - from) / (4 * threads));
+			pool.invoke(new Chunk(task, from, to, grain));
+		}
+	}
+}
+
+
+// ======================= private methods ===========================
+// ===================================================================
+
+
+private static int[] grow(int[] a) {
+
+	int[] b = new int[2 * a.length];
+	System.arraycopy(a, 0, b, 0, a.length);
+	return b;
+}
+
+// -------------------------------------------------------------------
+
+private static synchronized ForkJoinPool getPool(int threads) {
+
+	ForkJoinPool pool = pools.get(threads);
+	if (pool == null) {
+		pool = new ForkJoinPool(threads);
+		pools.put(threads, pool);
+	}
+	return pool;
+}
+
+// -------------------------------------------------------------------
+
+/** Runs a range of a round, splitting it in halves. */
+private class Chunk extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Task task;
+	private final int from, to, grain;
+
+	Chunk(Task task, int from, int to, int grain) {
+		this.task = task;
+		this.from = from;
+		this.to = to;
+		this.grain = grain;
+	}
+
+	protected void compute() {
+		if (to - from <= grain) {
+			for (int i = from; i < to; ++i) task.run(order[i]);
+		} else {
+			final int mid = (from + to) >>> 1;
+			invokeAll(new Chunk(task, from, mid, grain),
+				new Chunk(task, mid, to, grain));
+		}
+	}
+}
+
+}
@@ -21,8 +21,6 @@ package scamp;
 import peersim.core.*;
 import peersim.config.*;
 import peersim.cdsim.*;
-import java.util.ArrayList;
-import java.util.Collections;
 
 /**
 * Implement the SCAMP protocol. The failure model that is adopted assumes
@@ -68,25 +66,17 @@ private static int leaseTimeout;
 // ====================================================================
 
 
-/** contains Nodes */
-private ArrayList<Node> outView = null;
-
 /**
-* Contains creation dates of elements in outView, if leasing is used.
-* The class must make sure that it stays in sync with outView. 
-* If lease is not used, it is simply null.
+* Contains Nodes, and their creation dates if leasing is used (then the
+* view is dated and it is sorted by date).
 */
-private ArrayList<Integer> outViewDates = null;
-
-/** contains Nodes */
-private ArrayList<Node> inView = null;
+private NodeView outView = null;
 
 /**
-* Contains creation dates of elements in inView, if leasing is used.
-* The class must make sure that it stays in sync with inView. 
-* If lease is not used, it is simply null.
+* Contains Nodes, and their creation dates if leasing is used (then the
+* view is dated and it is sorted by date).
 */
-private ArrayList<Integer> inViewDates = null;
+private NodeView inView = null;
 
 /**
 * to support the lease mechanism. with randomised resubmission it would
@@ -104,13 +94,8 @@ public Scamp(String n) {
 	Scamp.c = Configuration.getInt(n+"."+PAR_C,0);
 	Scamp.indirTTL = Configuration.getInt(n+"."+PAR_INDIRTTL,-1);
 	Scamp.leaseTimeout = Configuration.getInt(n+"."+PAR_LEASE,-1);
-	outView = new ArrayList<Node>();
-	inView = new ArrayList<Node>();
-	if(Scamp.leaseTimeout>0)
-	{
-		outViewDates = new ArrayList<Integer>();
-		inViewDates = new ArrayList<Integer>();
-	}
+	outView = new NodeView(Scamp.leaseTimeout>0);
+	inView = new NodeView(Scamp.leaseTimeout>0);
 	birthDate = CDState.getCycle();
 }
 
@@ -125,12 +110,8 @@ public Object clone() {
 	Scamp scamp = null;
 	try { scamp=(Scamp) super.clone(); }
 	catch( CloneNotSupportedException e ) {} // never happens
-	scamp.outView = (ArrayList)outView.clone();
-	scamp.inView = (ArrayList)inView.clone();
-	if( outViewDates != null )
-		scamp.outViewDates = (ArrayList)outViewDates.clone();
-	if( inViewDates != null )
-		scamp.inViewDates = (ArrayList)inViewDates.clone();
+	scamp.outView = (NodeView)outView.clone();
+	scamp.inView = (NodeView)inView.clone();
 	scamp.birthDate = CDState.getCycle();
 	return scamp;
 }
@@ -262,10 +243,9 @@ public static void subscribe( Node n, Node s, int protocolID ) {
 * prints a warning and exits doing nothing.
 * @param n1 the node to replace
 * @param n2 the new node. If null, n1 is simply removed.
-* @param date the insertion date of n2, or null if lease is not in effect
+* @param date the insertion date of n2, ignored if lease is not in effect
 */
-// XXX could be optimized if turned out to be a performance problem
-private void replace(Node n1, Node n2, Integer date) {
+private void replace(Node n1, Node n2, int date) {
 
 	int id = outView.indexOf(n1);
 	
@@ -277,24 +257,12 @@ private void replace(Node n1, Node n2, Integer date) {
 
 	// removing n1
 	outView.remove(id);
-	if( outViewDates != null ) outViewDates.remove(id);
 
 	// inserting n2
 	if( n2 != null )
 	{
-		if( (date != null && outViewDates == null) ||
-		    (date == null && outViewDates != null) )
-			throw new IllegalStateException(
-				"is lease active or not?");
-		
-		int ins = outView.size();
-		if( outViewDates != null )
-		{
-			ins = Collections.binarySearch( outViewDates, date );
-			if( ins < 0 ) ins = -(ins+1);
-			outViewDates.add(ins,date);
-		}
-		outView.add(ins,n2);
+		if( outView.isDated() ) outView.addSorted(n2,date);
+		else outView.add(n2);
 	}
 }
 
@@ -321,8 +289,7 @@ public static void unsubscribe( Node n, int protocolID ) {
 			((Scamp)from.getProtocol(protocolID)).replace(
 				n,
 				sn.getNeighbor(i%l),
-				(sn.outViewDates == null ? null 
-					: (Integer)sn.outViewDates.get(i%l)));
+				(sn.outView.isDated() ? sn.outView.getDate(i%l) : 0));
 	}
 	
 	// remove the remaining c+1 links to sn
@@ -331,7 +298,7 @@ public static void unsubscribe( Node n, int protocolID ) {
 		Node from = sn.inView.get(i);
 		if( from.isUp() ) 
 			((Scamp)from.getProtocol(protocolID)).replace(
-				n, null, null );
+				n, null, 0 );
 	}
 }
 
@@ -343,23 +310,14 @@ public static void unsubscribe( Node n, int protocolID ) {
 */
 private boolean addInNeighbor(Node node) {
 	
-	if( !inView.contains(node) )
-	{
-		inView.add( node );
-		if( inViewDates != null )
-			inViewDates.add(CDState.getCycleObj());
-		return true;
-	}
+	if( inView.add( node, CDState.getCycle() ) ) return true;
 	else
 	{
-		if( inViewDates != null )
+		if( inView.isDated() )
 		{
 			// we have to change the date of node
-			int id = inView.indexOf(node);
-			inView.remove(id);
-			inViewDates.remove(id);
-			inViewDates.add(CDState.getCycleObj());
-			inView.add( node );
+			inView.remove(inView.indexOf(node));
+			inView.add( node, CDState.getCycle() );
 		}
 		return false; // false's ok though dates might've been changed
 	}
@@ -385,23 +343,14 @@ public int degree() {
 
 public boolean addNeighbor(Node node) {
 	
-	if( !contains(node) )
-	{
-		outView.add( node );
-		if( outViewDates != null )
-			outViewDates.add(CDState.getCycleObj());
-		return true;
-	}
+	if( outView.add( node, CDState.getCycle() ) ) return true;
 	else
 	{
-		if( outViewDates != null )
+		if( outView.isDated() )
 		{
 			// we have to change the date of node
-			int id = outView.indexOf(node);
-			outView.remove(id);
-			outViewDates.remove(id);
-			outViewDates.add(CDState.getCycleObj());
-			outView.add( node );
+			outView.remove(outView.indexOf(node));
+			outView.add( node, CDState.getCycle() );
 		}
 		return false; // false's ok though dates might've been changed
 	}
@@ -423,9 +372,7 @@ public boolean contains(Node node) {
 public void onKill() {
 	
 	inView=null;
-	inViewDates=null;
 	outView=null;
-	outViewDates=null;
 }
 
 
@@ -438,7 +385,7 @@ public void nextCycle( Node thisNode, int protocolID ){
 	// for now not implemented, does not seem to be important
 	
 	// lease (re-subscription)
-	if( outViewDates != null )
+	if( outView.isDated() )
 	{
 		if((CDState.getCycle()-birthDate)%Scamp.leaseTimeout == 0 &&
 			degree() > 0 && CDState.getCycle() > birthDate )
@@ -454,26 +401,18 @@ public void nextCycle( Node thisNode, int protocolID ){
 		// the first i elements which are expired from both views
 		int i=0;
 		while( i<degree() && CDState.getCycle() - 
-				outViewDates.get(i) >= Scamp.leaseTimeout ) ++i;
-		if( i > 0 )
-		{
-			outView.subList(0,i).clear();
-			outViewDates.subList(0,i).clear();
-		}
+				outView.getDate(i) >= Scamp.leaseTimeout ) ++i;
+		if( i > 0 ) outView.removeFirst(i);
 		i = 0;
 		while( i<inView.size() && CDState.getCycle() - 
-				inViewDates.get(i) >=	Scamp.leaseTimeout ) ++i;
-		if( i > 0 )
-		{
-			inView.subList(0,i).clear();
-			inViewDates.subList(0,i).clear();
-		}
+				inView.getDate(i) >=	Scamp.leaseTimeout ) ++i;
+		if( i > 0 ) inView.removeFirst(i);
 	}
 /*
 	// XXX this implementation does not use dates at all, so we don't
 	// update them properly for inViews. If this implementation becomes
 	// the winner, it has to be fixed.
-	if( outViewDates != null )
+	if( outView.isDated() )
 	{
 		if((CDState.getCycle()-birthDate)%Scamp.leaseTimeout == 0 &&
 			degree() > 0 && CDState.getCycle() > birthDate )
@@ -512,8 +451,8 @@ public static String test(int protocolID) {
 	
 	int failOutLinks=0; // out link points to failed node
 	int failInLinks=0; // in link points to failed node
-	int corruptDates=-1; // outViewDate is wrong size or not ordered
-	int corruptInDates=-1; // inViewDate is wrong size or not ordered
+	int corruptDates=-1; // outView dates are not ordered
+	int corruptInDates=-1; // inView dates are not ordered
 	int missingInLinks=0; // no corresponding in view link
 	int missingOutLinks=0; // no corresponding out view link
 	
@@ -559,36 +498,22 @@ public static String test(int protocolID) {
 		}
 
 		// check dates if any
-		if( currsc.outViewDates == null ) continue;
-		if( currsc.outViewDates.size() != currsc.degree() )
-			corruptDates++;
-		else if ( currsc.outViewDates.size() > 0 )
+		if( !currsc.outView.isDated() ) continue;
+		for(int j=1; j<currsc.degree(); ++j)
 		{
-			for(int j=1; j<currsc.degree(); ++j)
+			if( currsc.outView.getDate(j-1) > currsc.outView.getDate(j) )
 			{
-				if( currsc.outViewDates.get(j-1)
-						.compareTo(currsc.outViewDates.get(j)) > 0 )
-				{
-					corruptDates++;
-					break;
-				}
+				corruptDates++;
+				break;
 			}
-
 		}
-		if( currsc.inViewDates.size() != currsc.inView.size() )
-			corruptInDates++;
-		else if ( currsc.inViewDates.size() > 0 )
+		for(int j=1; j<currsc.inView.size(); ++j)
 		{
-			for(int j=1; j<currsc.inView.size(); ++j)
+			if( currsc.inView.getDate(j-1) > currsc.inView.getDate(j) )
 			{
-				if( currsc.inViewDates.get(j-1).compareTo(
-				  currsc.inViewDates.get(j)) > 0 )
-				{
-					corruptInDates++;
-					break;
-				}
+				corruptInDates++;
+				break;
 			}
-
 		}
 	}
 	
@@ -35,6 +35,15 @@ import peersim.cdsim.CDState;
  * S. D. 2003. Measuring and analyzing the characteristics of Napster and 
  * Gnutella hosts. Multimedia Systems Journal 9, 2 (August), 170-184.
  * <br>
+ * The trace file can also be in the binary format produced by
+ * {@link BinaryTrace}; this is detected automatically. In this case the
+ * trace is not loaded into memory, but it is replayed through a memory
+ * mapped cursor, so only the transitions of the current cycle are
+ * resident. With a binary trace this control also works in event driven
+ * simulations, where the transitions up to the current time are executed,
+ * and the time units of the trace are the time units of the simulation
+ * (see {@value #PAR_UNITS}).
+ * <br>
  * 
  * @author Alberto Montresor
  * @version $Revision$
@@ -87,6 +96,22 @@ private Node[][] events;
 /** The prefix of this control */
 private final String prefix;
 
+/** The binary trace, or null if the trace is in text format */
+private BinaryTrace trace = null;
+
+/**
+ * The nodes assigned to the hosts of the binary trace. The nodes
+ * assigned to host h are in positions from <code>hostStart[h]</code>
+ * to <code>hostStart[h+1]-1</code>.
+ */
+private Node[] hostNodes;
+
+/** Start of the nodes of each host in {@link #hostNodes} */
+private int[] hostStart;
+
+/** True if the binary trace has been started */
+private boolean started = false;
+
 //---------------------------------------------------------------------
 //Initialization
 //---------------------------------------------------------------------
@@ -101,6 +126,20 @@ public AvailabilityTraceDynamics(String prefix)
 	cycleLength = Configuration.getInt(prefix+"."+PAR_CYCLE);
 	units = Configuration.getInt(prefix+"."+PAR_UNITS, 1000);
 
+	try {
+		if (BinaryTrace.isBinary(filename)) {
+			trace = new BinaryTrace(filename);
+			assignHosts();
+			return;
+		}
+	} catch (FileNotFoundException e) {
+		throw new IllegalParameterException(
+			prefix+"."+PAR_FILE, filename + " does not exist");
+	} catch (IOException e) {
+		e.printStackTrace(System.err);
+		System.exit(0);	
+	}
+
 	BufferedReader in = null;
 	try {
 		in = new BufferedReader(new FileReader(filename));
@@ -190,11 +229,94 @@ public AvailabilityTraceDynamics(String prefix)
   }
 }
 
+/**
+ * Randomly assigns one of the hosts of the binary trace to the existing
+ * nodes, the same way as it is done with text traces.
+ */
+private void assignHosts()
+{
+	final int hosts = trace.hosts();
+	int[] indexes = new int[Network.size()];
+	int size = 0;
+	int[] selection = new int[hosts];
+	int[] count = new int[hosts];
+	for (int i=0; i < indexes.length; i++) {
+		if (size == 0) {
+			size = hosts;
+			for (int j=0; j < size; j++) 
+				selection[j] = j;
+		}
+		int r = CommonState.r.nextInt(size);
+		indexes[i] = selection[r];
+		count[indexes[i]]++;
+		selection[r] = selection[--size];
+	}
+	hostStart = new int[hosts+1];
+	for (int h=0; h < hosts; h++)
+		hostStart[h+1] = hostStart[h] + count[h];
+	hostNodes = new Node[indexes.length];
+	for (int i=0; i < indexes.length; i++)
+		hostNodes[hostStart[indexes[i]] + --count[indexes[i]]] =
+			Network.get(i);
+}
+
 static int size = 0;
 
+/**
+ * Executes the transitions of the binary trace up to the end of the
+ * current cycle, or up to the current time in event driven simulations.
+ */
+private boolean executeBinary()
+{
+	if (!started) {
+		for (int i=0; i < Network.size(); i++) {
+			Network.get(i).setFailState(Fallible.DOWN);
+		}
+		size = 0;
+		started = true;
+	}
+	final boolean cd = CDState.isCD();
+	final long limit = cd ? (CDState.getCycle()+1)*(long)cycleLength :
+		CommonState.getTime()+1;
+	int down = 0;
+	int up = 0;
+	try {
+		for (; trace.hasNext(); trace.next()) {
+			if ((long) (trace.time()*units) >= limit) break;
+			final int h = trace.host();
+			final boolean isup = trace.up();
+			for (int i=hostStart[h]; i < hostStart[h+1]; i++) {
+				Node node = hostNodes[i];
+				if (node.getFailState() == Fallible.DEAD) continue;
+				if (isup && !node.isUp()) {
+					node.setFailState(Fallible.OK);
+					up++;
+				} else if (!isup && node.isUp()) {
+					node.setFailState(Fallible.DOWN);
+					down++;
+				}
+			}
+		}
+	} catch (IOException e) {
+		e.printStackTrace(System.err);
+		System.exit(0);	
+	}
+	size += up - down;
+	System.out.println(prefix+": "+  
+			" TIME " + CommonState.getTime() +
+			(cd ? " EPOCH " + CDState.getCycle()/30 : "") +
+			" SIZE " + size +
+			" DOWN " + down + 
+			" UP " + up); 
+
+	return false;
+}
+
+
 // Comment inherited from interface
 public boolean execute()
 {
+	if (trace != null) return executeBinary();
 	int cycle = CDState.getCycle();
 	if (cycle == 0) {
 		for (int i=0; i < Network.size(); i++) {
@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2003-2005 The BISON Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License version 2 as
+ * published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ *
+ */
+
+package traces;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+/**
+ * Binary availability trace, read through a memory mapped cursor.
+ * The binary format is produced from the text format read by
+ * {@link AvailabilityTraceDynamics} by the {@link #main} method of this
+ * class. It contains all the session boundaries (transitions) of all the
+ * hosts, sorted by time, so a trace can be replayed by reading it
+ * sequentially, and only the part of the file around the current
+ * position has to be resident in memory.
+ * <p>
+ * The file starts with a header of {@value #HEADER} bytes: the magic number
+ * {@value #MAGIC}, the format version, the number of hosts (all int) and the
+ * number of transitions (long). The header is followed by the transitions,
+ * each of which is a time in seconds (double) and an int, which is
+ * <code>2*host+1</code> if the host goes up and <code>2*host</code> if
+ * the host goes down. Hosts are numbered from 0 in the order of the text
+ * file, hosts without sessions are skipped. All values are big-endian.
+ */
+public class BinaryTrace
+{
+
+//---------------------------------------------------------------------
+//Constants
+//---------------------------------------------------------------------
+
+/** The first int of a binary trace file */
+public static final int MAGIC = 0x50535452;
+
+/** The format version */
+private static final int VERSION = 1;
+
+/** Size of the header in bytes */
+private static final int HEADER = 20;
+
+/** Size of a transition in bytes */
+private static final int RECORD = 12;
+
+/** Number of transitions mapped at a time */
+private static final int WINDOW = (1 << 26) / RECORD;
+
+//---------------------------------------------------------------------
+//Fields
+//---------------------------------------------------------------------
+
+/** The channel of the trace file */
+private final FileChannel channel;
+
+/** Number of hosts */
+private final int hosts;
+
+/** Number of transitions */
+private final long count;
+
+/** The currently mapped part of the file */
+private MappedByteBuffer window = null;
+
+/** Index of the first transition in {@link #window} */
+private long wstart = 0;
+
+/** Index of the current transition */
+private long pos = 0;
+
+//---------------------------------------------------------------------
+//Initialization
+//---------------------------------------------------------------------
+
+/**
+ * Opens the given binary trace file and positions the cursor at
+ * the first transition.
+ * @throws IOException if the file cannot be read or it is not a binary
+ * trace file
+ */
+public BinaryTrace(String filename) throws IOException
+{
+	channel = new RandomAccessFile(filename, "r").getChannel();
+	ByteBuffer header = ByteBuffer.allocate(HEADER);
+	while (header.hasRemaining() && channel.read(header) >= 0);
+	header.flip();
+	if (header.remaining() < HEADER || header.getInt() != MAGIC)
+		throw new IOException(filename + " is not a binary trace");
+	int version = header.getInt();
+	if (version != VERSION)
+		throw new IOException(filename +
+			": unsupported binary trace version " + version);
+	hosts = header.getInt();
+	count = header.getLong();
+	if (channel.size() != HEADER + count * RECORD)
+		throw new IOException(filename + " is truncated");
+}
+
+//---------------------------------------------------------------------
+//Methods
+//---------------------------------------------------------------------
+
+/**
+ * Returns true if the given file starts with {@link #MAGIC}.
+ */
+public static boolean isBinary(String filename) throws IOException
+{
+	DataInputStream in = new DataInputStream(new FileInputStream(filename));
+	try {
+		return in.readInt() == MAGIC;
+	} catch (EOFException e) {
+		return false;
+	} finally {
+		in.close();
+	}
+}
+
+//---------------------------------------------------------------------
+
+/** Returns the number of hosts in the trace. */
+public int hosts() { return hosts; }
+
+//---------------------------------------------------------------------
+
+/** Returns true if the cursor is not past the last transition. */
+public boolean hasNext() { return pos < count; }
+
+//---------------------------------------------------------------------
+
+/** Returns the time of the current transition in seconds. */
+public double time() throws IOException
+{
+	return map().getDouble((int) (pos - wstart) * RECORD);
+}
+
+//---------------------------------------------------------------------
+
+/** Returns the host of the current transition. */
+public int host() throws IOException
+{
+	return map().getInt((int) (pos - wstart) * RECORD + 8) >>> 1;
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns true if the host goes up in the current transition, false if it
+ * goes down.
+ */
+public boolean up() throws IOException
+{
+	return (map().getInt((int) (pos - wstart) * RECORD + 8) & 1) == 1;
+}
+
+//---------------------------------------------------------------------
+
+/** Moves the cursor to the next transition. */
+public void next() { pos++; }
+
+//---------------------------------------------------------------------
+
+/** Releases the file. */
+public void close() throws IOException
+{
+	window = null;
+	channel.close();
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Makes sure the current transition is in the mapped window, and
+ * returns the window.
+ */
+private MappedByteBuffer map() throws IOException
+{
+	if (window == null || pos >= wstart + WINDOW) {
+		wstart = pos;
+		long size = Math.min(WINDOW, count - pos) * RECORD;
+		window = channel.map(FileChannel.MapMode.READ_ONLY,
+			HEADER + wstart * RECORD, size);
+	}
+	return window;
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Sorts the parallel arrays by time, using heapsort. Transitions with the
+ * same time keep their original order, so that a session that ends and
+ * one that starts at the same time are replayed in the right order.
+ * @param seq must contain the original position of each transition
+ */
+private static void sort(double[] times, int[] codes, int[] seq, int n)
+{
+	for (int i = n / 2 - 1; i >= 0; i--) sift(times, codes, seq, i, n);
+	for (int i = n - 1; i > 0; i--) {
+		swap(times, codes, seq, 0, i);
+		sift(times, codes, seq, 0, i);
+	}
+}
+
+private static void sift(double[] times, int[] codes, int[] seq, int i, int n)
+{
+	while (2 * i + 1 < n) {
+		int c = 2 * i + 1;
+		if (c + 1 < n && less(times, seq, c, c + 1)) c++;
+		if (!less(times, seq, i, c)) return;
+		swap(times, codes, seq, i, c);
+		i = c;
+	}
+}
+
+private static boolean less(double[] times, int[] seq, int i, int j)
+{
+	return times[i] < times[j] || (times[i] == times[j] && seq[i] < seq[j]);
+}
+
+private static void swap(double[] times, int[] codes, int[] seq, int i, int j)
+{
+	double t = times[i]; times[i] = times[j]; times[j] = t;
+	int c = codes[i]; codes[i] = codes[j]; codes[j] = c;
+	c = seq[i]; seq[i] = seq[j]; seq[j] = c;
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Converts a trace in text format to the binary format.
+ * Usage: <code>java traces.BinaryTrace textfile binaryfile</code>.
+ * The transitions of the whole trace are sorted in memory, using
+ * 16 bytes per transition.
+ */
+public static void main(String[] args) throws Exception
+{
+	if (args.length != 2) {
+		System.err.println("Usage: java traces.BinaryTrace " +
+			"textfile binaryfile");
+		System.exit(1);
+	}
+	BufferedReader in = new BufferedReader(new FileReader(args[0]));
+	double[] times = new double[1024];
+	int[] codes = new int[1024];
+	int n = 0;
+	int hosts = 0;
+	String line;
+	while ((line = in.readLine()) != null) {
+		StringTokenizer tok = new StringTokenizer(line);
+		if (!tok.hasMoreTokens()) continue;
+		tok.nextToken();
+		int sessions = Integer.parseInt(tok.nextToken());
+		if (sessions == 0) continue;
+		for (int i = 0; i < 2 * sessions; i++) {
+			if (n == times.length) {
+				times = Arrays.copyOf(times, 3 * n / 2);
+				codes = Arrays.copyOf(codes, 3 * n / 2);
+			}
+			times[n] = Double.parseDouble(tok.nextToken());
+			// starts are at even positions
+			codes[n] = 2 * hosts + (i % 2 == 0 ? 1 : 0);
+			n++;
+		}
+		hosts++;
+	}
+	in.close();
+	int[] seq = new int[n];
+	for (int i = 0; i < n; i++) seq[i] = i;
+	sort(times, codes, seq, n);
+
+	DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+		new FileOutputStream(args[1])));
+	out.writeInt(MAGIC);
+	out.writeInt(VERSION);
+	out.writeInt(hosts);
+	out.writeLong(n);
+	for (int i = 0; i < n; i++) {
+		out.writeDouble(times[i]);
+		out.writeInt(codes[i]);
+	}
+	out.close();
+	System.err.println("BinaryTrace: written " + hosts + " hosts, " + n +
+		" transitions");
+}
+
+}